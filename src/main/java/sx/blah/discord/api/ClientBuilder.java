@@ -30,12 +30,18 @@ import sx.blah.discord.handle.obj.StatusType;
 import sx.blah.discord.util.DiscordException;
 import sx.blah.discord.util.cache.Cache;
 import sx.blah.discord.util.cache.ICacheDelegateProvider;
+import sx.blah.discord.util.session.FileSessionStore;
+import sx.blah.discord.util.session.ISessionStore;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
 
 /**
  * Used to configure and build a {@link IDiscordClient} instance.
@@ -64,10 +70,23 @@ public class ClientBuilder {
 	private long eventThreadTimeout = 60L;
 	private TimeUnit eventThreadTimeoutUnit = TimeUnit.SECONDS;
 	private int overflowCapacity = 128;
+	private int virtualDispatchThreads = 0;
 	private StatusType status = StatusType.ONLINE;
 	private ActivityType activity;
 	private String text;
 	private String streamUrl;
+	private boolean useTransportCompression = false;
+	private final Set<String> ignoredDispatches = new HashSet<>();
+	private BiPredicate<String, Long> dispatchFilter = null;
+	private MemberLoadingStrategy memberLoadingStrategy = MemberLoadingStrategy.EAGER_BATCHED;
+	private int webSocketSelectors = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+	private int webSocketWorkers = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+	private ISessionStore sessionStore = null;
+	private File journalDirectory = null;
+	private int journalSegmentSize = 64 * 1024 * 1024;
+	private int journalSegments = 4;
+	private String gatewayUrl = null;
+	private GatewayEncoding gatewayEncoding = GatewayEncoding.JSON;
 	//Early registered listeners:
 	private final List<IListener> iListeners = new ArrayList<>();
 	private final List<Object> listeners = new ArrayList<>();
@@ -341,6 +360,189 @@ public class ClientBuilder {
 		return this;
 	}
 
+	/**
+	 * Configures the client's {@link EventDispatcher} to run each listener invocation on a new virtual thread instead
+	 * of its thread pool, so listeners which block (on REST requests, for example) don't hold up other listeners. When
+	 * the maximum number of invocations are running, the thread dispatching an event waits for one of them to finish.
+	 * Virtual threads require Java 21 or later. On older runtimes the thread pool is used. (It is disabled by default).
+	 *
+	 * @param maximumConcurrency The maximum number of listener invocations which may run at once.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withVirtualDispatchThreads(int maximumConcurrency) {
+		if (maximumConcurrency < 1) throw new IllegalArgumentException("At least one listener must be allowed to run at once.");
+		this.virtualDispatchThreads = maximumConcurrency;
+		return this;
+	}
+
+	/**
+	 * Configures whether the client's gateway connections should use <code>zlib-stream</code> transport compression.
+	 * This greatly reduces the bandwidth used by the gateway at the cost of some CPU time. (It is disabled by default).
+	 *
+	 * @param useTransportCompression Whether gateway connections should use transport compression.
+	 * @return The builder instance.
+	 *
+	 * @see <a href=https://discordapp.com/developers/docs/topics/gateway#transport-compression>Transport Compression</a>
+	 */
+	public ClientBuilder withTransportCompression(boolean useTransportCompression) {
+		this.useTransportCompression = useTransportCompression;
+		return this;
+	}
+
+	/**
+	 * Configures dispatch types (such as <code>TYPING_START</code> or <code>PRESENCE_UPDATE</code>) which the client
+	 * should discard as soon as they are received. Their data is never deserialized and they never fire events or
+	 * update the cache, so the cache may become outdated for the ignored types.
+	 *
+	 * <p>Dispatch types which are required to build the client's state, such as <code>READY</code> and
+	 * <code>GUILD_CREATE</code>, cannot be ignored.
+	 *
+	 * @param types The names of the dispatch types to ignore.
+	 * @return The builder instance.
+	 *
+	 * @throws IllegalArgumentException If any of the types is required by the client. This is thrown when the client is
+	 * built.
+	 * @see <a href=https://discordapp.com/developers/docs/topics/gateway#events>Gateway Events</a>
+	 */
+	public ClientBuilder withIgnoredDispatches(String... types) {
+		this.ignoredDispatches.addAll(Arrays.asList(types));
+		return this;
+	}
+
+	/**
+	 * Configures a filter which decides whether a dispatch payload that belongs to a guild should be handled. It is
+	 * given the dispatch type and the ID of the guild, and is called on the gateway thread before any cache work is
+	 * done. It should therefore be fast. Dispatch types which are required to build the client's state are never
+	 * filtered.
+	 *
+	 * @param filter The filter, which returns true if the payload should be handled.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withDispatchFilter(BiPredicate<String, Long> filter) {
+		this.dispatchFilter = filter;
+		return this;
+	}
+
+	/**
+	 * Configures how the members of large guilds are loaded. (It is {@link MemberLoadingStrategy#EAGER_BATCHED} by
+	 * default).
+	 *
+	 * @param strategy The member loading strategy.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withMemberLoadingStrategy(MemberLoadingStrategy strategy) {
+		this.memberLoadingStrategy = strategy;
+		return this;
+	}
+
+	/**
+	 * Configures the threads of the websocket client which every gateway and voice connection of the client shares.
+	 * Selector threads wait for network activity on every connection and worker threads handle the received messages.
+	 * (By default there are half as many selectors as processors, between 1 and 4, and twice as many workers as
+	 * processors, at least 8).
+	 *
+	 * @param selectorThreads The number of selector threads.
+	 * @param workerThreads The number of worker threads.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withWebSocketThreads(int selectorThreads, int workerThreads) {
+		if (selectorThreads < 1 || workerThreads < 1)
+			throw new IllegalArgumentException("The websocket client needs at least one selector and one worker thread");
+
+		this.webSocketSelectors = selectorThreads;
+		this.webSocketWorkers = workerThreads;
+		return this;
+	}
+
+	/**
+	 * Configures where the sessions of the client's shards are saved when it logs out or the JVM shuts down. When the
+	 * client logs in again (even in a new process), shards with a saved session resume it instead of identifying, so
+	 * they don't have to receive all of their guilds again. (Sessions are not saved by default).
+	 *
+	 * <p>Discord only allows a session to be resumed for a short time after its connection is closed. Shards whose
+	 * session has expired identify as usual.
+	 *
+	 * @param sessionStore The store sessions are saved to.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withSessionStore(ISessionStore sessionStore) {
+		this.sessionStore = sessionStore;
+		return this;
+	}
+
+	/**
+	 * Configures the client to save the sessions of its shards to files in a directory when it logs out or the JVM
+	 * shuts down.
+	 *
+	 * @param directory The directory sessions are saved to.
+	 * @return The builder instance.
+	 * @see #withSessionStore(ISessionStore)
+	 */
+	public ClientBuilder withSessionPersistence(File directory) {
+		return withSessionStore(new FileSessionStore(directory));
+	}
+
+	/**
+	 * Configures the URL of the gateway the client's shards connect to, instead of the one Discord provides. This is
+	 * meant for connecting to a local server which stands in for Discord, along with
+	 * {@link sx.blah.discord.Discord4J#setBaseDiscordUrl(String)} for the REST API.
+	 *
+	 * @param url The websocket URL of the gateway, without query parameters.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withGatewayUrl(String url) {
+		this.gatewayUrl = url;
+		return this;
+	}
+
+	/**
+	 * Configures the encoding of the payloads the client sends and receives on the gateway. ETF payloads are smaller and
+	 * faster to decode than JSON, which mostly benefits bots in large guilds. (JSON is used by default).
+	 *
+	 * @param encoding The encoding of gateway payloads.
+	 * @return The builder instance.
+	 *
+	 * @see <a href=https://discordapp.com/developers/docs/topics/gateway#encoding-and-compression>Encoding and Compression</a>
+	 */
+	public ClientBuilder withGatewayEncoding(GatewayEncoding encoding) {
+		this.gatewayEncoding = encoding;
+		return this;
+	}
+
+	/**
+	 * Configures the client to record every payload it receives on the gateway to a journal in a directory, which can
+	 * be replayed with {@link sx.blah.discord.util.GatewayReplayer}. The journal keeps up to 4 segments of 64
+	 * MiB. (Payloads are not recorded by default).
+	 *
+	 * @param directory The directory the journal is stored in.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withGatewayJournal(File directory) {
+		return withGatewayJournal(directory, journalSegmentSize, journalSegments);
+	}
+
+	/**
+	 * Configures the client to record every payload it receives on the gateway to a journal in a directory, which can
+	 * be replayed with {@link sx.blah.discord.util.GatewayReplayer}. The journal is split into segments of a
+	 * fixed size and the oldest segments are deleted once there are too many.
+	 *
+	 * @param directory The directory the journal is stored in.
+	 * @param segmentSize The size of each segment in bytes.
+	 * @param maxSegments The maximum number of segments to keep.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withGatewayJournal(File directory, int segmentSize, int maxSegments) {
+		if (segmentSize < 8192)
+			throw new IllegalArgumentException("Journal segments must be at least 8 KiB");
+		if (maxSegments < 1)
+			throw new IllegalArgumentException("The journal must keep at least one segment");
+
+		this.journalDirectory = directory;
+		this.journalSegmentSize = segmentSize;
+		this.journalSegments = maxSegments;
+		return this;
+	}
+
 	/**
 	 * Sets the presence of the bot when it logs in.
 	 *
@@ -416,7 +618,10 @@ public class ClientBuilder {
 		final IDiscordClient client = new DiscordClientImpl(botToken, shard != null ? -1 : shardCount, isDaemon,
 				maxMissedPings, maxReconnectAttempts, retryCount, maxCacheCount, provider, shard, backpressureHandler,
 				minimumPoolSize, maximumPoolSize, overflowCapacity, eventThreadTimeout, eventThreadTimeoutUnit,
-				new PresenceUpdateRequest(status, activity, text, streamUrl));
+				new PresenceUpdateRequest(status, activity, text, streamUrl), useTransportCompression, ignoredDispatches,
+				dispatchFilter, memberLoadingStrategy, webSocketSelectors, webSocketWorkers,
+				sessionStore, journalDirectory, journalSegmentSize, journalSegments, gatewayUrl, gatewayEncoding,
+				virtualDispatchThreads);
 
 		//Registers events as soon as client is initialized
 		final EventDispatcher dispatcher = client.getDispatcher();
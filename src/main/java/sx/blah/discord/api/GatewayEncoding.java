@@ -0,0 +1,48 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api;
+
+/**
+ * The encodings the client can receive and send gateway payloads in.
+ *
+ * @see ClientBuilder#withGatewayEncoding(GatewayEncoding)
+ * @see <a href=https://discordapp.com/developers/docs/topics/gateway#encoding-and-compression>Encoding and Compression</a>
+ */
+public enum GatewayEncoding {
+
+	/**
+	 * Payloads are JSON text. This is the default.
+	 */
+	JSON,
+
+	/**
+	 * Payloads are binary Erlang External Term Format. Payloads are smaller than their JSON equivalents and numbers
+	 * (such as the IDs of objects) are received as binary integers, which makes large payloads (such as the
+	 * <code>GUILD_CREATE</code> of a large guild) considerably faster to decode.
+	 */
+	ETF;
+
+	/**
+	 * Gets the value of the <code>encoding</code> query parameter of the gateway URL.
+	 *
+	 * @return The value of the <code>encoding</code> query parameter.
+	 */
+	public String getQueryValue() {
+		return name().toLowerCase();
+	}
+}
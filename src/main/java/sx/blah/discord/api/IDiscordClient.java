@@ -309,6 +309,22 @@ public interface IDiscordClient {
 	 */
 	IRole getRoleByID(long roleID);
 
+	/**
+	 * Gets a custom emoji by its unique snowflake ID from the client's emoji cache.
+	 *
+	 * @param emojiID The ID of the desired emoji.
+	 * @return The emoji with the provided ID (or null if one was not found).
+	 */
+	default IEmoji getEmojiByID(long emojiID) {
+		for (IGuild guild : getGuilds()) {
+			IEmoji emoji = guild.getEmojiByID(emojiID);
+			if (emoji != null)
+				return emoji;
+		}
+
+		return null;
+	}
+
 	/**
 	 * Gets a list of all messages in the client's message cache.
 	 *
@@ -100,6 +100,16 @@ public interface IShard {
 	 */
 	long getResponseTime();
 
+	/**
+	 * Gets the measurements of this shard's gateway connection, such as heartbeat latency and the payloads received.
+	 *
+	 * @return The metrics of this shard.
+	 * @throws UnsupportedOperationException If the shard does not measure its connection.
+	 */
+	default IShardMetrics getMetrics() {
+		throw new UnsupportedOperationException(getClass().getName() + " does not provide metrics");
+	}
+
 	/**
 	 * Changes the presence of the bot.
 	 *
@@ -0,0 +1,181 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api;
+
+import sx.blah.discord.util.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measurements of a shard's gateway connection. Every value is counted from when the shard was created, across all of
+ * its connections. Rates are exponentially weighted moving averages over the last minute.
+ *
+ * @see IShard#getMetrics()
+ */
+public interface IShardMetrics {
+
+	/**
+	 * Gets the shard the metrics are for.
+	 *
+	 * @return The shard the metrics are for.
+	 */
+	IShard getShard();
+
+	/**
+	 * Gets the times it took Discord to acknowledge heartbeats, in milliseconds.
+	 *
+	 * @return The heartbeat round trip times.
+	 */
+	LatencyHistogram getHeartbeatLatency();
+
+	/**
+	 * Gets the number of heartbeats which Discord did not acknowledge before the next heartbeat was sent.
+	 *
+	 * @return The number of missed heartbeat acks.
+	 */
+	long getMissedHeartbeats();
+
+	/**
+	 * Gets the number of times the shard has begun reconnecting.
+	 *
+	 * @return The number of reconnects.
+	 */
+	long getReconnects();
+
+	/**
+	 * Gets the number of times the shard has resumed a session.
+	 *
+	 * @return The number of resumes.
+	 */
+	long getResumes();
+
+	/**
+	 * Gets the number of payloads received.
+	 *
+	 * @return The number of payloads received.
+	 */
+	long getReceivedPayloads();
+
+	/**
+	 * Gets the number of bytes received. Payloads are counted by their decoded size: the length of their UTF-8 JSON or
+	 * ETF encoding once any compression has been removed. This is the same whatever compression the shard uses, but
+	 * it isn't the number of bytes received on the connection.
+	 *
+	 * @return The number of bytes received.
+	 */
+	long getReceivedBytes();
+
+	/**
+	 * Gets the number of payloads received per second.
+	 *
+	 * @return The number of payloads received per second.
+	 */
+	double getPayloadsPerSecond();
+
+	/**
+	 * Gets the number of bytes received per second, counted like {@link #getReceivedBytes()}.
+	 *
+	 * @return The number of bytes received per second.
+	 */
+	double getBytesPerSecond();
+
+	/**
+	 * Gets the total time spent decoding received payloads, in nanoseconds.
+	 *
+	 * @return The time spent decoding payloads.
+	 */
+	long getDecodeTime();
+
+	/**
+	 * Gets the total time spent handling dispatch payloads (updating the cache and dispatching events), in
+	 * nanoseconds.
+	 *
+	 * @return The time spent handling dispatch payloads.
+	 */
+	long getDispatchTime();
+
+	/**
+	 * Gets the metrics of each dispatch type which has been received.
+	 *
+	 * @return The metrics of each dispatch type, keyed by event name.
+	 */
+	Map<String, DispatchMetrics> getDispatchMetrics();
+
+	/**
+	 * Calls a subscriber with these metrics periodically until the returned future is cancelled. Subscribers are called
+	 * on a thread dedicated to them, so a slow subscriber only delays the other subscribers, not the shard's connection.
+	 *
+	 * @param subscriber The subscriber.
+	 * @param period The time between calls.
+	 * @param unit The unit of the period.
+	 * @return The future which stops the subscription when cancelled.
+	 */
+	Future<?> subscribe(Consumer<IShardMetrics> subscriber, long period, TimeUnit unit);
+
+	/**
+	 * Measurements of a single dispatch type received by a shard.
+	 */
+	interface DispatchMetrics {
+
+		/**
+		 * Gets the number of payloads of this type received.
+		 *
+		 * @return The number of payloads received.
+		 */
+		long getCount();
+
+		/**
+		 * Gets the number of bytes of payloads of this type received, counted like
+		 * {@link IShardMetrics#getReceivedBytes()}.
+		 *
+		 * @return The number of bytes received.
+		 */
+		long getBytes();
+
+		/**
+		 * Gets the number of payloads of this type received per second.
+		 *
+		 * @return The number of payloads received per second.
+		 */
+		double getEventsPerSecond();
+
+		/**
+		 * Gets the number of bytes of payloads of this type received per second.
+		 *
+		 * @return The number of bytes received per second.
+		 */
+		double getBytesPerSecond();
+
+		/**
+		 * Gets the total time spent decoding payloads of this type, in nanoseconds.
+		 *
+		 * @return The time spent decoding payloads.
+		 */
+		long getDecodeTime();
+
+		/**
+		 * Gets the total time spent handling payloads of this type, in nanoseconds.
+		 *
+		 * @return The time spent handling payloads.
+		 */
+		long getDispatchTime();
+	}
+}
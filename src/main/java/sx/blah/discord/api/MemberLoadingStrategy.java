@@ -0,0 +1,50 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api;
+
+import sx.blah.discord.handle.impl.events.guild.AllUsersReceivedEvent;
+import sx.blah.discord.handle.impl.events.guild.GuildCreateEvent;
+
+/**
+ * The ways the client can load the members of large guilds. Discord only sends the online members of large guilds when
+ * they are created, so the rest of the members must be requested separately.
+ *
+ * @see ClientBuilder#withMemberLoadingStrategy(MemberLoadingStrategy)
+ * @see <a href=https://discordapp.com/developers/docs/topics/gateway#request-guild-members>Request Guild Members</a>
+ */
+public enum MemberLoadingStrategy {
+
+	/**
+	 * The members of large guilds are never requested. Only the online members (and members which are seen in other
+	 * events) are cached.
+	 */
+	NONE,
+
+	/**
+	 * The members of a large guild are requested the first time its member list is accessed. The member list is
+	 * incomplete until the {@link AllUsersReceivedEvent} for the guild is dispatched.
+	 */
+	LAZY,
+
+	/**
+	 * The members of every large guild are requested when the guild is created. Requests for many guilds are combined
+	 * into a single payload and the {@link GuildCreateEvent} for a guild is dispatched once all of its members have
+	 * been received. This is the default.
+	 */
+	EAGER_BATCHED
+}
@@ -30,6 +30,11 @@ public abstract class Event {
 	 */
 	protected IDiscordClient client;
 
+	/**
+	 * The time the event was received, from {@link System#nanoTime()}.
+	 */
+	long receivedTime;
+
 	/**
 	 * Gets the client associated with this event's {@link EventDispatcher}.
 	 *
@@ -38,4 +43,14 @@ public abstract class Event {
 	public IDiscordClient getClient() {
 		return client;
 	}
+
+	/**
+	 * Gets the time the event was received, from {@link System#nanoTime()}. For events caused by a gateway payload,
+	 * this is when the payload was received. For any other event, it is when the event was first dispatched.
+	 *
+	 * @return The time the event was received.
+	 */
+	public long getReceivedTime() {
+		return receivedTime;
+	}
 }
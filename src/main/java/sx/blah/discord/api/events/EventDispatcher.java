@@ -20,6 +20,7 @@ import net.jodah.typetools.TypeResolver;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.internal.DiscordUtils;
+import sx.blah.discord.util.LatencyHistogram;
 import sx.blah.discord.util.LogMarkers;
 
 import java.lang.invoke.MethodHandle;
@@ -27,12 +28,18 @@ import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -56,26 +63,77 @@ import java.util.stream.Stream;
  * <p/>
  * You are encouraged to provide your own threadpool to your listeners to have proper control of resources, using a ThreadPoolExecutor.CallerRunsPolicy rejection policy
  * to allow proper backpressure in case your threads are overwhelmed.
+ * <p/>
+ * Alternatively, a {@link ListenerMailbox} can be passed as the executor of one or more listeners. It gives them their own bounded queue and thread, and its
+ * {@link ListenerMailbox.OverflowPolicy} decides whether events are dropped or the dispatching thread waits when they fall behind.
  */
 public class EventDispatcher {
 
 	private final MethodHandles.Lookup lookup = MethodHandles.lookup();
 	private final AtomicReference<HashSet<EventHandler>> listenersRegistry = new AtomicReference<>(new HashSet<>());
-	private final ExecutorService defaultEventExecutor;
 	/**
-	 * Special executor used for waitFor.
-	 *
-	 * Essentially forces the thread dispatching the event to execute the handler, because all wait for does is exchange with the blocking thread, this serves us well.
+	 * The handlers which accept each event class, for the current contents of the {@link #listenersRegistry}.
+	 */
+	private volatile HandlerIndex handlerIndex = new HandlerIndex(listenersRegistry.get());
+	private final Executor defaultEventExecutor;
+	/**
+	 * The pending waitFor calls, by the event class they wait for. They're kept out of the {@link #listenersRegistry}
+	 * so adding and removing one doesn't copy the registry, and they're tested on the thread dispatching the event.
+	 */
+	private final ConcurrentHashMap<Class<?>, Set<Waiter<?>>> waiters = new ConcurrentHashMap<>();
+	/**
+	 * The superclasses and interfaces of each dispatched event class, used to find the waiters which accept an event.
 	 */
-	private final Executor callingThreadExecutor = Runnable::run;
+	private final ConcurrentHashMap<Class<?>, Class<?>[]> waiterTypes = new ConcurrentHashMap<>();
+	/**
+	 * Flushes the batches of batch listeners once they have waited long enough and calls listener metrics subscribers.
+	 */
+	private final ScheduledThreadPoolExecutor scheduler;
+	/**
+	 * Hands the batches flushed by the {@link #scheduler} to their listeners' executors, so a listener which runs on the
+	 * thread that submits it (such as with {@link CallerRunsPolicy}) never holds up the scheduler.
+	 */
+	private final ThreadPoolExecutor batchFlusher;
+	/**
+	 * The time the gateway payload being handled by each thread was received, or 0 if the thread isn't handling one.
+	 */
+	private final ThreadLocal<long[]> payloadReceivedTime = ThreadLocal.withInitial(() -> new long[1]);
 	private final IDiscordClient client;
 
 	public EventDispatcher(IDiscordClient client, RejectedExecutionHandler backpressureHandler, int minimumPoolSize,
 						   int maximumPoolSize, int overflowCapacity, long eventThreadTimeout, TimeUnit eventThreadTimeoutUnit) {
+		this(client, backpressureHandler, minimumPoolSize, maximumPoolSize, overflowCapacity, eventThreadTimeout,
+				eventThreadTimeoutUnit, 0);
+	}
+
+	/**
+	 * Creates a dispatcher whose default executor may run listeners on virtual threads.
+	 *
+	 * @param virtualDispatchThreads The maximum number of listeners the default executor runs at once on virtual
+	 *                               threads, or 0 to use the default thread pool. The thread pool is also used if the
+	 *                               runtime doesn't support virtual threads.
+	 */
+	public EventDispatcher(IDiscordClient client, RejectedExecutionHandler backpressureHandler, int minimumPoolSize,
+						   int maximumPoolSize, int overflowCapacity, long eventThreadTimeout, TimeUnit eventThreadTimeoutUnit,
+						   int virtualDispatchThreads) {
 		this.client = client;
-		this.defaultEventExecutor = new ThreadPoolExecutor(minimumPoolSize, maximumPoolSize, eventThreadTimeout,
-				eventThreadTimeoutUnit, new ArrayBlockingQueue<>(overflowCapacity),
-				DiscordUtils.createDaemonThreadFactory("Event Dispatcher Handler"), backpressureHandler);
+		Executor virtualThreadExecutor = null;
+		if (virtualDispatchThreads > 0) {
+			virtualThreadExecutor = VirtualThreadExecutor.create("Event Dispatcher Handler", virtualDispatchThreads);
+			if (virtualThreadExecutor == null)
+				Discord4J.LOGGER.warn(LogMarkers.EVENTS, "Virtual threads are not supported by this runtime, the event thread pool is used instead.");
+		}
+		this.defaultEventExecutor = virtualThreadExecutor != null ? virtualThreadExecutor : new ThreadPoolExecutor(
+				minimumPoolSize, maximumPoolSize, eventThreadTimeout, eventThreadTimeoutUnit,
+				new ArrayBlockingQueue<>(overflowCapacity), DiscordUtils.createDaemonThreadFactory("Event Dispatcher Handler"),
+				backpressureHandler);
+		this.scheduler = new ScheduledThreadPoolExecutor(1, DiscordUtils.createDaemonThreadFactory("Event Dispatcher Scheduler"));
+		this.scheduler.setKeepAliveTime(1, TimeUnit.MINUTES);
+		this.scheduler.allowCoreThreadTimeOut(true);
+		this.scheduler.setRemoveOnCancelPolicy(true);
+		this.batchFlusher = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+				DiscordUtils.createDaemonThreadFactory("Event Dispatcher Batch Flusher"));
+		this.batchFlusher.allowCoreThreadTimeOut(true);
 	}
 
 	/**
@@ -296,7 +354,8 @@ public class EventDispatcher {
 			try {
 				MethodHandle methodHandle = lookup.unreflect(method);
 				if (listener != null) methodHandle = methodHandle.bindTo(listener);
-				return new MethodEventHandler(eventClass, methodHandle, method, listener, isTemporary, executor);
+				IListener<Event> invoker = EventSubscriberInvoker.create(method, listener);
+				return new MethodEventHandler(eventClass, methodHandle, invoker, method, listener, isTemporary, executor);
 			} catch (IllegalAccessException ex) {
 				throw new IllegalStateException("Method " + method + " is not accessible", ex);
 			}
@@ -327,6 +386,91 @@ public class EventDispatcher {
 		});
 	}
 
+	/**
+	 * Registers a listener which receives events in batches.
+	 *
+	 * Events are buffered as they are dispatched, without a task being submitted for each one. A batch is handed to a
+	 * single task on the default thread pool once it holds <code>maxBatchSize</code> events or its first event has
+	 * waited for <code>maxDelay</code>, whichever comes first.
+	 *
+	 * @param eventClass The class of the events to handle. Subclasses are included.
+	 * @param maxBatchSize The maximum number of events in a batch.
+	 * @param maxDelay The maximum time an event waits before its batch is handled.
+	 * @param unit The unit of the maxDelay parameter.
+	 * @param listener The listener.
+	 * @param <T> The event type to handle.
+	 */
+	public <T extends Event> void registerBatchListener(Class<T> eventClass, int maxBatchSize, long maxDelay, TimeUnit unit, IBatchListener<T> listener) {
+		registerBatchListener(defaultEventExecutor, eventClass, maxBatchSize, maxDelay, unit, listener);
+	}
+
+	/**
+	 * Registers a listener which receives events in batches.
+	 *
+	 * Events are buffered as they are dispatched, without a task being submitted for each one. A batch is handed to a
+	 * single task on the passed executor once it holds <code>maxBatchSize</code> events or its first event has waited
+	 * for <code>maxDelay</code>, whichever comes first. Batches are handled in order only if the executor runs its tasks
+	 * in order.
+	 *
+	 * @param executor Executor that will used to handle the batches.
+	 * @param eventClass The class of the events to handle. Subclasses are included.
+	 * @param maxBatchSize The maximum number of events in a batch.
+	 * @param maxDelay The maximum time an event waits before its batch is handled.
+	 * @param unit The unit of the maxDelay parameter.
+	 * @param listener The listener.
+	 * @param <T> The event type to handle.
+	 */
+	public <T extends Event> void registerBatchListener(Executor executor, Class<T> eventClass, int maxBatchSize, long maxDelay, TimeUnit unit, IBatchListener<T> listener) {
+		if (!Event.class.isAssignableFrom(eventClass)) throw new IllegalArgumentException("Type " + eventClass + " is not a subclass of Event.");
+		if (maxBatchSize < 1) throw new IllegalArgumentException("Batches must hold at least one event.");
+		if (maxDelay < 0) throw new IllegalArgumentException("The maximum delay cannot be negative.");
+
+		BatchEventHandler<T> eventHandler = new BatchEventHandler<>(eventClass, listener, maxBatchSize, unit.toNanos(maxDelay), executor, scheduler, batchFlusher);
+		listenersRegistry.updateAndGet(set -> {
+			HashSet<EventHandler> updatedSet = (HashSet<EventHandler>) set.clone();
+			updatedSet.add(eventHandler);
+			Discord4J.LOGGER.trace(LogMarkers.EVENTS, "Registered IBatchListener {}", eventHandler);
+			return updatedSet;
+		});
+	}
+
+	/**
+	 * Gets a Reactive Streams {@link org.reactivestreams.Publisher} of the events of a class. Each subscriber receives
+	 * at most as many events as it has requested. Events it hasn't requested yet are buffered, and once
+	 * <code>bufferSize</code> events are buffered, the overflow policy decides whether new events are dropped or the
+	 * dispatching thread waits for the subscriber to request more.
+	 *
+	 * @param eventClass The class of the events to publish. Subclasses are included.
+	 * @param bufferSize The maximum number of events buffered for each subscriber.
+	 * @param policy What happens to events which are fired while a subscriber's buffer is full.
+	 *               {@link ListenerMailbox.OverflowPolicy#KEEP_LATEST_PER_KEY} is not supported.
+	 * @param <T> The event type to publish.
+	 * @return The publisher.
+	 */
+	public <T extends Event> EventPublisher<T> getPublisher(Class<T> eventClass, int bufferSize, ListenerMailbox.OverflowPolicy policy) {
+		if (!Event.class.isAssignableFrom(eventClass)) throw new IllegalArgumentException("Type " + eventClass + " is not a subclass of Event.");
+		return new EventPublisher<>(this, eventClass, bufferSize, policy);
+	}
+
+	/**
+	 * Registers the listener of a publisher's subscription. It is handled on the thread dispatching the event.
+	 *
+	 * @param eventClass The class of the events to handle. Subclasses are included.
+	 * @param listener The listener.
+	 * @param <T> The event type to handle.
+	 * @return The task which unregisters the listener.
+	 */
+	<T extends Event> Runnable registerPublisherListener(Class<T> eventClass, IListener<T> listener) {
+		ListenerEventHandler<T> eventHandler = new ListenerEventHandler<>(false, eventClass, listener, Runnable::run);
+		listenersRegistry.updateAndGet(set -> {
+			HashSet<EventHandler> updatedSet = (HashSet<EventHandler>) set.clone();
+			updatedSet.add(eventHandler);
+			Discord4J.LOGGER.trace(LogMarkers.EVENTS, "Registered publisher subscription {}", eventHandler);
+			return updatedSet;
+		});
+		return () -> unregisterHandler(eventHandler);
+	}
+
 	/**
 	 * This registers a temporary event listener using {@link EventSubscriber} method annotations.
 	 *
@@ -424,7 +568,7 @@ public class EventDispatcher {
 	 * @throws InterruptedException
 	 */
 	public <T extends Event> T waitFor(Class<T> eventClass) throws InterruptedException {
-		return (T) waitFor((Event event) -> eventClass.isAssignableFrom(event.getClass()));
+		return waitFor(eventClass, Long.MAX_VALUE);
 	}
 
 	/**
@@ -438,7 +582,7 @@ public class EventDispatcher {
 	 * @throws InterruptedException
 	 */
 	public <T extends Event> T waitFor(Class<T> eventClass, long time) throws InterruptedException {
-		return (T) waitFor((Event event) -> eventClass.isAssignableFrom(event.getClass()), time);
+		return waitFor(eventClass, time, TimeUnit.MILLISECONDS);
 	}
 
 	/**
@@ -453,7 +597,7 @@ public class EventDispatcher {
 	 * @throws InterruptedException
 	 */
 	public <T extends Event> T waitFor(Class<T> eventClass, long time, TimeUnit unit) throws InterruptedException {
-		return (T) waitFor((Event event) -> eventClass.isAssignableFrom(event.getClass()), time, unit);
+		return await(addWaiter(eventClass, event -> true), time, unit);
 	}
 
 	/**
@@ -495,20 +639,121 @@ public class EventDispatcher {
 	 * @throws InterruptedException
 	 */
 	public <T extends Event> T waitFor(Predicate<T> filter, long time, TimeUnit unit) throws InterruptedException {
-		SynchronousQueue<T> result = new SynchronousQueue<>();
-		// we need to account for the fact that the predicate will have an implicit cast introduced by the compiler
-		// meanwhile new IListener<T> will erase to Object and there will be no compiler check, hence we manually introduce filterRawType.isInstance
+		return await(addWaiter(getFilterType(filter), filter), time, unit);
+	}
+
+	/**
+	 * Returns a future which is completed with the next dispatched event of the specified class. No thread waits for the
+	 * event, the future is completed by the thread which dispatches it.
+	 *
+	 * @param eventClass The class of the event to wait for.
+	 * @param <T> The event type to wait for.
+	 * @return The future which is completed with the event. Cancelling it stops waiting for the event.
+	 */
+	public <T extends Event> CompletableFuture<T> waitForAsync(Class<T> eventClass) {
+		return addWaiter(eventClass, event -> true);
+	}
+
+	/**
+	 * Returns a future which is completed with the next dispatched event of the specified class. No thread waits for the
+	 * event, the future is completed by the thread which dispatches it.
+	 *
+	 * @param eventClass The class of the event to wait for.
+	 * @param time The timeout. After this amount of time is reached, the future is completed exceptionally with a {@link TimeoutException}.
+	 * @param unit The unit for the time parameter.
+	 * @param <T> The event type to wait for.
+	 * @return The future which is completed with the event. Cancelling it stops waiting for the event.
+	 */
+	public <T extends Event> CompletableFuture<T> waitForAsync(Class<T> eventClass, long time, TimeUnit unit) {
+		return withTimeout(addWaiter(eventClass, event -> true), time, unit);
+	}
+
+	/**
+	 * Returns a future which is completed with the next dispatched event the provided {@link Predicate} returns true for.
+	 * No thread waits for the event, the future is completed by the thread which dispatches it.
+	 *
+	 * @param filter This is called to determine whether the future should be completed with this event.
+	 * @param <T> The event type to wait for.
+	 * @return The future which is completed with the event. Cancelling it stops waiting for the event.
+	 */
+	public <T extends Event> CompletableFuture<T> waitForAsync(Predicate<T> filter) {
+		return addWaiter(getFilterType(filter), filter);
+	}
+
+	/**
+	 * Returns a future which is completed with the next dispatched event the provided {@link Predicate} returns true for.
+	 * No thread waits for the event, the future is completed by the thread which dispatches it.
+	 *
+	 * @param filter This is called to determine whether the future should be completed with this event.
+	 * @param time The timeout. After this amount of time is reached, the future is completed exceptionally with a {@link TimeoutException}.
+	 * @param unit The unit for the time parameter.
+	 * @param <T> The event type to wait for.
+	 * @return The future which is completed with the event. Cancelling it stops waiting for the event.
+	 */
+	public <T extends Event> CompletableFuture<T> waitForAsync(Predicate<T> filter, long time, TimeUnit unit) {
+		return withTimeout(addWaiter(getFilterType(filter), filter), time, unit);
+	}
+
+	/**
+	 * Gets the event class a filter accepts. The predicate will have an implicit cast introduced by the compiler, so
+	 * it must only be tested with instances of this class.
+	 *
+	 * @param filter The filter.
+	 * @return The event class the filter accepts.
+	 */
+	private static Class<?> getFilterType(Predicate<?> filter) {
 		Class<?> filterRawType = TypeResolver.resolveRawArgument(Predicate.class, filter.getClass());
-		registerListener(callingThreadExecutor, new IListener<T>() {
-			@Override
-			public void handle(T event) {
-				if (filterRawType.isInstance(event) && filter.test(event)) {
-					unregisterListener(this);
-					result.offer(event);
-				}
-			}
-		});
-		return result.poll(time, unit);
+		return filterRawType == TypeResolver.Unknown.class ? Event.class : filterRawType;
+	}
+
+	/**
+	 * Adds a waiter which completes its future with the next dispatched event of a class which matches a filter. The
+	 * waiter is removed once the future is completed, whether that's by an event, a timeout or cancellation.
+	 *
+	 * @param eventClass The class of the event to wait for. Subclasses are included.
+	 * @param filter The filter events of the class must match.
+	 * @return The future which is completed with the event.
+	 */
+	private <T extends Event> CompletableFuture<T> addWaiter(Class<?> eventClass, Predicate<? super T> filter) {
+		Waiter<T> waiter = new Waiter<>(filter);
+		Set<Waiter<?>> classWaiters = waiters.computeIfAbsent(eventClass, c -> ConcurrentHashMap.newKeySet());
+		classWaiters.add(waiter);
+		waiter.future.whenComplete((event, t) -> classWaiters.remove(waiter));
+		return waiter.future;
+	}
+
+	/**
+	 * Completes a future exceptionally with a {@link TimeoutException} if it isn't completed in time.
+	 *
+	 * @param future The future.
+	 * @param time The timeout.
+	 * @param unit The unit for the time parameter.
+	 * @return The future.
+	 */
+	private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long time, TimeUnit unit) {
+		ScheduledFuture<?> timeout = scheduler.schedule(() -> future.completeExceptionally(new TimeoutException()), time, unit);
+		future.whenComplete((event, t) -> timeout.cancel(false));
+		return future;
+	}
+
+	/**
+	 * Blocks the current thread until a waiter's future is completed or the timeout elapses. The waiter is removed
+	 * either way.
+	 *
+	 * @param future The future of the waiter.
+	 * @param time The timeout.
+	 * @param unit The unit for the time parameter.
+	 * @return The event the future was completed with, or null if the timeout elapsed.
+	 * @throws InterruptedException If the current thread was interrupted while waiting.
+	 */
+	private static <T> T await(CompletableFuture<T> future, long time, TimeUnit unit) throws InterruptedException {
+		try {
+			return future.get(time, unit);
+		} catch (TimeoutException | ExecutionException e) {
+			return null;
+		} finally {
+			future.cancel(false);
+		}
 	}
 
 	/**
@@ -519,6 +764,8 @@ public class EventDispatcher {
 	public void unregisterListener(Object listener) {
 		if (listener instanceof IListener) {
 			unregisterListener((IListener) listener);
+		} else if (listener instanceof IBatchListener) {
+			unregisterListener((IBatchListener) listener);
 		} else {
 			unregisterListener(listener.getClass(), listener);
 		}
@@ -585,6 +832,29 @@ public class EventDispatcher {
 		}
 	}
 
+	/**
+	 * Unregisters a batch listener. Events which have been buffered for it are handed to it first.
+	 *
+	 * @param listener The listener.
+	 */
+	public void unregisterListener(IBatchListener listener) {
+		List<BatchEventHandler<?>> removed = new ArrayList<>();
+		listenersRegistry.updateAndGet(set -> {
+			removed.clear();
+			HashSet<EventHandler> updatedSet = (HashSet<EventHandler>) set.clone();
+			for (Iterator<EventHandler> iterator = updatedSet.iterator(); iterator.hasNext();) {
+				EventHandler eventHandler = iterator.next();
+				if (eventHandler instanceof BatchEventHandler && ((BatchEventHandler) eventHandler).listener == listener) {
+					iterator.remove();
+					removed.add((BatchEventHandler<?>) eventHandler);
+					Discord4J.LOGGER.trace(LogMarkers.EVENTS, "Unregistered IBatchListener {}", listener);
+				}
+			}
+			return updatedSet;
+		});
+		removed.forEach(BatchEventHandler::flush);
+	}
+
 	private void unregisterHandler(EventHandler eventHandler) {
 		listenersRegistry.updateAndGet(set -> {
 			HashSet<EventHandler> updatedSet = (HashSet<EventHandler>) set.clone();
@@ -602,21 +872,181 @@ public class EventDispatcher {
 	public void dispatch(Event event) {
 		Discord4J.LOGGER.trace(LogMarkers.EVENTS, "Dispatching event of type {}", event.getClass().getSimpleName());
 		event.client = client;
+		if (event.receivedTime == 0) {
+			long payloadTime = payloadReceivedTime.get()[0];
+			event.receivedTime = payloadTime != 0 ? payloadTime : System.nanoTime();
+		}
 
-		listenersRegistry.get().stream().filter(e -> e.accepts(event)).forEach(handler -> {
-			handler.getExecutor().execute(() -> {
+		Thread dispatchingThread = Thread.currentThread();
+		for (EventHandler handler : getHandlers(event.getClass())) {
+			HandlerMetrics metrics = handler.getMetrics();
+			boolean measured = !(handler instanceof BatchEventHandler); // Batches are measured when they are handled
+			Executor executor = handler.getExecutor();
+			Runnable task = () -> {
+				long start = System.nanoTime();
+				if (measured) {
+					metrics.onStart(start - event.receivedTime);
+					if (Thread.currentThread() == dispatchingThread && executor instanceof ThreadPoolExecutor) {
+						metrics.onRejected(); // The executor's queue was full, so its rejection handler ran the task here
+					}
+				}
+				boolean failed = true;
 				try {
 					if (handler.isTemporary()) unregisterHandler(handler);
 					handler.handle(event);
+					failed = false;
 				} catch (IllegalAccessException e) {
 					Discord4J.LOGGER.error(LogMarkers.EVENTS, "Error dispatching event " + event.getClass().getSimpleName(), e);
 				} catch (InvocationTargetException e) {
 					Discord4J.LOGGER.error(LogMarkers.EVENTS, "Unhandled exception caught dispatching event " + event.getClass().getSimpleName(), e.getCause());
 				} catch (Throwable e) {
 					Discord4J.LOGGER.error(LogMarkers.EVENTS, "Unhandled exception caught dispatching event " + event.getClass().getSimpleName(), e);
+				} finally {
+					if (measured) metrics.onFinish(System.nanoTime() - start, failed);
 				}
-			});
-		});
+			};
+
+			try {
+				if (executor instanceof ListenerMailbox) {
+					if (!((ListenerMailbox) executor).offer(handler, event, task)) metrics.onRejected();
+				} else {
+					executor.execute(task);
+				}
+			} catch (RejectedExecutionException e) {
+				metrics.onRejected();
+				Discord4J.LOGGER.warn(LogMarkers.EVENTS, "Executor of {} rejected event {}", handler, event.getClass().getSimpleName());
+			}
+		}
+
+		if (!waiters.isEmpty()) notifyWaiters(event);
+	}
+
+	/**
+	 * Tests an event against the waiters of its class and of its superclasses and interfaces.
+	 *
+	 * @param event The event.
+	 */
+	private void notifyWaiters(Event event) {
+		for (Class<?> type : getWaiterTypes(event.getClass())) {
+			Set<Waiter<?>> classWaiters = waiters.get(type);
+			if (classWaiters == null) continue;
+			for (Waiter<?> waiter : classWaiters) {
+				waiter.offer(event);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether any waiter accepts events of a class (including waiters of its superclasses and interfaces).
+	 *
+	 * @param eventClass The class of the event.
+	 * @return Whether any waiter accepts the event.
+	 */
+	private boolean hasWaiters(Class<?> eventClass) {
+		if (waiters.isEmpty()) return false;
+		for (Class<?> type : getWaiterTypes(eventClass)) {
+			Set<Waiter<?>> classWaiters = waiters.get(type);
+			if (classWaiters != null && !classWaiters.isEmpty()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the classes whose waiters accept events of a class. The result is cached per class.
+	 *
+	 * @param eventClass The class of the event.
+	 * @return The class, its superclasses and every interface they implement.
+	 */
+	private Class<?>[] getWaiterTypes(Class<?> eventClass) {
+		return waiterTypes.computeIfAbsent(eventClass, EventDispatcher::getAssignableTypes);
+	}
+
+	/**
+	 * Gets every class and interface instances of a class can be assigned to.
+	 *
+	 * @param clazz The class.
+	 * @return The class, its superclasses and every interface they implement.
+	 */
+	private static Class<?>[] getAssignableTypes(Class<?> clazz) {
+		Set<Class<?>> types = new HashSet<>();
+		List<Class<?>> toVisit = new ArrayList<>();
+		toVisit.add(clazz);
+		while (!toVisit.isEmpty()) {
+			Class<?> type = toVisit.remove(toVisit.size() - 1);
+			if (type == null || !types.add(type)) continue;
+			toVisit.add(type.getSuperclass());
+			toVisit.addAll(Arrays.asList(type.getInterfaces()));
+		}
+		return types.toArray(new Class<?>[types.size()]);
+	}
+
+	/**
+	 * Checks whether any registered listener or pending {@code waitFor} call accepts events of a class (including those
+	 * of its superclasses and interfaces). This is a single lookup once the class has been checked, so it can be used to
+	 * avoid building events which nothing would receive.
+	 *
+	 * @param eventClass The class of the event.
+	 * @return Whether any registered listener or waiter accepts the event.
+	 */
+	public boolean hasListeners(Class<? extends Event> eventClass) {
+		return getHandlers(eventClass).length > 0 || hasWaiters(eventClass);
+	}
+
+	/**
+	 * Sets the time the gateway payload the current thread is handling was received. Events dispatched by the thread
+	 * until it is cleared are considered to have been received at that time (see {@link Event#getReceivedTime()}).
+	 * This is used by the gateway and shouldn't be called otherwise.
+	 *
+	 * @param receivedTime The time the payload was received, from {@link System#nanoTime()}, or 0 to clear it.
+	 */
+	public void setPayloadReceivedTime(long receivedTime) {
+		payloadReceivedTime.get()[0] = receivedTime;
+	}
+
+	/**
+	 * Gets the metrics of every registered listener. The metrics are live, and keep counting until their listener is
+	 * unregistered.
+	 *
+	 * @return The metrics of every registered listener.
+	 */
+	public List<IListenerMetrics> getListenerMetrics() {
+		List<IListenerMetrics> metrics = new ArrayList<>();
+		for (EventHandler handler : listenersRegistry.get()) {
+			metrics.add(handler.getMetrics());
+		}
+		return metrics;
+	}
+
+	/**
+	 * Calls a subscriber with the metrics of every registered listener periodically until the returned future is
+	 * cancelled. The subscriber is called on the dispatcher's scheduler thread, so it should return quickly.
+	 *
+	 * @param subscriber The subscriber.
+	 * @param period The time between calls.
+	 * @param unit The unit of the period.
+	 * @return The future which stops the subscription when cancelled.
+	 */
+	public Future<?> subscribeListenerMetrics(Consumer<List<IListenerMetrics>> subscriber, long period, TimeUnit unit) {
+		return DiscordUtils.subscribePeriodically(scheduler, this::getListenerMetrics, subscriber, period, unit, LogMarkers.EVENTS);
+	}
+
+	/**
+	 * Gets the handlers which accept events of a class.
+	 *
+	 * <p>The handlers are looked up in the {@link HandlerIndex} of the current registry. Registering or unregistering a
+	 * listener replaces the registry, so the index is rebuilt (lazily, one event class at a time) after any change.
+	 *
+	 * @param eventClass The class of the event.
+	 * @return The handlers which accept the event.
+	 */
+	private EventHandler[] getHandlers(Class<? extends Event> eventClass) {
+		HashSet<EventHandler> registry = listenersRegistry.get();
+		HandlerIndex index = handlerIndex;
+		if (index.registry != registry) {
+			index = new HandlerIndex(registry);
+			handlerIndex = index;
+		}
+		return index.get(eventClass);
 	}
 
 	/**
@@ -632,37 +1062,49 @@ public class EventDispatcher {
 		boolean isTemporary();
 
 		/**
-		 * Checks whether the handler should process the given event.
+		 * Checks whether the handler should process events of the given class.
 		 *
-		 * @param e
+		 * @param eventClass
 		 * @return
 		 */
-		boolean accepts(Event e);
+		boolean accepts(Class<? extends Event> eventClass);
 
 		Executor getExecutor();
 
 		void handle(Event e) throws Throwable;
+
+		/**
+		 * The measurements of the handler.
+		 *
+		 * @return
+		 */
+		HandlerMetrics getMetrics();
 	}
 
 	/**
-	 * Specialized version of EventHandler that invokes the given MethodHandle for each event.
+	 * Specialized version of EventHandler that invokes an {@link EventSubscriber} method for each event, through a
+	 * generated {@link EventSubscriberInvoker} when one is available and the given MethodHandle otherwise.
 	 */
 	private static class MethodEventHandler implements EventHandler {
 
 		private final Class<?> eventClass;
 		private final MethodHandle methodHandle;
+		private final IListener<Event> invoker;
 		private final Method method;
 		private final Object instance;
 		private final boolean temporary;
 		private final Executor executor;
+		private final HandlerMetrics metrics;
 
-		public MethodEventHandler(Class<?> eventClass, MethodHandle methodHandle, Method method, Object instance, boolean temporary, Executor executor) {
+		public MethodEventHandler(Class<?> eventClass, MethodHandle methodHandle, IListener<Event> invoker, Method method, Object instance, boolean temporary, Executor executor) {
 			this.eventClass = eventClass;
 			this.methodHandle = methodHandle;
+			this.invoker = invoker;
 			this.method = method;
 			this.instance = instance;
 			this.temporary = temporary;
 			this.executor = executor;
+			this.metrics = new HandlerMetrics(method.toString(), eventClass);
 		}
 
 		@Override
@@ -671,13 +1113,17 @@ public class EventDispatcher {
 		}
 
 		@Override
-		public boolean accepts(Event e) {
-			return eventClass.isInstance(e);
+		public boolean accepts(Class<? extends Event> eventClass) {
+			return this.eventClass.isAssignableFrom(eventClass);
 		}
 
 		@Override
 		public void handle(Event e) throws Throwable {
-			methodHandle.invoke(e);
+			if (invoker != null) {
+				invoker.handle(e);
+			} else {
+				methodHandle.invoke(e);
+			}
 		}
 
 		@Override
@@ -685,6 +1131,11 @@ public class EventDispatcher {
 			return executor;
 		}
 
+		@Override
+		public HandlerMetrics getMetrics() {
+			return metrics;
+		}
+
 		@Override
 		public String toString() {
 			return method.toString();
@@ -703,12 +1154,14 @@ public class EventDispatcher {
 		private final Class<?> rawType;
 		private final IListener<T> listener;
 		private final Executor executor;
+		private final HandlerMetrics metrics;
 
 		public ListenerEventHandler(boolean isTemporary, Class<?> rawType, IListener<T> listener, Executor executor) {
 			this.isTemporary = isTemporary;
 			this.rawType = rawType;
 			this.listener = listener;
 			this.executor = executor;
+			this.metrics = new HandlerMetrics(listener.getClass().getName(), rawType);
 		}
 
 		@Override
@@ -717,8 +1170,8 @@ public class EventDispatcher {
 		}
 
 		@Override
-		public boolean accepts(Event e) {
-			return rawType.isInstance(e);
+		public boolean accepts(Class<? extends Event> eventClass) {
+			return rawType.isAssignableFrom(eventClass);
 		}
 
 		@Override
@@ -731,12 +1184,300 @@ public class EventDispatcher {
 			return executor;
 		}
 
+		@Override
+		public HandlerMetrics getMetrics() {
+			return metrics;
+		}
+
+		@Override
+		public String toString() {
+			return listener.getClass().getSimpleName();
+		}
+	}
+
+	/**
+	 * EventHandler implementation that buffers events for an IBatchListener.
+	 *
+	 * Its executor is the dispatching thread, so accepting an event only appends it to the current batch. The batch is
+	 * queued when it is full or when its flush timer fires, and queued batches are handed to the listener's executor one
+	 * at a time outside of the handler's lock. The flush timer only passes the flush on to the dispatcher's batch flusher,
+	 * so listener code never runs on the dispatcher's scheduler thread.
+	 *
+	 * @param <T>
+	 */
+	private static class BatchEventHandler<T extends Event> implements EventHandler {
+
+		private static final Executor CALLING_THREAD = Runnable::run;
+
+		private final Class<?> eventClass;
+		private final IBatchListener<T> listener;
+		private final int maxBatchSize;
+		private final long maxDelay;
+		private final Executor executor;
+		private final ScheduledExecutorService scheduler;
+		private final Executor flusher;
+		private final HandlerMetrics metrics;
+		/**
+		 * The events of the current batch. Guarded by this object.
+		 */
+		private List<T> batch;
+		/**
+		 * The task which flushes the current batch once it has waited long enough. Guarded by this object.
+		 */
+		private ScheduledFuture<?> scheduledFlush;
+		/**
+		 * The flushed batches which have not been handled yet, in the order they were flushed. Guarded by this object.
+		 */
+		private final Queue<List<T>> flushed = new ArrayDeque<>();
+		/**
+		 * Whether a task which handles the {@link #flushed} batches has been submitted. Guarded by this object.
+		 */
+		private boolean handling;
+
+		BatchEventHandler(Class<?> eventClass, IBatchListener<T> listener, int maxBatchSize, long maxDelay, Executor executor,
+						  ScheduledExecutorService scheduler, Executor flusher) {
+			this.eventClass = eventClass;
+			this.listener = listener;
+			this.maxBatchSize = maxBatchSize;
+			this.maxDelay = maxDelay;
+			this.executor = executor;
+			this.scheduler = scheduler;
+			this.flusher = flusher;
+			this.metrics = new HandlerMetrics(listener.getClass().getName(), eventClass);
+		}
+
+		@Override
+		public boolean isTemporary() {
+			return false;
+		}
+
+		@Override
+		public boolean accepts(Class<? extends Event> eventClass) {
+			return this.eventClass.isAssignableFrom(eventClass);
+		}
+
+		@Override
+		public void handle(Event e) {
+			boolean full;
+			synchronized (this) {
+				if (batch == null) batch = new ArrayList<>(Math.min(maxBatchSize, 64));
+				batch.add((T) e);
+				full = batch.size() >= maxBatchSize;
+				if (!full && scheduledFlush == null) {
+					scheduledFlush = scheduler.schedule(() -> flusher.execute(this::flush), maxDelay, TimeUnit.NANOSECONDS);
+				}
+			}
+			if (full) flush();
+		}
+
+		/**
+		 * Hands the current batch, if it holds any events, to the listener's executor.
+		 *
+		 * <p>The batch is queued while holding the lock, so batches are handled in the order they were filled even when
+		 * they are flushed by different dispatching threads. The listener is called outside of the lock, one batch at a
+		 * time.
+		 */
+		void flush() {
+			synchronized (this) {
+				if (scheduledFlush != null) {
+					scheduledFlush.cancel(false);
+					scheduledFlush = null;
+				}
+				if (batch != null && !batch.isEmpty()) flushed.add(batch);
+				batch = null;
+				if (handling || flushed.isEmpty()) return;
+				handling = true;
+			}
+
+			try {
+				executor.execute(this::handleFlushed);
+			} catch (RejectedExecutionException e) {
+				int rejected;
+				synchronized (this) {
+					rejected = flushed.size();
+					flushed.clear();
+					handling = false;
+				}
+				for (int i = 0; i < rejected; i++) metrics.onRejected();
+				Discord4J.LOGGER.warn(LogMarkers.EVENTS, "Executor of {} rejected {} batches of events", this, rejected);
+			}
+		}
+
+		/**
+		 * Handles the {@link #flushed} batches in order until none are left.
+		 */
+		private void handleFlushed() {
+			while (true) {
+				List<T> events;
+				synchronized (this) {
+					events = flushed.poll();
+					if (events == null) {
+						handling = false;
+						return;
+					}
+				}
+
+				long start = System.nanoTime();
+				metrics.onStart(start - events.get(0).receivedTime);
+				boolean failed = true;
+				try {
+					listener.handle(events);
+					failed = false;
+				} catch (Throwable ex) {
+					Discord4J.LOGGER.error(LogMarkers.EVENTS, "Unhandled exception caught handling a batch of " + events.size() + " events", ex);
+				} finally {
+					metrics.onFinish(System.nanoTime() - start, failed);
+				}
+			}
+		}
+
+		@Override
+		public Executor getExecutor() {
+			return CALLING_THREAD;
+		}
+
+		@Override
+		public HandlerMetrics getMetrics() {
+			return metrics;
+		}
+
 		@Override
 		public String toString() {
 			return listener.getClass().getSimpleName();
 		}
 	}
 
+	/**
+	 * The measurements of a single handler.
+	 */
+	private static class HandlerMetrics implements IListenerMetrics {
+
+		private final String name;
+		private final Class<?> eventClass;
+		private final LongAdder invocations = new LongAdder();
+		private final LongAdder exceptions = new LongAdder();
+		private final LongAdder rejections = new LongAdder();
+		private final LatencyHistogram executionTime = new LatencyHistogram();
+		private final LatencyHistogram dispatchDelay = new LatencyHistogram();
+
+		HandlerMetrics(String name, Class<?> eventClass) {
+			this.name = name;
+			this.eventClass = eventClass;
+		}
+
+		void onStart(long delay) {
+			invocations.increment();
+			dispatchDelay.record(delay);
+		}
+
+		void onFinish(long duration, boolean failed) {
+			executionTime.record(duration);
+			if (failed) exceptions.increment();
+		}
+
+		void onRejected() {
+			rejections.increment();
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public Class<?> getEventClass() {
+			return eventClass;
+		}
+
+		@Override
+		public long getInvocations() {
+			return invocations.sum();
+		}
+
+		@Override
+		public long getExceptions() {
+			return exceptions.sum();
+		}
+
+		@Override
+		public long getRejections() {
+			return rejections.sum();
+		}
+
+		@Override
+		public LatencyHistogram getExecutionTime() {
+			return executionTime;
+		}
+
+		@Override
+		public LatencyHistogram getDispatchDelay() {
+			return dispatchDelay;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s (%s): invocations=%d, exceptions=%d, rejections=%d, execution=[%s], delay=[%s]",
+					name, eventClass.getSimpleName(), getInvocations(), getExceptions(), getRejections(), executionTime, dispatchDelay);
+		}
+	}
+
+	/**
+	 * The handlers of a snapshot of the registry, indexed by the concrete class of the events they accept. Each event
+	 * class is resolved against the whole snapshot (so superclass and interface handlers are included) the first time
+	 * it is dispatched, and dispatching it afterwards is a single lookup.
+	 */
+	private static class HandlerIndex {
+
+		private static final EventHandler[] NO_HANDLERS = new EventHandler[0];
+
+		private final HashSet<EventHandler> registry;
+		private final ConcurrentHashMap<Class<?>, EventHandler[]> handlers = new ConcurrentHashMap<>();
+
+		HandlerIndex(HashSet<EventHandler> registry) {
+			this.registry = registry;
+		}
+
+		EventHandler[] get(Class<? extends Event> eventClass) {
+			EventHandler[] indexed = handlers.get(eventClass);
+			if (indexed != null) return indexed;
+
+			return handlers.computeIfAbsent(eventClass, c -> {
+				List<EventHandler> accepting = new ArrayList<>();
+				for (EventHandler handler : registry) {
+					if (handler.accepts(eventClass)) accepting.add(handler);
+				}
+				return accepting.isEmpty() ? NO_HANDLERS : accepting.toArray(new EventHandler[accepting.size()]);
+			});
+		}
+	}
+
+	/**
+	 * A pending waitFor call.
+	 */
+	private static class Waiter<T extends Event> {
+
+		private final Predicate<? super T> filter;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Waiter(Predicate<? super T> filter) {
+			this.filter = filter;
+		}
+
+		/**
+		 * Completes the future with an event if it matches the filter.
+		 *
+		 * @param event The event. It must be an instance of the class the waiter waits for.
+		 */
+		void offer(Event event) {
+			if (future.isDone()) return;
+			try {
+				if (filter.test((T) event)) future.complete((T) event);
+			} catch (Throwable e) {
+				Discord4J.LOGGER.error(LogMarkers.EVENTS, "Unhandled exception caught testing event " + event.getClass().getSimpleName(), e);
+			}
+		}
+	}
+
 	public static class CallerRunsPolicy implements RejectedExecutionHandler {
 
 		long lastNotification = 0;
@@ -0,0 +1,266 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.events;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.util.LogMarkers;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Reactive Streams {@link Publisher} of the events of a class fired by an {@link EventDispatcher}.
+ *
+ * <p>Each subscriber receives the events fired after it subscribed, and no more events than it has requested. Events
+ * it hasn't requested yet are buffered, up to the buffer size of the publisher, and when the buffer is full the
+ * publisher's {@link ListenerMailbox.OverflowPolicy} decides what happens to new events. Events are delivered on the
+ * thread which dispatches them, or on the thread which requests them if they were buffered, so subscribers which do
+ * significant work should hand events off to their own threads.
+ *
+ * <pre>{@code
+ * Publisher<MessageReceivedEvent> messages = client.getDispatcher()
+ *         .getPublisher(MessageReceivedEvent.class, 512, ListenerMailbox.OverflowPolicy.DROP_OLDEST);
+ * messages.subscribe(pipeline);
+ * }</pre>
+ *
+ * @param <T> The event type published.
+ * @see EventDispatcher#getPublisher(Class, int, ListenerMailbox.OverflowPolicy)
+ */
+public class EventPublisher<T extends Event> implements Publisher<T> {
+
+	/**
+	 * The dispatcher whose events are published.
+	 */
+	private final EventDispatcher dispatcher;
+	/**
+	 * The class of the events which are published. Subclasses are included.
+	 */
+	private final Class<T> eventClass;
+	/**
+	 * The maximum number of events buffered for each subscriber.
+	 */
+	private final int bufferSize;
+	/**
+	 * What happens to events which are fired while a subscriber's buffer is full.
+	 */
+	private final ListenerMailbox.OverflowPolicy policy;
+
+	EventPublisher(EventDispatcher dispatcher, Class<T> eventClass, int bufferSize, ListenerMailbox.OverflowPolicy policy) {
+		if (bufferSize < 1) throw new IllegalArgumentException("Publishers must buffer at least one event.");
+		if (policy == ListenerMailbox.OverflowPolicy.KEEP_LATEST_PER_KEY)
+			throw new IllegalArgumentException("Publishers don't support " + policy + ".");
+
+		this.dispatcher = dispatcher;
+		this.eventClass = eventClass;
+		this.bufferSize = bufferSize;
+		this.policy = policy;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		if (subscriber == null) throw new NullPointerException("Subscriber cannot be null."); // Rule 1.9
+
+		EventSubscription<T> subscription = new EventSubscription<>(subscriber, bufferSize, policy);
+		subscriber.onSubscribe(subscription);
+		subscription.unregister = dispatcher.registerPublisherListener(eventClass, subscription);
+		if (subscription.isCancelled()) subscription.unregister.run(); // Cancelled before it was registered
+	}
+
+	/**
+	 * Gets the class of the events which are published. Subclasses are included.
+	 *
+	 * @return The class of the events which are published.
+	 */
+	public Class<T> getEventClass() {
+		return eventClass;
+	}
+
+	/**
+	 * Gets the maximum number of events buffered for each subscriber.
+	 *
+	 * @return The maximum number of events buffered for each subscriber.
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Gets what happens to events which are fired while a subscriber's buffer is full.
+	 *
+	 * @return What happens to events which are fired while a subscriber's buffer is full.
+	 */
+	public ListenerMailbox.OverflowPolicy getOverflowPolicy() {
+		return policy;
+	}
+
+	/**
+	 * The subscription of a single subscriber. It is registered with the dispatcher as a listener which buffers events,
+	 * and delivers them whenever there is both a buffered event and outstanding demand.
+	 *
+	 * <p>Only one thread delivers events at a time. A thread which finds another one delivering leaves its event in the
+	 * buffer for that thread to deliver, so signals are never concurrent or recursive (rules 1.3 and 3.3).
+	 */
+	private static class EventSubscription<T extends Event> implements Subscription, IListener<T> {
+
+		private final Subscriber<? super T> subscriber;
+		private final int bufferSize;
+		private final ListenerMailbox.OverflowPolicy policy;
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notFull = lock.newCondition();
+		/**
+		 * The events which haven't been requested yet. Guarded by {@link #lock}.
+		 */
+		private final ArrayDeque<T> buffer = new ArrayDeque<>();
+		/**
+		 * The number of events requested which haven't been delivered yet. {@link Long#MAX_VALUE} if unbounded. Guarded
+		 * by {@link #lock}.
+		 */
+		private long requested;
+		/**
+		 * The thread which is delivering events, or null if none is. Guarded by {@link #lock}.
+		 */
+		private Thread deliveringThread;
+		/**
+		 * The error to signal to the subscriber, if the subscription is being terminated. Guarded by {@link #lock}.
+		 */
+		private Throwable error;
+		private volatile boolean cancelled;
+		/**
+		 * Unregisters the subscription from the dispatcher.
+		 */
+		volatile Runnable unregister;
+
+		EventSubscription(Subscriber<? super T> subscriber, int bufferSize, ListenerMailbox.OverflowPolicy policy) {
+			this.subscriber = subscriber;
+			this.bufferSize = bufferSize;
+			this.policy = policy;
+		}
+
+		boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public void handle(T event) {
+			lock.lock();
+			try {
+				if (buffer.size() >= bufferSize) {
+					if (policy == ListenerMailbox.OverflowPolicy.DROP_NEWEST) return;
+					if (policy == ListenerMailbox.OverflowPolicy.DROP_OLDEST) buffer.poll();
+
+					// Events fired by the subscriber itself can't wait for it, so they're buffered beyond the bound
+					while (policy == ListenerMailbox.OverflowPolicy.BLOCK && !cancelled && buffer.size() >= bufferSize
+							&& deliveringThread != Thread.currentThread()) {
+						notFull.await();
+					}
+				}
+				if (cancelled) return;
+				buffer.add(event);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				Discord4J.LOGGER.warn(LogMarkers.EVENTS, "Interrupted while waiting to publish event {}, it was dropped.", event.getClass().getSimpleName());
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			deliver();
+		}
+
+		@Override
+		public void request(long n) {
+			lock.lock();
+			try {
+				if (cancelled) return;
+				if (n <= 0) {
+					error = new IllegalArgumentException("Rule 3.9: the number of requested events must be positive, but was " + n + ".");
+				} else {
+					requested += n;
+					if (requested < 0) requested = Long.MAX_VALUE; // Overflowed, so demand is unbounded (rule 3.17)
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			deliver();
+		}
+
+		@Override
+		public void cancel() {
+			lock.lock();
+			try {
+				if (cancelled) return;
+				cancelled = true;
+				buffer.clear();
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+
+			Runnable unregister = this.unregister;
+			if (unregister != null) unregister.run();
+		}
+
+		/**
+		 * Delivers buffered events to the subscriber while it has outstanding demand, unless another thread is already
+		 * delivering them.
+		 */
+		private void deliver() {
+			lock.lock();
+			try {
+				if (deliveringThread != null) return;
+				deliveringThread = Thread.currentThread();
+
+				while (!cancelled && error == null && requested > 0 && !buffer.isEmpty()) {
+					T event = buffer.poll();
+					if (requested != Long.MAX_VALUE) requested--;
+					notFull.signal();
+
+					lock.unlock();
+					try {
+						subscriber.onNext(event);
+					} catch (Throwable e) { // The subscriber is considered cancelled (rule 2.13)
+						Discord4J.LOGGER.error(LogMarkers.EVENTS, "Subscriber " + subscriber + " threw an exception handling event " + event.getClass().getSimpleName(), e);
+						cancel();
+					} finally {
+						lock.lock();
+					}
+				}
+
+				Throwable error = this.error;
+				if (error != null && !cancelled) {
+					lock.unlock();
+					try {
+						cancel();
+						subscriber.onError(error);
+					} finally {
+						lock.lock();
+					}
+				}
+				deliveringThread = null;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.events;
+
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.util.LogMarkers;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Generates {@link IListener} implementations which call {@link EventSubscriber} methods directly.
+ *
+ * <p>Calling a method handle which is not a constant goes through a generic invoker the JIT can't inline. The invokers
+ * generated here are ordinary classes (spun by {@link LambdaMetafactory}, the same way lambdas are), so an annotated
+ * method is called as fast as the body of a hand-written {@link IListener}.
+ *
+ * <p>The generated class must be able to see and access the listener. This is always the case on Java 9 and later,
+ * where it is defined in the listener's own class. On Java 8 it is defined alongside this class, so it is only
+ * generated for public listeners which are visible to this class's class loader (listeners of modules loaded at
+ * runtime are not). The {@link EventDispatcher} falls back to the method handle for any listener it can't be generated
+ * for.
+ */
+final class EventSubscriberInvoker {
+
+	/**
+	 * <code>MethodHandles.privateLookupIn</code>, which is only available on Java 9 and later. Null if it isn't available.
+	 */
+	private static final Method PRIVATE_LOOKUP_IN = findPrivateLookupIn();
+
+	private EventSubscriberInvoker() {
+	}
+
+	/**
+	 * Generates a listener which calls an {@link EventSubscriber} method.
+	 *
+	 * @param method The method. It must accept exactly one {@link Event}.
+	 * @param instance The instance the method is called on, or null if the method is static.
+	 * @return The listener, or null if one couldn't be generated.
+	 */
+	@SuppressWarnings("unchecked")
+	static IListener<Event> create(Method method, Object instance) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		Class<?> eventClass = method.getParameterTypes()[0];
+		try {
+			MethodHandles.Lookup lookup = lookupFor(declaringClass, eventClass);
+			if (lookup == null) return null;
+
+			boolean isStatic = Modifier.isStatic(method.getModifiers());
+			MethodType factoryType = isStatic ? MethodType.methodType(IListener.class) : MethodType.methodType(IListener.class, declaringClass);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "handle", factoryType,
+					MethodType.methodType(void.class, Event.class), lookup.unreflect(method),
+					MethodType.methodType(void.class, eventClass));
+
+			MethodHandle factory = site.getTarget();
+			return (IListener<Event>) (isStatic ? factory.invoke() : factory.invoke(instance));
+		} catch (Throwable e) {
+			Discord4J.LOGGER.debug(LogMarkers.EVENTS, "Unable to generate an invoker for {}. A method handle will be used instead.", method, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets a lookup the invoker for a method of a class can be generated with.
+	 *
+	 * @param declaringClass The class which declares the method.
+	 * @param eventClass The class of the event the method accepts.
+	 * @return The lookup, or null if no suitable lookup is available.
+	 * @throws ReflectiveOperationException If the lookup could not be created.
+	 */
+	private static MethodHandles.Lookup lookupFor(Class<?> declaringClass, Class<?> eventClass) throws ReflectiveOperationException {
+		if (PRIVATE_LOOKUP_IN != null) {
+			return (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, declaringClass, MethodHandles.lookup());
+		}
+
+		return isVisible(declaringClass) && isVisible(eventClass) ? MethodHandles.lookup() : null;
+	}
+
+	/**
+	 * Checks whether a class is public and can be loaded by this class's class loader.
+	 *
+	 * @param clazz The class.
+	 * @return Whether the class is visible to classes generated alongside this class.
+	 */
+	private static boolean isVisible(Class<?> clazz) {
+		for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers())) return false;
+		}
+
+		try {
+			return Class.forName(clazz.getName(), false, EventSubscriberInvoker.class.getClassLoader()) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static Method findPrivateLookupIn() {
+		try {
+			return MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
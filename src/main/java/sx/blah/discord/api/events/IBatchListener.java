@@ -0,0 +1,39 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.events;
+
+import java.util.List;
+
+/**
+ * A listener which receives events in batches rather than one at a time. This is meant for high volume events (such as
+ * presence updates and typing events) which don't need to be handled as soon as they are received.
+ *
+ * @param <T> The event type to handle.
+ * @see EventDispatcher#registerBatchListener(Class, int, long, java.util.concurrent.TimeUnit, IBatchListener)
+ */
+@FunctionalInterface
+public interface IBatchListener<T extends Event> {
+
+	/**
+	 * Invoked with the events of type {@link T} the {@link EventDispatcher} this listener is registered with has fired
+	 * since the previous batch, in the order they were fired.
+	 *
+	 * @param events The events. Never empty.
+	 */
+	void handle(List<T> events);
+}
@@ -0,0 +1,81 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.events;
+
+import sx.blah.discord.util.LatencyHistogram;
+
+/**
+ * Measurements of a single registered listener (or a single {@link EventSubscriber} method of a listener). Every value
+ * is counted from when the listener was registered.
+ *
+ * @see EventDispatcher#getListenerMetrics()
+ */
+public interface IListenerMetrics {
+
+	/**
+	 * Gets a description of the listener, such as the signature of its method or the name of its class.
+	 *
+	 * @return A description of the listener.
+	 */
+	String getName();
+
+	/**
+	 * Gets the class of the events the listener handles. Subclasses are included.
+	 *
+	 * @return The class of the events the listener handles.
+	 */
+	Class<?> getEventClass();
+
+	/**
+	 * Gets the number of times the listener was invoked. For batch listeners, each batch is one invocation.
+	 *
+	 * @return The number of invocations.
+	 */
+	long getInvocations();
+
+	/**
+	 * Gets the number of invocations which threw an exception.
+	 *
+	 * @return The number of exceptions.
+	 */
+	long getExceptions();
+
+	/**
+	 * Gets the number of events which the listener's executor rejected. This includes events its
+	 * {@link ListenerMailbox} dropped and events run on the dispatching thread because the executor's queue was full.
+	 *
+	 * @return The number of rejections.
+	 */
+	long getRejections();
+
+	/**
+	 * Gets the time each invocation took, in nanoseconds.
+	 *
+	 * @return The execution times.
+	 */
+	LatencyHistogram getExecutionTime();
+
+	/**
+	 * Gets the time from when events were received (see {@link Event#getReceivedTime()}) to when the listener started
+	 * handling them, in nanoseconds. This is the time events spent being processed by the client and waiting for the
+	 * listener's executor.
+	 *
+	 * @return The delays before invocations.
+	 */
+	LatencyHistogram getDispatchDelay();
+}
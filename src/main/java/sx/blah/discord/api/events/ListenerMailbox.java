@@ -0,0 +1,408 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.events;
+
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.internal.DiscordUtils;
+import sx.blah.discord.util.LogMarkers;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded queue of events with its own thread, which isolates the listeners registered with it from every other
+ * listener.
+ *
+ * <p>Listeners registered with the default thread pool share its queue, and when it fills up the dispatching thread
+ * handles events itself, which holds up the gateway for every shard. A mailbox is passed as the executor of one or
+ * more listeners (with {@link EventDispatcher#registerListener(Executor, Object)} and its overloads) and handles their
+ * events one at a time, in order, on its own thread. When the mailbox is full, its {@link OverflowPolicy} decides what
+ * happens to new events, so a slow listener only affects itself.
+ *
+ * <pre>{@code
+ * ListenerMailbox mailbox = new ListenerMailbox("Statistics", 1024, ListenerMailbox.OverflowPolicy.DROP_OLDEST);
+ * client.getDispatcher().registerListener(mailbox, new StatisticsListener());
+ * }</pre>
+ */
+public class ListenerMailbox implements Executor {
+
+	/**
+	 * The name of the mailbox, which is also the name of its thread.
+	 */
+	private final String name;
+	/**
+	 * The maximum number of events which can be queued.
+	 */
+	private final int capacity;
+	/**
+	 * What happens to events which are received while the mailbox is full.
+	 */
+	private final OverflowPolicy policy;
+	/**
+	 * Gets the key of an event for {@link OverflowPolicy#KEEP_LATEST_PER_KEY}. Null for any other policy.
+	 */
+	private final Function<? super Event, ?> keyExtractor;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	/**
+	 * The queued events. Guarded by {@link #lock}.
+	 */
+	private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+	/**
+	 * The queued events by key, for {@link OverflowPolicy#KEEP_LATEST_PER_KEY}. Guarded by {@link #lock}.
+	 */
+	private final Map<Object, Entry> queuedByKey = new HashMap<>();
+	/**
+	 * The number of events which were dropped or replaced by a later event.
+	 */
+	private final LongAdder dropped = new LongAdder();
+	/**
+	 * The number of events which were handled.
+	 */
+	private final LongAdder handled = new LongAdder();
+	/**
+	 * The thread events are handled on. Null until the first event is received, or after the mailbox is closed.
+	 * Guarded by {@link #lock}.
+	 */
+	private Thread thread;
+	/**
+	 * Whether the mailbox has been closed. Guarded by {@link #lock}.
+	 */
+	private boolean closed;
+
+	/**
+	 * Creates a mailbox.
+	 *
+	 * @param name The name of the mailbox.
+	 * @param capacity The maximum number of events which can be queued.
+	 * @param policy What happens to events which are received while the mailbox is full. Must not be
+	 * {@link OverflowPolicy#KEEP_LATEST_PER_KEY}, which requires a key.
+	 */
+	public ListenerMailbox(String name, int capacity, OverflowPolicy policy) {
+		this(name, capacity, policy, null);
+	}
+
+	/**
+	 * Creates a mailbox.
+	 *
+	 * @param name The name of the mailbox.
+	 * @param capacity The maximum number of events which can be queued.
+	 * @param policy What happens to events which are received while the mailbox is full.
+	 * @param keyExtractor Gets the key of an event for {@link OverflowPolicy#KEEP_LATEST_PER_KEY} (for example, the user
+	 * of a presence update). Events with a null key are never replaced. Ignored by the other policies.
+	 */
+	public ListenerMailbox(String name, int capacity, OverflowPolicy policy, Function<? super Event, ?> keyExtractor) {
+		if (capacity < 1) throw new IllegalArgumentException("A mailbox must be able to hold at least one event.");
+		if (policy == OverflowPolicy.KEEP_LATEST_PER_KEY && keyExtractor == null)
+			throw new IllegalArgumentException("KEEP_LATEST_PER_KEY requires a key extractor.");
+
+		this.name = name;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.keyExtractor = policy == OverflowPolicy.KEEP_LATEST_PER_KEY ? keyExtractor : null;
+	}
+
+	/**
+	 * Queues a task which isn't associated with an event. It is never replaced by a later task.
+	 *
+	 * @param task The task.
+	 * @throws RejectedExecutionException If the task was dropped because the mailbox is full or closed.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		if (!offer(null, null, task)) throw new RejectedExecutionException("Listener mailbox " + name + " dropped the task");
+	}
+
+	/**
+	 * Queues the task which handles an event for a listener.
+	 *
+	 * @param listener The handler of the listener the event is for. The key of the event is only compared to the keys
+	 * of other events for the same listener.
+	 * @param event The event.
+	 * @param task The task which handles the event.
+	 * @return False if the event was dropped (rather than queued or handled) because the mailbox is full or closed.
+	 */
+	boolean offer(Object listener, Event event, Runnable task) {
+		Object key = null;
+		if (keyExtractor != null && event != null) {
+			Object eventKey = keyExtractor.apply(event);
+			if (eventKey != null) key = new Key(listener, eventKey);
+		}
+
+		lock.lock();
+		try {
+			if (closed) {
+				dropped.increment();
+				return false;
+			}
+			startThread();
+
+			if (key != null) {
+				Entry queued = queuedByKey.get(key);
+				if (queued != null) { // The event replaces the queued one, keeping its place in line
+					queued.task = task;
+					dropped.increment();
+					return true;
+				}
+			}
+
+			while (queue.size() >= capacity) {
+				if (Thread.currentThread() == thread) { // Waiting for room would wait for this thread, so run it now
+					lock.unlock();
+					try {
+						task.run();
+					} finally {
+						lock.lock();
+					}
+					return true;
+				}
+
+				switch (policy) {
+					case BLOCK:
+						notFull.awaitUninterruptibly();
+						if (closed) {
+							dropped.increment();
+							return false;
+						}
+						break;
+					case DROP_NEWEST:
+						dropped.increment();
+						return false;
+					case DROP_OLDEST:
+					case KEEP_LATEST_PER_KEY:
+						Entry oldest = queue.poll();
+						if (oldest.key != null) queuedByKey.remove(oldest.key);
+						dropped.increment();
+						break;
+				}
+			}
+
+			Entry entry = new Entry(key, task);
+			queue.add(entry);
+			if (key != null) queuedByKey.put(key, entry);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the mailbox's thread. Queued events are discarded and events received afterwards are dropped.
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			dropped.add(queue.size());
+			queue.clear();
+			queuedByKey.clear();
+			if (thread != null) thread.interrupt();
+			thread = null;
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the name of the mailbox.
+	 *
+	 * @return The name of the mailbox.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the maximum number of events which can be queued.
+	 *
+	 * @return The maximum number of events which can be queued.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the policy applied to events which are received while the mailbox is full.
+	 *
+	 * @return The overflow policy.
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Gets the number of events which are waiting to be handled.
+	 *
+	 * @return The number of queued events.
+	 */
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of events which were dropped (or replaced by a later event with the same key) since the mailbox
+	 * was created.
+	 *
+	 * @return The number of dropped events.
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Gets the number of events which were handled since the mailbox was created.
+	 *
+	 * @return The number of handled events.
+	 */
+	public long getHandledCount() {
+		return handled.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "ListenerMailbox{name=" + name + ", depth=" + getQueueDepth() + "/" + capacity + ", dropped=" + getDroppedCount() + "}";
+	}
+
+	/**
+	 * Starts the mailbox's thread if it isn't running. Must be called with the {@link #lock} held.
+	 */
+	private void startThread() {
+		if (thread != null) return;
+
+		thread = DiscordUtils.createDaemonThreadFactory("Listener Mailbox - " + name).newThread(this::run);
+		thread.start();
+	}
+
+	/**
+	 * Handles queued events until the mailbox is closed.
+	 */
+	private void run() {
+		while (true) {
+			Runnable task;
+			lock.lock();
+			try {
+				while (queue.isEmpty()) {
+					if (closed) return;
+					try {
+						notEmpty.await();
+					} catch (InterruptedException e) {
+						if (closed) return;
+					}
+				}
+				Entry entry = queue.poll();
+				if (entry.key != null) queuedByKey.remove(entry.key);
+				task = entry.task;
+				notFull.signal();
+			} finally {
+				lock.unlock();
+			}
+
+			try {
+				task.run();
+			} catch (Throwable e) {
+				Discord4J.LOGGER.error(LogMarkers.EVENTS, "Unhandled exception caught in listener mailbox " + name, e);
+			}
+			handled.increment();
+		}
+	}
+
+	/**
+	 * What a mailbox does with an event it receives while it is full.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * The dispatching thread waits until there is room for the event. No events are lost, but a slow listener holds
+		 * up the shard which received the event.
+		 */
+		BLOCK,
+
+		/**
+		 * The oldest queued event is dropped to make room for the event.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * The event is dropped.
+		 */
+		DROP_NEWEST,
+
+		/**
+		 * A queued event with the same key (for the same listener) is replaced by the event, which takes its place in
+		 * line. This applies whether or not the mailbox is full, so only the latest state of each key (such as the
+		 * presence of a user) is handled. If the mailbox is full and no event has the same key, the oldest queued event
+		 * is dropped.
+		 */
+		KEEP_LATEST_PER_KEY
+	}
+
+	/**
+	 * A queued event.
+	 */
+	private static class Entry {
+		final Object key;
+		Runnable task;
+
+		Entry(Object key, Runnable task) {
+			this.key = key;
+			this.task = task;
+		}
+	}
+
+	/**
+	 * The key of an event for a listener.
+	 */
+	private static class Key {
+		final Object listener;
+		final Object key;
+
+		Key(Object listener, Object key) {
+			this.listener = listener;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return listener == other.listener && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(listener) + key.hashCode();
+		}
+	}
+}
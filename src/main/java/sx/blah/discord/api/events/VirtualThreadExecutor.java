@@ -0,0 +1,108 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.events;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executes every task on a new virtual thread, with at most a fixed number of tasks running at once.
+ *
+ * <p>Virtual threads are only available on Java 21 and later, so they're created through reflection and
+ * {@link #create(String, int)} returns null on older runtimes. When the maximum number of tasks are running, the
+ * submitting thread waits for one of them to finish, which slows down the producer of events the same way the
+ * {@link EventDispatcher.CallerRunsPolicy} does for the default thread pool. A task submitted by one of the executor's
+ * own threads (a listener dispatching an event) is run on that thread instead, as waiting could deadlock if every
+ * running task did the same.
+ */
+class VirtualThreadExecutor implements Executor {
+
+	/**
+	 * Creates virtual threads.
+	 */
+	private final ThreadFactory threadFactory;
+	/**
+	 * Holds a permit for each task which is running.
+	 */
+	private final Semaphore permits;
+	/**
+	 * Whether the current thread was created by this executor.
+	 */
+	private final ThreadLocal<Boolean> ownThread = new ThreadLocal<>();
+
+	private VirtualThreadExecutor(ThreadFactory threadFactory, int maximumConcurrency) {
+		this.threadFactory = threadFactory;
+		this.permits = new Semaphore(maximumConcurrency);
+	}
+
+	/**
+	 * Creates an executor which runs tasks on virtual threads, if the runtime supports them.
+	 *
+	 * @param name The prefix of the names of the threads.
+	 * @param maximumConcurrency The maximum number of tasks which may run at once.
+	 * @return The executor, or null if the runtime doesn't support virtual threads.
+	 */
+	static VirtualThreadExecutor create(String name, int maximumConcurrency) {
+		if (maximumConcurrency < 1) throw new IllegalArgumentException("At least one task must be allowed to run at once.");
+
+		try {
+			// Thread.ofVirtual().name(name + " - ", 0).factory()
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + " - ", 0L);
+			Method factory = builderClass.getMethod("factory");
+			return new VirtualThreadExecutor((ThreadFactory) factory.invoke(builder), maximumConcurrency);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (ownThread.get() != null) {
+			if (!permits.tryAcquire()) { // The permits may all be held by tasks waiting on this one
+				task.run();
+				return;
+			}
+		} else {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for a virtual thread", e);
+			}
+		}
+
+		try {
+			threadFactory.newThread(() -> {
+				ownThread.set(Boolean.TRUE);
+				try {
+					task.run();
+				} finally {
+					permits.release();
+				}
+			}).start();
+		} catch (Throwable e) { // The task won't run, so it mustn't hold its permit
+			permits.release();
+			throw e;
+		}
+	}
+}
@@ -17,9 +17,16 @@
 
 package sx.blah.discord.api.internal;
 
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
 import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.GatewayEncoding;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.IShard;
+import sx.blah.discord.api.MemberLoadingStrategy;
 import sx.blah.discord.api.events.EventDispatcher;
 import sx.blah.discord.api.internal.json.objects.InviteObject;
 import sx.blah.discord.api.internal.json.objects.UserObject;
@@ -30,7 +37,6 @@ import sx.blah.discord.api.internal.json.requests.voice.VoiceStateUpdateRequest;
 import sx.blah.discord.api.internal.json.responses.ApplicationInfoResponse;
 import sx.blah.discord.api.internal.json.responses.GatewayResponse;
 import sx.blah.discord.handle.impl.events.ReadyEvent;
-import sx.blah.discord.handle.impl.events.shard.ShardReadyEvent;
 import sx.blah.discord.handle.impl.obj.Guild;
 import sx.blah.discord.handle.impl.obj.User;
 import sx.blah.discord.handle.impl.obj.VoiceState;
@@ -39,12 +45,19 @@ import sx.blah.discord.modules.Configuration;
 import sx.blah.discord.modules.ModuleLoader;
 import sx.blah.discord.util.*;
 import sx.blah.discord.util.cache.ICacheDelegateProvider;
+import sx.blah.discord.util.session.ISessionStore;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 /**
@@ -118,9 +131,9 @@ public final class DiscordClientImpl implements IDiscordClient {
 	public final Requests REQUESTS = new Requests(this);
 
 	/**
-	 * Timer to keep the program alive if the client is not daemon
+	 * Task which keeps a thread of the {@link #scheduler} (and so the program) alive if the client is not daemon
 	 */
-	volatile Timer keepAlive;
+	volatile ScheduledFuture<?> keepAlive;
 
 	/**
 	 * The number of times the client will retry on a 5xx HTTP response from Discord.
@@ -142,11 +155,112 @@ public final class DiscordClientImpl implements IDiscordClient {
 	 */
 	private volatile long applicationOwnerID;
 
+	/**
+	 * Whether gateway connections should use <code>zlib-stream</code> transport compression.
+	 */
+	final boolean useTransportCompression;
+
+	/**
+	 * The dispatch types which are discarded without being deserialized.
+	 */
+	final Set<String> ignoredDispatches;
+
+	/**
+	 * Decides whether a dispatch payload for a guild should be handled. Null if every payload should be handled.
+	 */
+	final BiPredicate<String, Long> dispatchFilter;
+
+	/**
+	 * How the members of large guilds are loaded.
+	 */
+	final MemberLoadingStrategy memberLoadingStrategy;
+
+	/**
+	 * The guild of every channel, voice channel, category, role and emoji of the client, by the entity's ID.
+	 */
+	final GuildEntityIndex entityIndex = new GuildEntityIndex();
+
+	/**
+	 * Executes delayed and periodic tasks for the client, such as the heartbeats of every gateway and voice connection.
+	 * Its threads are daemon if the client is, and stop when no tasks are scheduled.
+	 */
+	final ScheduledThreadPoolExecutor scheduler;
+	/**
+	 * The number of threads of the {@link #scheduler}. Its tasks are short, so a few threads serve any number of shards
+	 * and voice connections.
+	 */
+	private static final int SCHEDULER_THREADS = 2;
+	/**
+	 * Calls the subscribers of shard metrics, so slow subscribers can't delay the tasks of the {@link #scheduler}. Its
+	 * thread stops when no subscriptions are scheduled.
+	 */
+	final ScheduledThreadPoolExecutor metricsScheduler;
+
+	/**
+	 * Paces the identifies of every shard.
+	 */
+	final IdentifyScheduler identifyScheduler;
+
+	/**
+	 * The indices of the shards which have become ready since the client logged in.
+	 */
+	private final Set<Integer> readyShards = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The number of selector threads of the shared websocket client.
+	 */
+	private final int webSocketSelectors;
+
+	/**
+	 * The number of worker threads of the shared websocket client, in addition to its selector threads.
+	 */
+	private final int webSocketWorkers;
+
+	/**
+	 * The websocket client every gateway and voice connection is opened with. Null until the first connection is
+	 * opened. Guarded by this object.
+	 */
+	private WebSocketClient webSocketClient;
+
+	/**
+	 * Where the sessions of shards are saved when the client logs out. Null if sessions are not saved.
+	 */
+	final ISessionStore sessionStore;
+
+	/**
+	 * The journal received payloads are recorded to. Null if payloads are not recorded.
+	 */
+	final GatewayJournal journal;
+
+	/**
+	 * The URL of the gateway shards connect to. Null if the gateway should be obtained from Discord.
+	 */
+	private final String gatewayUrl;
+
+	/**
+	 * The encoding of the payloads sent and received on the gateway.
+	 */
+	final GatewayEncoding gatewayEncoding;
+
+	/**
+	 * The lanes dispatch payloads from every shard are handled on.
+	 */
+	final DispatchLanes dispatchLanes = new DispatchLanes(Runtime.getRuntime().availableProcessors());
+
 	public DiscordClientImpl(String token, int shardCount, boolean isDaemon, int maxMissedPings, int maxReconnectAttempts,
 							 int retryCount, int maxCacheCount, ICacheDelegateProvider provider, int[] shard,
 							 RejectedExecutionHandler backpressureHandler, int minimumPoolSize, int maximumPoolSize,
 							 int overflowCapacity, long eventThreadTimeout, TimeUnit eventThreadTimeoutUnit,
-							 PresenceUpdateRequest identifyPresence) {
+							 PresenceUpdateRequest identifyPresence, boolean useTransportCompression,
+							 Set<String> ignoredDispatches, BiPredicate<String, Long> dispatchFilter,
+							 MemberLoadingStrategy memberLoadingStrategy, int webSocketSelectors, int webSocketWorkers,
+							 ISessionStore sessionStore, File journalDirectory, int journalSegmentSize, int journalSegments,
+							 String gatewayUrl, GatewayEncoding gatewayEncoding, int virtualDispatchThreads) {
+		for (String type : ignoredDispatches) {
+			if (DispatchHandler.isEssential(type))
+				throw new IllegalArgumentException(type + " dispatches are required by the client and cannot be ignored");
+		}
+
 		this.token = "Bot " + token;
 		this.retryCount = retryCount;
 		this.maxMissedPings = maxMissedPings;
@@ -156,7 +270,7 @@ public final class DiscordClientImpl implements IDiscordClient {
 		this.cacheProvider = provider;
 		this.shard = shard;
 		this.dispatcher = new EventDispatcher(this, backpressureHandler, minimumPoolSize, maximumPoolSize,
-				overflowCapacity, eventThreadTimeout, eventThreadTimeoutUnit);
+				overflowCapacity, eventThreadTimeout, eventThreadTimeoutUnit, virtualDispatchThreads);
 		this.reconnectManager = new ReconnectManager(this, maxReconnectAttempts);
 		this.loader = new ModuleLoader(this);
 
@@ -166,10 +280,37 @@ public final class DiscordClientImpl implements IDiscordClient {
 		}
 
 		this.identifyPresence = identifyPresence;
+		this.useTransportCompression = useTransportCompression;
+		this.ignoredDispatches = Collections.unmodifiableSet(new HashSet<>(ignoredDispatches));
+		this.dispatchFilter = dispatchFilter;
+		this.memberLoadingStrategy = memberLoadingStrategy;
+		this.webSocketSelectors = webSocketSelectors;
+		this.webSocketWorkers = webSocketWorkers;
+		this.sessionStore = sessionStore;
+		this.journal = journalDirectory == null ? null : new GatewayJournal(journalDirectory, journalSegmentSize, journalSegments);
+		this.gatewayUrl = gatewayUrl;
+		this.gatewayEncoding = gatewayEncoding;
+		this.scheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, runnable -> {
+			Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+			thread.setName("Discord4J Scheduler");
+			thread.setDaemon(isDaemon);
+			return thread;
+		});
+		this.scheduler.setRemoveOnCancelPolicy(true);
+		this.scheduler.setKeepAliveTime(1, TimeUnit.MINUTES);
+		this.scheduler.allowCoreThreadTimeOut(true);
+		this.identifyScheduler = new IdentifyScheduler(scheduler);
+		this.metricsScheduler = new ScheduledThreadPoolExecutor(1, DiscordUtils.createDaemonThreadFactory("Discord4J Metrics Subscriber"));
+		this.metricsScheduler.setRemoveOnCancelPolicy(true);
+		this.metricsScheduler.setKeepAliveTime(1, TimeUnit.MINUTES);
+		this.metricsScheduler.allowCoreThreadTimeOut(true);
 
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 			if (this.keepAlive != null)
-				this.keepAlive.cancel();
+				this.keepAlive.cancel(false);
+			// A process which is stopped without logging out resumes its sessions when it's started again
+			if (this.sessionStore != null)
+				this.shards.forEach(s -> ((ShardImpl) s).saveSession());
 		}));
 	}
 
@@ -178,6 +319,51 @@ public final class DiscordClientImpl implements IDiscordClient {
 		return this.shards;
 	}
 
+	/**
+	 * Replays a journal recorded with {@link sx.blah.discord.api.ClientBuilder#withGatewayJournal(File)} through this
+	 * client and waits for the payloads to be handled. A shard is created for every shard which appears in the journal.
+	 * Used by {@link GatewayReplayer}.
+	 *
+	 * @param directory The journal directory.
+	 * @param originalPace Whether payloads should be replayed at the pace they were received rather than as fast as
+	 * possible.
+	 * @return The number of payloads replayed.
+	 * @throws IOException If the journal could not be read.
+	 * @throws InterruptedException If the current thread was interrupted while waiting.
+	 */
+	public long replayJournal(File directory, boolean originalPace) throws IOException, InterruptedException {
+		if (!shards.isEmpty())
+			throw new IllegalStateException("A journal can only be replayed through a client which is not logged in");
+
+		Map<Integer, ShardImpl> replayShards = new HashMap<>();
+		long startNanos = System.nanoTime();
+		long[] firstTimestamp = {-1};
+		long replayed = GatewayJournal.read(directory.toPath(), (timestamp, info, payload, length) -> {
+			if (originalPace) {
+				if (firstTimestamp[0] < 0) firstTimestamp[0] = timestamp;
+				long delay = (timestamp - firstTimestamp[0]) - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+				if (delay > 0) Thread.sleep(delay);
+			}
+
+			ShardImpl shard = replayShards.computeIfAbsent(info[0], index -> {
+				ShardImpl created = new ShardImpl(this, null, info, null);
+				created.ws = new DiscordWS(created, null, maxMissedPings, null);
+				shards.add(created);
+				return created;
+			});
+			try {
+				shard.ws.replay(payload, 0, length);
+			} catch (IOException e) {
+				Discord4J.LOGGER.warn(LogMarkers.API, "Skipping unreadable payload in gateway journal.", e);
+			}
+		});
+
+		while (!dispatchLanes.awaitIdle(1, TimeUnit.MINUTES)) {
+			Discord4J.LOGGER.debug(LogMarkers.API, "Waiting for replayed payloads to be handled.");
+		}
+		return replayed;
+	}
+
 	@Override
 	public int getShardCount() {
 		return this.shardCount;
@@ -353,6 +539,9 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 	@Override
 	public ICategory getCategoryByID(long categoryID) {
+		ICategory indexed = entityIndex.find(categoryID, guild -> guild.getCategoryByID(categoryID));
+		if (indexed != null) return indexed;
+
 		for(IShard shard : shards) {
 			ICategory category = shard.getCategoryByID(categoryID);
 			if (category != null) {
@@ -373,10 +562,11 @@ public final class DiscordClientImpl implements IDiscordClient {
 	}
 
 	private String obtainGateway() {
-		String gateway = null;
+		String gateway = gatewayUrl;
 		try {
-			GatewayResponse response = REQUESTS.GET.makeRequest(DiscordEndpoints.GATEWAY, GatewayResponse.class);
-			gateway = response.url + "?encoding=json&v=" + DiscordUtils.API_VERSION;
+			if (gateway == null) gateway = REQUESTS.GET.makeRequest(DiscordEndpoints.GATEWAY, GatewayResponse.class).url;
+			gateway += "?encoding=" + gatewayEncoding.getQueryValue() + "&v=" + DiscordUtils.API_VERSION;
+			if (useTransportCompression) gateway += "&compress=zlib-stream";
 		} catch (RateLimitException | DiscordException e) {
 			Discord4J.LOGGER.error(LogMarkers.API, "Discord4J Internal Exception", e);
 		}
@@ -399,41 +589,82 @@ public final class DiscordClientImpl implements IDiscordClient {
 		validateToken();
 
 		String gateway = obtainGateway();
-		new RequestBuilder(this).setAsync(true).doAction(() -> {
-			if (shard != null) {
-				ShardImpl shardObj = new ShardImpl(this, gateway, new int[]{shard[0], shard[1]}, identifyPresence);
-				getShards().add(shardObj);
-				shardObj.login();
-
-				getDispatcher().waitFor(ShardReadyEvent.class);
-			} else {
-				for (int i = 0; i < shardCount; i++) {
-					final int shardNum = i;
-					ShardImpl shard = new ShardImpl(this, gateway, new int[]{shardNum, shardCount}, identifyPresence);
-					getShards().add(shardNum, shard);
-					shard.login();
-
-					getDispatcher().waitFor(ShardReadyEvent.class);
-
-					if (i != shardCount - 1) { // all but last
-						Discord4J.LOGGER.trace(LogMarkers.API, "Sleeping for login ratelimit.");
-						Thread.sleep(5000);
-					}
-				}
+		readyShards.clear();
+		// Every shard connects immediately, only their identifies are paced by the identify scheduler
+		if (shard != null) {
+			ShardImpl shardObj = new ShardImpl(this, gateway, new int[]{shard[0], shard[1]}, identifyPresence);
+			getShards().add(shardObj);
+			shardObj.login();
+		} else {
+			for (int i = 0; i < shardCount; i++) {
+				ShardImpl shard = new ShardImpl(this, gateway, new int[]{i, shardCount}, identifyPresence);
+				getShards().add(i, shard);
+				shard.login();
 			}
-			getDispatcher().dispatch(new ReadyEvent());
-			return true;
-		}).build();
+		}
 
 		if (!isDaemon) {
-			if (keepAlive == null) keepAlive = new Timer("DiscordClientImpl Keep Alive");
-			keepAlive.scheduleAtFixedRate(new TimerTask() {
-				@Override
-				public void run() {
-					Discord4J.LOGGER.trace(LogMarkers.API, "DiscordClientImpl Keep Alive");
-				}
-			}, 0, 10000);
+			if (keepAlive != null) keepAlive.cancel(false);
+			keepAlive = scheduler.scheduleAtFixedRate(() ->
+					Discord4J.LOGGER.trace(LogMarkers.API, "DiscordClientImpl Keep Alive"), 0, 10, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Called when a shard has received all of its guilds. Dispatches the {@link ReadyEvent} once every shard has
+	 * become ready after logging in.
+	 *
+	 * @param shard The shard which became ready.
+	 */
+	synchronized void onShardReady(ShardImpl shard) {
+		if (!readyShards.add(shard.getInfo()[0])) return; // Ready again after a new session
+
+		int ready = readyShards.size();
+		Discord4J.LOGGER.info(LogMarkers.API, "Shard {} is ready ({} of {} shards).", shard.getInfo()[0], ready, getShardCount());
+		if (ready == getShardCount()) {
+			getDispatcher().dispatch(new ReadyEvent());
+		}
+	}
+
+	/**
+	 * Gets the websocket client every gateway and voice connection is opened with. It is started the first time it is
+	 * requested, and all connections share its selectors, thread pool and SSL context.
+	 *
+	 * @return The shared websocket client.
+	 * @throws Exception If the websocket client could not be started.
+	 */
+	synchronized WebSocketClient getWebSocketClient() throws Exception {
+		if (webSocketClient == null) {
+			QueuedThreadPool threadPool = new QueuedThreadPool(webSocketSelectors + webSocketWorkers);
+			threadPool.setName("Discord4J WebSocket");
+			threadPool.setDaemon(true);
+
+			HttpClient httpClient = new HttpClient(new HttpClientTransportOverHTTP(webSocketSelectors), new SslContextFactory());
+			httpClient.setExecutor(threadPool);
+			httpClient.start();
+
+			WebSocketClient wsClient = new WebSocketClient(httpClient);
+			wsClient.getPolicy().setMaxBinaryMessageSize(Integer.MAX_VALUE);
+			wsClient.getPolicy().setMaxTextMessageSize(Integer.MAX_VALUE);
+			wsClient.start();
+			webSocketClient = wsClient;
 		}
+		return webSocketClient;
+	}
+
+	/**
+	 * Stops the shared websocket client, closing any connections which are still open.
+	 */
+	private synchronized void stopWebSocketClient() {
+		if (webSocketClient == null) return;
+
+		try {
+			webSocketClient.stop();
+			webSocketClient.getHttpClient().stop();
+		} catch (Exception e) {
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Error while stopping websocket client: ", e);
+		}
+		webSocketClient = null;
 	}
 
 	@Override
@@ -442,7 +673,9 @@ public final class DiscordClientImpl implements IDiscordClient {
 			shard.logout();
 		}
 		getShards().clear();
-		if (keepAlive != null) keepAlive.cancel();
+		stopWebSocketClient();
+		if (journal != null) journal.close();
+		if (keepAlive != null) keepAlive.cancel(false);
 	}
 
 	@Override
@@ -543,6 +776,9 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 	@Override
 	public IChannel getChannelByID(long channelID) {
+		IChannel indexed = entityIndex.find(channelID, guild -> guild.getChannelByID(channelID));
+		if (indexed != null) return indexed;
+
 		for (IShard shard : shards) {
 			IChannel channel = shard.getChannelByID(channelID);
 			if (channel != null)
@@ -567,6 +803,9 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 	@Override
 	public IVoiceChannel getVoiceChannelByID(long id) {
+		IVoiceChannel indexed = entityIndex.find(id, guild -> guild.getVoiceChannelByID(id));
+		if (indexed != null) return indexed;
+
 		for (IShard shard : shards) {
 			IVoiceChannel voiceChannel = shard.getVoiceChannelByID(id);
 			if (voiceChannel != null)
@@ -624,6 +863,9 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 	@Override
 	public IRole getRoleByID(long roleID) {
+		IRole indexed = entityIndex.find(roleID, guild -> guild.getRoleByID(roleID));
+		if (indexed != null) return indexed;
+
 		for (IShard shard : shards) {
 			IRole role = shard.getRoleByID(roleID);
 			if (role != null)
@@ -633,6 +875,12 @@ public final class DiscordClientImpl implements IDiscordClient {
 		return null;
 	}
 
+	@Override
+	public IEmoji getEmojiByID(long emojiID) {
+		IEmoji indexed = entityIndex.find(emojiID, guild -> guild.getEmojiByID(emojiID));
+		return indexed != null ? indexed : IDiscordClient.super.getEmojiByID(emojiID);
+	}
+
 	@Override
 	public List<IMessage> getMessages(boolean includePrivate) {
 		return getShards().stream()
@@ -26,6 +26,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Marker;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.IShard;
@@ -59,8 +60,13 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -310,7 +316,7 @@ public class DiscordUtils {
 			guild.roles.clear();
 			guild.roles.putAll(newRoles);
 
-			for (IUser user : guild.getUsers()) { //Removes all deprecated roles
+			for (IUser user : guild.users) { //Removes all deprecated roles
 				for (IRole role : user.getRolesForGuild(guild)) {
 					if (guild.getRoleByID(role.getLongID()) == null) {
 						user.getRolesForGuild(guild).remove(role);
@@ -376,6 +382,8 @@ public class DiscordUtils {
 			guild.emojis.put(DiscordUtils.getEmojiFromJSON(guild, obj));
 		}
 
+		((DiscordClientImpl) shard.getClient()).entityIndex.add(guild);
+
 		return guild;
 	}
 
@@ -434,12 +442,8 @@ public class DiscordUtils {
 		} else {
 			long authorId = Long.parseUnsignedLong(json.author.id);
 			IGuild guild = channel.isPrivate() ? null : channel.getGuild();
-			IUser author = guild == null ? getUserFromJSON(channel.getShard(), json.author) : guild
-					.getUsers()
-					.stream()
-					.filter(it -> it.getLongID() == authorId)
-					.findAny()
-					.orElseGet(() -> getUserFromJSON(channel.getShard(), json.author));
+			IUser author = guild == null ? null : guild.getUserByID(authorId);
+			if (author == null) author = getUserFromJSON(channel.getShard(), json.author);
 
 			IMessage.Type type = Arrays.stream(IMessage.Type.values())
 					.filter(t -> t.getValue() == json.type)
@@ -513,12 +517,8 @@ public class DiscordUtils {
 			return webhook;
 		} else {
 			long userId = Long.parseUnsignedLong(json.user.id);
-			IUser author = channel.getGuild()
-					.getUsers()
-					.stream()
-					.filter(it -> it.getLongID() == userId)
-					.findAny()
-					.orElseGet(() -> getUserFromJSON(channel.getShard(), json.user));
+			IUser author = channel.getGuild().getUserByID(userId);
+			if (author == null) author = getUserFromJSON(channel.getShard(), json.user);
 			return new Webhook(channel.getClient(), json.name, Long.parseUnsignedLong(json.id), channel, author, json.avatar, json.token);
 		}
 	}
@@ -921,6 +921,29 @@ public class DiscordUtils {
 		};
 	}
 
+	/**
+	 * Calls a subscriber with a value periodically until the returned future is cancelled. Exceptions thrown by the
+	 * subscriber are logged rather than rethrown, as they would stop the subscription.
+	 *
+	 * @param scheduler The scheduler the subscriber is called on.
+	 * @param value Supplies the value the subscriber is called with.
+	 * @param subscriber The subscriber.
+	 * @param period The time between calls.
+	 * @param unit The unit of the period.
+	 * @param marker The marker exceptions thrown by the subscriber are logged with.
+	 * @param <T> The type of the value.
+	 * @return The future which stops the subscription when cancelled.
+	 */
+	public static <T> Future<?> subscribePeriodically(ScheduledExecutorService scheduler, Supplier<T> value, Consumer<? super T> subscriber, long period, TimeUnit unit, Marker marker) {
+		return scheduler.scheduleAtFixedRate(() -> {
+			try {
+				subscriber.accept(value.get());
+			} catch (Exception e) {
+				Discord4J.LOGGER.error(marker, "Subscriber " + subscriber + " threw an exception.", e);
+			}
+		}, period, period, unit);
+	}
+
 	/**
 	 * Checks equality between two {@link IDiscordObject}s using their IDs.
 	 * If one of the given objects is not a discord object, it will use the {@link Object#equals(Object)} method of that
@@ -19,11 +19,9 @@ package sx.blah.discord.api.internal;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
-import org.eclipse.jetty.websocket.client.WebSocketClient;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IShard;
 import sx.blah.discord.api.internal.json.GatewayPayload;
@@ -43,8 +41,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -53,13 +50,9 @@ import java.util.concurrent.TimeUnit;
 public class DiscordVoiceWS extends WebSocketAdapter implements IIDLinkedObject {
 
 	/**
-	 * The websocket client used to communicate with the gateway.
+	 * The heartbeat task scheduled on the client's scheduler. Null until the connection is ready.
 	 */
-	private WebSocketClient wsClient;
-	/**
-	 * The executor on which heartbeat information is handled.
-	 */
-	private ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(DiscordUtils.createDaemonThreadFactory("Discord Voice WS Heartbeat"));
+	private volatile ScheduledFuture<?> heartbeat;
 	/**
 	 * The socket on which voice data is transmitted and received.
 	 */
@@ -99,11 +92,8 @@ public class DiscordVoiceWS extends WebSocketAdapter implements IIDLinkedObject
 	 */
 	void connect() {
 		try {
-			wsClient = new WebSocketClient(new SslContextFactory());
-			wsClient.getPolicy().setMaxBinaryMessageSize(Integer.MAX_VALUE);
-			wsClient.getPolicy().setMaxTextMessageSize(Integer.MAX_VALUE);
-			wsClient.start();
-			wsClient.connect(this, new URI("wss://" + endpoint), new ClientUpgradeRequest());
+			((DiscordClientImpl) shard.getClient()).getWebSocketClient()
+					.connect(this, new URI("wss://" + endpoint), new ClientUpgradeRequest());
 		} catch (Exception e) {
 			Discord4J.LOGGER.error(LogMarkers.VOICE_WEBSOCKET, "Encountered error while connecting voice websocket: ", e);
 		}
@@ -162,12 +152,14 @@ public class DiscordVoiceWS extends WebSocketAdapter implements IIDLinkedObject
 	}
 
 	/**
-	 * Schedules heartbeats on the {@link #heartbeat} executor.
+	 * Schedules heartbeats on the client's scheduler.
 	 *
 	 * @param interval The interval at which heartbeats should be sent.
 	 */
 	private void beginHeartbeat(int interval) {
-		heartbeat.scheduleAtFixedRate(() -> send(VoiceOps.HEARTBEAT, System.currentTimeMillis()), 0, interval, TimeUnit.MILLISECONDS);
+		if (heartbeat != null) heartbeat.cancel(false);
+		heartbeat = ((DiscordClientImpl) shard.getClient()).scheduler.scheduleAtFixedRate(
+				() -> send(VoiceOps.HEARTBEAT, System.currentTimeMillis()), 0, interval, TimeUnit.MILLISECONDS);
 	}
 
 	/**
@@ -180,10 +172,9 @@ public class DiscordVoiceWS extends WebSocketAdapter implements IIDLinkedObject
 		try {
 			shard.getClient().getDispatcher().dispatch(new VoiceDisconnectedEvent(getGuild(), reason));
 			shard.voiceWebSockets.remove(guild.getLongID());
-			heartbeat.shutdownNow();
+			if (heartbeat != null) heartbeat.cancel(false);
 			voiceSocket.shutdown();
 			if (getSession() != null) getSession().close(1000, null); // Discord doesn't care about the reason
-			wsClient.stop();
 		} catch (Exception e) {
 			if (!(e instanceof InterruptedException)) {
 				Discord4J.LOGGER.error(LogMarkers.VOICE_WEBSOCKET, "Error while shutting down voice websocket: ", e);
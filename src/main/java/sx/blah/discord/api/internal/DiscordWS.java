@@ -17,34 +17,39 @@
 
 package sx.blah.discord.api.internal;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.apache.commons.io.input.CountingInputStream;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.UpgradeException;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
-import org.eclipse.jetty.websocket.client.WebSocketClient;
 import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.GatewayEncoding;
 import sx.blah.discord.api.IShard;
 import sx.blah.discord.api.internal.json.GatewayPayload;
 import sx.blah.discord.api.internal.json.requests.IdentifyRequest;
 import sx.blah.discord.api.internal.json.requests.PresenceUpdateRequest;
 import sx.blah.discord.api.internal.json.requests.ResumeRequest;
+import sx.blah.discord.api.internal.json.responses.HelloResponse;
 import sx.blah.discord.api.internal.json.responses.ReadyResponse;
 import sx.blah.discord.handle.impl.events.shard.DisconnectedEvent;
 import sx.blah.discord.util.LogMarkers;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.UnresolvedAddressException;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 /**
@@ -56,16 +61,23 @@ public class DiscordWS extends WebSocketAdapter {
 	 * The version of the Discord Gateway that is used by Discord4J.
 	 */
 	public static final String GATEWAY_VERSION = "6";
-
 	/**
-	 * The current state of the connection.
+	 * The close code used when the session should remain resumable.
 	 */
-	State state;
+	private static final int KEEP_SESSION_CLOSE_CODE = 4000;
+	/**
+	 * The initial size of the buffer payloads are inflated into.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 32 * 1024;
 	/**
-	 * The websocket client used to communicate with the gateway.
+	 * The largest the buffer payloads are inflated into may be kept between payloads.
 	 */
-	private WebSocketClient wsClient;
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
 
+	/**
+	 * The current state of the connection.
+	 */
+	State state;
 	/**
 	 * The client associated with the gateway connection.
 	 */
@@ -88,6 +100,12 @@ public class DiscordWS extends WebSocketAdapter {
 	 */
 	String sessionId;
 
+	/**
+	 * Whether the session being resumed was restored from a {@link sx.blah.discord.util.session.ISessionStore} rather
+	 * than interrupted during this process. Cleared once the session is resumed or invalidated.
+	 */
+	volatile boolean resumingFromSnapshot;
+
 	/**
 	 * The handler for OP 0 event dispatches from Discord.
 	 */
@@ -102,6 +120,26 @@ public class DiscordWS extends WebSocketAdapter {
 	 */
 	private final PresenceUpdateRequest identifyPresence;
 
+	/**
+	 * The inflater for <code>zlib-stream</code> transport compression. Null if transport compression is disabled.
+	 */
+	private final ZlibStreamInflater zlibStream;
+
+	/**
+	 * The inflater for payload compression, reset for every payload. Only used by the websocket's reading thread.
+	 */
+	private final Inflater payloadInflater = new Inflater();
+	/**
+	 * Holds a payload inflated with {@link #payloadInflater} when the whole payload is needed. Reused between payloads
+	 * unless it grew larger than {@link #MAX_RETAINED_BUFFER_SIZE}.
+	 */
+	private byte[] inflated = new byte[INITIAL_BUFFER_SIZE];
+
+	/**
+	 * The queue payloads are sent through so they don't exceed Discord's send limit.
+	 */
+	private final GatewaySendQueue sendQueue;
+
 	/**
 	 * Indicates whether the bot has received all available guilds.
 	 */
@@ -119,70 +157,241 @@ public class DiscordWS extends WebSocketAdapter {
 		this.dispatchHandler = new DispatchHandler(this, this.shard);
 		this.heartbeatHandler = new HeartbeatHandler(this, maxMissedPings);
 		this.identifyPresence = identifyPresence;
+		this.zlibStream = client.useTransportCompression ? new ZlibStreamInflater() : null;
+		this.sendQueue = new GatewaySendQueue(this, client.scheduler);
 		this.state = State.CONNECTING;
 	}
 
 	@Override
 	public void onWebSocketText(String message) {
+		long receivedTime = System.nanoTime();
 		try {
+			if (client.journal != null) { // Journaled as the bytes received
+				byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+				onPayload(payload, 0, payload.length, receivedTime);
+				return;
+			}
+
 			if (Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
 				Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Received: " + message);
 			}
+			try (JsonParser parser = DiscordUtils.MAPPER.getFactory().createParser(message)) {
+				decode(parser, () -> utf8Length(message), receivedTime, false);
+			}
+		} catch (IOException e) {
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "JSON Parsing exception!", e);
+		}
+	}
 
-			JsonNode json = DiscordUtils.MAPPER.readTree(message);
-			GatewayOps op = GatewayOps.get(json.get("op").asInt());
-			JsonNode d = json.has("d") && !json.get("d").isNull() ? json.get("d") : null;
-
-			if (json.has("s") && !json.get("s").isNull()) seq = json.get("s").longValue();
-
-			switch (op) {
-				case HELLO:
-					Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET, "Shard {} _trace: {}", shard.getInfo()[0], d.get("_trace").toString());
-
-					heartbeatHandler.begin(d.get("heartbeat_interval").intValue());
-					if (this.state != State.RESUMING) {
-						send(GatewayOps.IDENTIFY, new IdentifyRequest(client.getToken(), shard.getInfo(), identifyPresence));
-					} else {
-						client.reconnectManager.onReconnectSuccess();
-						send(GatewayOps.RESUME, new ResumeRequest(client.getToken(), sessionId, seq));
-					}
-					break;
-				case RECONNECT:
-					this.state = State.RESUMING;
-					client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.RECONNECT_OP, shard));
-					heartbeatHandler.shutdown();
-					send(GatewayOps.RESUME, new ResumeRequest(client.getToken(), sessionId, seq));
-					break;
-				case DISPATCH:
-					try {
-						dispatchHandler.handle(json);
-					} catch (Exception e) {
-						Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Discord4J Internal Exception", e);
+	@Override
+	public void onWebSocketBinary(byte[] payload, int offset, int len) {
+		long receivedTime = System.nanoTime();
+		try {
+			if (zlibStream != null) {
+				if (!zlibStream.inflate(payload, offset, len)) return; // The rest of the message is in a later frame
+				onPayload(zlibStream.getBuffer(), 0, zlibStream.getLength(), receivedTime);
+			} else if (EtfCodec.isEtf(payload, offset, len)) { // An uncompressed ETF payload
+				onPayload(payload, offset, len, receivedTime);
+			} else { // Payload compression, each message is its own zlib stream
+				if (Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
+					Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Received compressed payload of {} bytes", len);
+				}
+
+				payloadInflater.reset();
+				InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(payload, offset, len), payloadInflater);
+				if (client.journal != null || client.gatewayEncoding == GatewayEncoding.ETF
+						|| Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
+					// The journal, the ETF decoder and the trace log need the whole payload
+					int inflatedLength = inflatePayload(in);
+					onPayload(inflated, 0, inflatedLength, receivedTime);
+				} else {
+					CountingInputStream counted = new CountingInputStream(in);
+					try (JsonParser parser = DiscordUtils.MAPPER.getFactory().createParser(counted)) {
+						decode(parser, counted::getCount, receivedTime, false);
 					}
-					break;
-				case INVALID_SESSION:
-					this.state = State.RECONNECTING;
-					client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.INVALID_SESSION_OP, shard));
-					invalidate();
-					send(GatewayOps.IDENTIFY, new IdentifyRequest(client.getToken(), shard.getInfo(), null)); // TODO: try to maintain previous presence?
-					break;
-				case HEARTBEAT:
-					send(GatewayOps.HEARTBEAT, seq);
-				case HEARTBEAT_ACK:
-					heartbeatHandler.ack();
-					break;
-				case UNKNOWN:
-					Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Received unknown opcode, {}", message);
-					break;
+				}
 			}
+		} catch (DataFormatException e) {
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Shard {} received corrupt compressed data!", shard.getInfo()[0], e);
 		} catch (IOException e) {
 			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "JSON Parsing exception!", e);
 		}
 	}
 
+	/**
+	 * Handles a decompressed payload received from the gateway.
+	 *
+	 * @param payload The array containing the UTF-8 encoded or ETF payload.
+	 * @param offset The offset of the payload in the array.
+	 * @param len The length of the payload.
+	 * @param receivedTime The time the frame completing the payload was received, from {@link System#nanoTime()}.
+	 * @throws IOException If the payload could not be parsed.
+	 */
+	private void onPayload(byte[] payload, int offset, int len, long receivedTime) throws IOException {
+		if (Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
+			if (EtfCodec.isEtf(payload, offset, len)) {
+				Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Received ETF payload of {} bytes", len);
+			} else {
+				Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Received: " + new String(payload, offset, len, StandardCharsets.UTF_8));
+			}
+		}
+		if (client.journal != null) client.journal.record(shard.getInfo(), payload, offset, len);
+
+		try (JsonParser parser = createParser(payload, offset, len)) {
+			decode(parser, () -> len, receivedTime, false);
+		}
+	}
+
+	/**
+	 * Inflates a compressed payload into {@link #inflated}, growing it if needed.
+	 *
+	 * @param in The stream inflating the payload.
+	 * @return The length of the inflated payload.
+	 * @throws IOException If the payload could not be inflated.
+	 */
+	private int inflatePayload(InflaterInputStream in) throws IOException {
+		if (inflated.length > MAX_RETAINED_BUFFER_SIZE) inflated = new byte[INITIAL_BUFFER_SIZE];
+		int length = 0;
+		int read;
+		while ((read = in.read(inflated, length, inflated.length - length)) != -1) {
+			length += read;
+			if (length == inflated.length) inflated = Arrays.copyOf(inflated, inflated.length * 2);
+		}
+		return length;
+	}
+
+	/**
+	 * Gets the number of bytes a string takes when encoded as UTF-8, without encoding it.
+	 *
+	 * @param string The string.
+	 * @return The UTF-8 encoded length of the string.
+	 */
+	static int utf8Length(String string) {
+		int length = string.length();
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c >= 0x800) {
+				length += 2;
+				if (Character.isHighSurrogate(c)) i++; // A surrogate pair is 4 bytes
+			} else if (c >= 0x80) {
+				length++;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Creates a parser for a payload. The encoding is determined from the payload itself rather than the client's
+	 * {@link GatewayEncoding}, so journals recorded in either encoding can be replayed by any client.
+	 *
+	 * @param payload The array containing the UTF-8 encoded or ETF payload.
+	 * @param offset The offset of the payload in the array.
+	 * @param len The length of the payload.
+	 * @return The parser.
+	 * @throws IOException If the payload could not be parsed.
+	 */
+	private static JsonParser createParser(byte[] payload, int offset, int len) throws IOException {
+		if (EtfCodec.isEtf(payload, offset, len)) return EtfCodec.createParser(payload, offset, len);
+		return DiscordUtils.MAPPER.getFactory().createParser(payload, offset, len);
+	}
+
+	/**
+	 * Handles a payload replayed from a {@link GatewayJournal}. Only dispatch payloads are handled, as the others
+	 * concern the connection, which doesn't exist during a replay.
+	 *
+	 * @param payload The array containing the UTF-8 encoded or ETF payload.
+	 * @param offset The offset of the payload in the array.
+	 * @param len The length of the payload.
+	 * @throws IOException If the payload could not be parsed.
+	 */
+	void replay(byte[] payload, int offset, int len) throws IOException {
+		long receivedTime = System.nanoTime();
+		try (JsonParser parser = createParser(payload, offset, len)) {
+			decode(parser, () -> len, receivedTime, true);
+		}
+	}
+
+	/**
+	 * Decodes a payload received from the gateway, records it in the shard's metrics and handles it.
+	 *
+	 * @param parser The parser positioned before the payload.
+	 * @param size Gets the size of the decompressed payload in bytes. Called once the payload has been decoded, so the
+	 *             bytes read by a streaming parser can be counted.
+	 * @param receivedTime The time the payload was received, from {@link System#nanoTime()}.
+	 * @param dispatchOnly Whether payloads other than dispatches should be ignored, as they are when replaying.
+	 * @throws IOException If the payload could not be parsed.
+	 */
+	private void decode(JsonParser parser, IntSupplier size, long receivedTime, boolean dispatchOnly) throws IOException {
+		long start = System.nanoTime();
+		GatewayPayload payload = GatewayPayloadDecoder.decode(parser, client.ignoredDispatches);
+		long decodeNanos = System.nanoTime() - start;
+		shard.metrics.onPayloadReceived(payload.t, size.getAsInt(), decodeNanos);
+		if (dispatchOnly && (payload.op == null || payload.op != GatewayOps.DISPATCH.ordinal())) return;
+		onPayload(payload, receivedTime);
+	}
+
+	/**
+	 * Handles a decoded payload received from the gateway.
+	 *
+	 * @param payload The payload.
+	 * @param receivedTime The time the payload was received, from {@link System#nanoTime()}.
+	 * @see GatewayPayloadDecoder
+	 */
+	private void onPayload(GatewayPayload payload, long receivedTime) {
+		GatewayOps op = payload.op == null ? GatewayOps.UNKNOWN : GatewayOps.get(payload.op);
+
+		if (payload.s != null) seq = payload.s;
+
+		switch (op) {
+			case HELLO:
+				HelloResponse hello = (HelloResponse) payload.d;
+				Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET, "Shard {} _trace: {}", shard.getInfo()[0], Arrays.toString(hello._trace));
+
+				heartbeatHandler.begin(hello.heartbeat_interval);
+				client.reconnectManager.onReconnectSuccess(this);
+				if (this.state != State.RESUMING) {
+					identify(identifyPresence);
+				} else {
+					send(GatewayOps.RESUME, new ResumeRequest(client.getToken(), sessionId, seq));
+				}
+				break;
+			case RECONNECT:
+				this.state = State.RESUMING;
+				client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.RECONNECT_OP, shard));
+				heartbeatHandler.shutdown();
+				send(GatewayOps.RESUME, new ResumeRequest(client.getToken(), sessionId, seq));
+				break;
+			case DISPATCH:
+				if (client.ignoredDispatches.contains(payload.t)) break;
+				try {
+					dispatchHandler.handle(payload.t, payload.d, receivedTime);
+				} catch (Exception e) {
+					Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Discord4J Internal Exception", e);
+				}
+				break;
+			case INVALID_SESSION:
+				this.state = State.RECONNECTING;
+				client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.INVALID_SESSION_OP, shard));
+				invalidate();
+				resumingFromSnapshot = false;
+				identify(null); // TODO: try to maintain previous presence?
+				break;
+			case HEARTBEAT:
+				send(GatewayOps.HEARTBEAT, seq);
+			case HEARTBEAT_ACK:
+				heartbeatHandler.ack();
+				break;
+			case UNKNOWN:
+				Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Received unknown opcode, {}", payload.op);
+				break;
+		}
+	}
+
 	@Override
 	public void onWebSocketConnect(Session sess) {
 		Discord4J.LOGGER.info(LogMarkers.WEBSOCKET, "Websocket Connected.");
+		if (zlibStream != null) zlibStream.reset(); // Each connection has its own zlib context
+		sendQueue.reset(); // And its own send limit
 		super.onWebSocketConnect(sess);
 	}
 
@@ -219,60 +428,47 @@ public class DiscordWS extends WebSocketAdapter {
 			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Encountered websocket error: ", cause);
 		}
 
-		if (this.state == State.RESUMING) {
-			client.reconnectManager.onReconnectError();
-		}
-	}
-
-	@Override
-	public void onWebSocketBinary(byte[] payload, int offset, int len) {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(payload, offset, len))));
-		onWebSocketText(reader.lines().collect(Collectors.joining()));
-		try {
-			reader.close();
-		} catch (IOException e) {
-			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Encountered websocket error: ", e);
-		}
+		client.reconnectManager.onReconnectError(this); // Ignored unless the shard is reconnecting
 	}
 
 	/**
-	 * Opens the initial websocket connection with the gateway.
+	 * Opens the initial websocket connection with the gateway using the client's shared websocket client.
 	 * If a connection was already open (in the case of reconnecting), it will be asynchronously closed.
 	 */
 	void connect() {
-		WebSocketClient previous = wsClient; // for cleanup
+		Session previous = getSession();
+		if (previous != null && previous.isOpen()) {
+			// Closed the same way as a stopped client so the close doesn't schedule another reconnect
+			previous.close(StatusCode.SHUTDOWN, "Shutdown");
+		}
+
 		try {
-			wsClient = new WebSocketClient(new SslContextFactory());
-			wsClient.getPolicy().setMaxBinaryMessageSize(Integer.MAX_VALUE);
-			wsClient.getPolicy().setMaxTextMessageSize(Integer.MAX_VALUE);
-			wsClient.start();
-			wsClient.connect(this, new URI(gateway), new ClientUpgradeRequest());
+			client.getWebSocketClient().connect(this, new URI(gateway), new ClientUpgradeRequest());
 		} catch (Exception e) {
 			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Encountered error while connecting websocket: ", e);
-		} finally {
-			if (previous != null) {
-				CompletableFuture.runAsync(() -> {
-					try {
-						previous.stop();
-					} catch (Exception e) {
-						Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Error while stopping previous websocket: ", e);
-					}
-				});
-			}
 		}
 	}
 
 	/**
-	 * Closes the websocket connection and resets state.
+	 * Closes the websocket connection and resets state. Discord invalidates the session.
 	 */
 	void shutdown() {
+		shutdown(false);
+	}
+
+	/**
+	 * Closes the websocket connection and resets state.
+	 *
+	 * @param keepSession Whether the session should remain resumable after the connection is closed.
+	 */
+	void shutdown(boolean keepSession) {
 		Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Shard {} shutting down.", shard.getInfo()[0]);
 		this.state = State.DISCONNECTING;
 
 		try {
 			heartbeatHandler.shutdown();
-			getSession().close(1000, null); // Discord doesn't care about the reason
-			wsClient.stop();
+			// Discord invalidates the session when a connection is closed normally, but not with any other code
+			getSession().close(keepSession ? KEEP_SESSION_CLOSE_CODE : 1000, null); // Discord doesn't care about the reason
 			hasReceivedReady = false;
 			isReady = false;
 		} catch (Exception e) {
@@ -280,6 +476,22 @@ public class DiscordWS extends WebSocketAdapter {
 		}
 	}
 
+	/**
+	 * Sends an identify once the {@link IdentifyScheduler} allows it. The identify is dropped if the connection is
+	 * replaced or closed before then, as the new connection identifies on its own.
+	 *
+	 * @param presence The presence to identify with. May be null.
+	 */
+	private void identify(PresenceUpdateRequest presence) {
+		Session session = getSession();
+		client.identifyScheduler.schedule(shard, () -> {
+			if (session != getSession() || !session.isOpen()) return;
+
+			Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Shard {} identifying.", shard.getInfo()[0]);
+			send(GatewayOps.IDENTIFY, new IdentifyRequest(client.getToken(), shard.getInfo(), presence, zlibStream == null));
+		});
+	}
+
 	/**
 	 * Invalidates all information of this connection and associated shard.
 	 */
@@ -288,6 +500,7 @@ public class DiscordWS extends WebSocketAdapter {
 		this.hasReceivedReady = false;
 		this.seq = 0;
 		this.sessionId = null;
+		this.shard.guildCache.forEach((guildID, guild) -> client.entityIndex.remove(guild));
 		this.shard.guildCache.clear();
 		this.shard.privateChannels.clear();
 	}
@@ -308,29 +521,61 @@ public class DiscordWS extends WebSocketAdapter {
 	 * @param payload The message to serialize and send.
 	 */
 	public void send(GatewayPayload payload) {
-		try {
-			send(DiscordUtils.MAPPER.writeValueAsString(payload));
-		} catch (JsonProcessingException e) {
-			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "JSON Parsing exception!", e);
-		}
+		GatewayOps op = payload.op == null ? null : GatewayOps.get(payload.op);
+		sendQueue.send(op, payload);
 	}
 
 	/**
-	 * Sends a message on the websocket.
+	 * Sends a message on the websocket. It is sent after any queued heartbeats, identifies, voice state updates and
+	 * member requests.
 	 *
 	 * @param message The message to send.
 	 */
 	public void send(String message) {
-		String filteredMessage = message.replace(client.getToken(), "hunter2");
+		sendQueue.send(null, message);
+	}
 
-		if (getSession() != null && getSession().isOpen()) {
-			Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Sending: " + filteredMessage);
-			getSession().getRemote().sendStringByFuture(message);
-		} else {
-			Discord4J.LOGGER.warn(LogMarkers.WEBSOCKET, "Attempt to send message on closed session: {}", filteredMessage);
+	/**
+	 * Writes a message to the websocket immediately. Used by {@link GatewaySendQueue} once the send limit allows it.
+	 *
+	 * <p>Payloads are queued as objects and serialized when they are written, either as JSON or, if the client uses
+	 * {@link GatewayEncoding#ETF}, straight from their JSON tree. Messages queued as JSON text by {@link #send(String)}
+	 * are parsed to be converted to ETF.
+	 *
+	 * @param message The {@link GatewayPayload} or JSON text to write.
+	 */
+	void write(Object message) {
+		try {
+			if (getSession() == null || !getSession().isOpen()) {
+				Discord4J.LOGGER.warn(LogMarkers.WEBSOCKET, "Attempt to send message on closed session: {}", filterToken(toJson(message)));
+			} else if (client.gatewayEncoding == GatewayEncoding.ETF) {
+				JsonNode tree = message instanceof String
+						? DiscordUtils.MAPPER.readTree((String) message)
+						: DiscordUtils.MAPPER.valueToTree(message);
+				if (Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
+					Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Sending: " + filterToken(tree.toString()));
+				}
+				getSession().getRemote().sendBytesByFuture(ByteBuffer.wrap(EtfCodec.encode(tree)));
+			} else {
+				String json = toJson(message);
+				if (Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
+					Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Sending: " + filterToken(json));
+				}
+				getSession().getRemote().sendStringByFuture(json);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Unable to serialize message", e);
 		}
 	}
 
+	private static String toJson(Object message) throws JsonProcessingException {
+		return message instanceof String ? (String) message : DiscordUtils.MAPPER.writeValueAsString(message);
+	}
+
+	private String filterToken(String message) {
+		return message.replace(client.getToken(), "hunter2");
+	}
+
 	/**
 	 * Represents the state of the websocket connection.
 	 */
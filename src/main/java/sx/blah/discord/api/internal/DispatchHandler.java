@@ -17,12 +17,10 @@
 
 package sx.blah.discord.api.internal;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.internal.json.event.*;
 import sx.blah.discord.api.internal.json.objects.*;
-import sx.blah.discord.api.internal.json.requests.GuildMembersRequest;
 import sx.blah.discord.api.internal.json.responses.ReadyResponse;
 import sx.blah.discord.api.internal.json.responses.voice.VoiceUpdateResponse;
 import sx.blah.discord.handle.impl.events.guild.*;
@@ -58,13 +56,10 @@ import sx.blah.discord.util.RequestBuilder;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
-import static sx.blah.discord.api.internal.DiscordUtils.MAPPER;
-
 /**
  * Handles {@link GatewayOps#DISPATCH} payloads on the Gateway.
  */
@@ -82,15 +77,57 @@ class DispatchHandler {
 	 */
 	private DiscordClientImpl client;
 	/**
-	 * The thread on which every payload is handled.
+	 * Lock used to synchronize initialization. Until the client is ready, each payload of this shard is handled while
+	 * holding it. The dispatch lanes are shared by every shard, so a lane waiting for the lock also delays the payloads of
+	 * other shards queued behind it on the same lane, but only until this shard finishes handling a single payload, as
+	 * the lock is never held while waiting for other payloads.
 	 */
-	private final ExecutorService dispatchExecutor = new ThreadPoolExecutor(2, Runtime.getRuntime().availableProcessors() * 4, 60L,
-			TimeUnit.SECONDS, new SynchronousQueue<>(false),
-			DiscordUtils.createDaemonThreadFactory("Dispatch Handler"), new ThreadPoolExecutor.CallerRunsPolicy());
+	private final Lock startupLock = new ReentrantLock(true);
+
 	/**
-	 * Lock used to synchronize initialization
+	 * The classes the data of each handled dispatch type is bound to. The data of types which are not
+	 * present is not needed and is skipped while decoding.
 	 */
-	private final Lock startupLock = new ReentrantLock(true);
+	private static final Map<String, Class<?>> PAYLOAD_TYPES = new HashMap<>();
+
+	static {
+		PAYLOAD_TYPES.put("READY", ReadyResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_CREATE", MessageObject.class);
+		PAYLOAD_TYPES.put("TYPING_START", TypingEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_CREATE", GuildObject.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBER_ADD", GuildMemberAddEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBER_REMOVE", GuildMemberRemoveEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBER_UPDATE", GuildMemberUpdateEventResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_UPDATE", MessageObject.class);
+		PAYLOAD_TYPES.put("MESSAGE_DELETE", MessageDeleteEventResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_DELETE_BULK", MessageDeleteBulkEventResponse.class);
+		PAYLOAD_TYPES.put("PRESENCE_UPDATE", PresenceUpdateEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_DELETE", GuildObject.class);
+		PAYLOAD_TYPES.put("CHANNEL_CREATE", ChannelObject.class);
+		PAYLOAD_TYPES.put("CHANNEL_DELETE", ChannelObject.class);
+		PAYLOAD_TYPES.put("USER_UPDATE", UserUpdateEventResponse.class);
+		PAYLOAD_TYPES.put("CHANNEL_UPDATE", ChannelObject.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBERS_CHUNK", GuildMemberChunkEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_UPDATE", GuildObject.class);
+		PAYLOAD_TYPES.put("GUILD_ROLE_CREATE", GuildRoleEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_ROLE_UPDATE", GuildRoleEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_ROLE_DELETE", GuildRoleDeleteEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_BAN_ADD", GuildBanEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_BAN_REMOVE", GuildBanEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_EMOJIS_UPDATE", GuildEmojiUpdateResponse.class);
+		PAYLOAD_TYPES.put("VOICE_STATE_UPDATE", VoiceStateObject.class);
+		PAYLOAD_TYPES.put("VOICE_SERVER_UPDATE", VoiceUpdateResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_REACTION_ADD", ReactionEventResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_REACTION_REMOVE", ReactionEventResponse.class);
+		PAYLOAD_TYPES.put("WEBHOOKS_UPDATE", WebhookObject.class);
+	}
+
+	/**
+	 * The dispatch types which are needed to build and maintain the client's state.
+	 */
+	private static final Set<String> ESSENTIAL_DISPATCHES = new HashSet<>(Arrays.asList(
+			"READY", "RESUMED", "GUILD_CREATE", "GUILD_DELETE", "GUILD_MEMBERS_CHUNK", "VOICE_SERVER_UPDATE"
+	));
 
 	DispatchHandler(DiscordWS ws, ShardImpl shard) {
 		this.ws = ws;
@@ -99,118 +136,158 @@ class DispatchHandler {
 	}
 
 	/**
-	 * Deserializes the given payload and passes it to the appropriate method depending on the event name.
+	 * Checks whether the given dispatch type is needed to build and maintain the client's state. Essential dispatch
+	 * types may not be ignored.
 	 *
-	 * @param event The json payload.
+	 * @param type The event name.
+	 * @return Whether the dispatch type is essential.
 	 */
-	public void handle(final JsonNode event) {
-		dispatchExecutor.submit(() -> {
+	static boolean isEssential(String type) {
+		return ESSENTIAL_DISPATCHES.contains(type);
+	}
+
+	/**
+	 * Gets the class the data of a dispatch payload of the given type should be bound to.
+	 *
+	 * @param type The event name.
+	 * @return The class the data should be bound to, or null if the data is not needed.
+	 */
+	static Class<?> getPayloadType(String type) {
+		return PAYLOAD_TYPES.get(type);
+	}
+
+	/**
+	 * Passes the data of a dispatch payload to the appropriate method depending on the event name.
+	 *
+	 * @param type The event name.
+	 * @param data The data of the payload, bound to the class returned by {@link #getPayloadType(String)}.
+	 */
+	public void handle(final String type, final Object data) {
+		handle(type, data, System.nanoTime());
+	}
+
+	/**
+	 * Passes the data of a dispatch payload to the appropriate method depending on the event name.
+	 *
+	 * @param type The event name.
+	 * @param data The data of the payload, bound to the class returned by {@link #getPayloadType(String)}.
+	 * @param receivedTime The time the payload was received, from {@link System#nanoTime()}. Events dispatched while
+	 * the payload is handled are considered to have been received at this time.
+	 */
+	void handle(final String type, final Object data, final long receivedTime) {
+		Long guildID = getGuildID(data);
+		if (guildID != null && client.dispatchFilter != null && !isEssential(type)
+				&& !client.dispatchFilter.test(type, guildID)) {
+			return;
+		}
+
+		Runnable task = () -> {
 			boolean locked = false;
 			if (!client.isReady()) {
 				startupLock.lock();
 				locked = true;
 			}
+			long start = System.nanoTime();
+			client.getDispatcher().setPayloadReceivedTime(receivedTime);
 			try {
-				String type = event.get("t").asText();
-				JsonNode json = event.get("d");
 				switch (type) {
 					case "RESUMED":
 						resumed();
 						break;
 					case "READY":
-						ready(MAPPER.treeToValue(json, ReadyResponse.class));
+						ready((ReadyResponse) data);
 						break;
 					case "MESSAGE_CREATE":
-						messageCreate(MAPPER.treeToValue(json, MessageObject.class));
+						messageCreate((MessageObject) data);
 						break;
 					case "TYPING_START":
-						typingStart(MAPPER.treeToValue(json, TypingEventResponse.class));
+						typingStart((TypingEventResponse) data);
 						break;
 					case "GUILD_CREATE":
-						guildCreate(MAPPER.treeToValue(json, GuildObject.class));
+						guildCreate((GuildObject) data);
 						break;
 					case "GUILD_MEMBER_ADD":
-						guildMemberAdd(MAPPER.treeToValue(json, GuildMemberAddEventResponse.class));
+						guildMemberAdd((GuildMemberAddEventResponse) data);
 						break;
 					case "GUILD_MEMBER_REMOVE":
-						guildMemberRemove(MAPPER.treeToValue(json, GuildMemberRemoveEventResponse.class));
+						guildMemberRemove((GuildMemberRemoveEventResponse) data);
 						break;
 					case "GUILD_MEMBER_UPDATE":
-						guildMemberUpdate(MAPPER.treeToValue(json, GuildMemberUpdateEventResponse.class));
+						guildMemberUpdate((GuildMemberUpdateEventResponse) data);
 						break;
 					case "MESSAGE_UPDATE":
-						messageUpdate(MAPPER.treeToValue(json, MessageObject.class));
+						messageUpdate((MessageObject) data);
 						break;
 					case "MESSAGE_DELETE":
-						messageDelete(MAPPER.treeToValue(json, MessageDeleteEventResponse.class));
+						messageDelete((MessageDeleteEventResponse) data);
 						break;
 					case "MESSAGE_DELETE_BULK":
-						messageDeleteBulk(MAPPER.treeToValue(json, MessageDeleteBulkEventResponse.class));
+						messageDeleteBulk((MessageDeleteBulkEventResponse) data);
 						break;
 					case "PRESENCE_UPDATE":
-						presenceUpdate(MAPPER.treeToValue(json, PresenceUpdateEventResponse.class));
+						presenceUpdate((PresenceUpdateEventResponse) data);
 						break;
 					case "GUILD_DELETE":
-						guildDelete(MAPPER.treeToValue(json, GuildObject.class));
+						guildDelete((GuildObject) data);
 						break;
 					case "CHANNEL_CREATE":
-						channelCreate(MAPPER.treeToValue(json, ChannelObject.class));
+						channelCreate((ChannelObject) data);
 						break;
 					case "CHANNEL_DELETE":
-						channelDelete(MAPPER.treeToValue(json, ChannelObject.class));
+						channelDelete((ChannelObject) data);
 						break;
 					case "CHANNEL_PINS_UPDATE": /* Implemented in MESSAGE_UPDATE. Ignored */
 						break;
 					case "CHANNEL_PINS_ACK": /* Ignored */
 						break;
 					case "USER_UPDATE":
-						userUpdate(MAPPER.treeToValue(json, UserUpdateEventResponse.class));
+						userUpdate((UserUpdateEventResponse) data);
 						break;
 					case "CHANNEL_UPDATE":
-						channelUpdate(MAPPER.treeToValue(json, ChannelObject.class));
+						channelUpdate((ChannelObject) data);
 						break;
 					case "GUILD_MEMBERS_CHUNK":
-						guildMembersChunk(MAPPER.treeToValue(json, GuildMemberChunkEventResponse.class));
+						guildMembersChunk((GuildMemberChunkEventResponse) data);
 						break;
 					case "GUILD_UPDATE":
-						guildUpdate(MAPPER.treeToValue(json, GuildObject.class));
+						guildUpdate((GuildObject) data);
 						break;
 					case "GUILD_ROLE_CREATE":
-						guildRoleCreate(MAPPER.treeToValue(json, GuildRoleEventResponse.class));
+						guildRoleCreate((GuildRoleEventResponse) data);
 						break;
 					case "GUILD_ROLE_UPDATE":
-						guildRoleUpdate(MAPPER.treeToValue(json, GuildRoleEventResponse.class));
+						guildRoleUpdate((GuildRoleEventResponse) data);
 						break;
 					case "GUILD_ROLE_DELETE":
-						guildRoleDelete(MAPPER.treeToValue(json, GuildRoleDeleteEventResponse.class));
+						guildRoleDelete((GuildRoleDeleteEventResponse) data);
 						break;
 					case "GUILD_BAN_ADD":
-						guildBanAdd(MAPPER.treeToValue(json, GuildBanEventResponse.class));
+						guildBanAdd((GuildBanEventResponse) data);
 						break;
 					case "GUILD_BAN_REMOVE":
-						guildBanRemove(MAPPER.treeToValue(json, GuildBanEventResponse.class));
+						guildBanRemove((GuildBanEventResponse) data);
 						break;
 					case "GUILD_EMOJIS_UPDATE":
-						guildEmojisUpdate(MAPPER.treeToValue(json, GuildEmojiUpdateResponse.class));
+						guildEmojisUpdate((GuildEmojiUpdateResponse) data);
 						break;
 					case "GUILD_INTEGRATIONS_UPDATE": /* TODO: Impl Guild integrations */
 						break;
 					case "VOICE_STATE_UPDATE":
-						voiceStateUpdate(MAPPER.treeToValue(json, VoiceStateObject.class));
+						voiceStateUpdate((VoiceStateObject) data);
 						break;
 					case "VOICE_SERVER_UPDATE":
-						voiceServerUpdate(MAPPER.treeToValue(json, VoiceUpdateResponse.class));
+						voiceServerUpdate((VoiceUpdateResponse) data);
 						break;
 					case "MESSAGE_REACTION_ADD":
-						reactionAdd(MAPPER.treeToValue(json, ReactionEventResponse.class));
+						reactionAdd((ReactionEventResponse) data);
 						break;
 					case "MESSAGE_REACTION_REMOVE":
-						reactionRemove(MAPPER.treeToValue(json, ReactionEventResponse.class));
+						reactionRemove((ReactionEventResponse) data);
 						break;
 					case "MESSAGE_REACTION_REMOVE_ALL": /* REMOVE_ALL is 204 empty but REACTION_REMOVE is sent anyway */
 						break;
 					case "WEBHOOKS_UPDATE":
-						webhookUpdate(MAPPER.treeToValue(json, WebhookObject.class));
+						webhookUpdate((WebhookObject) data);
 						break;
 					case "PRESENCES_REPLACE": /* Ignored. Not meant for bot accounts. */
 						break;
@@ -221,10 +298,128 @@ class DispatchHandler {
 			} catch (Exception e) {
 				Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Unable to process JSON!", e);
 			} finally {
+				client.getDispatcher().setPayloadReceivedTime(0);
+				shard.metrics.onDispatchHandled(type, System.nanoTime() - start);
 				if (locked)
 					startupLock.unlock();
 			}
-		});
+		};
+
+		if (isBarrier(type)) {
+			task.run();
+		} else {
+			client.dispatchLanes.submit(getLaneKey(guildID, data), task);
+		}
+	}
+
+	/**
+	 * Checks whether a dispatch type starts or restores a session. These are handled on the thread which received them
+	 * instead of a dispatch lane, so the shard's payloads received after them (such as the GUILD_CREATEs following a
+	 * READY, which are handled on the lanes of their guilds) are only handled once the session's state has been set up.
+	 *
+	 * @param type The event name.
+	 * @return Whether the dispatch type must be handled before any later payload of the shard.
+	 */
+	private static boolean isBarrier(String type) {
+		return "READY".equals(type) || "RESUMED".equals(type);
+	}
+
+	/**
+	 * Gets the key which determines the lane a dispatch payload is handled on. Payloads which modify the same guild (or
+	 * private channel) have the same key so they're applied to the cache in the order they were received. Payloads of a
+	 * guild channel which don't include the guild's ID (only sent by older gateway versions) are keyed by the channel,
+	 * so they're only ordered with the other payloads of that channel. READY and RESUMED never reach a lane, see
+	 * {@link #isBarrier(String)}.
+	 *
+	 * @param guildID The ID of the guild the payload belongs to, or null if it doesn't belong to a guild.
+	 * @param data The data of the payload.
+	 * @return The key of the payload.
+	 */
+	private long getLaneKey(Long guildID, Object data) {
+		if (guildID != null) return guildID;
+
+		String channelID = getChannelID(data);
+		if (channelID != null) return Long.parseUnsignedLong(channelID);
+
+		// Payloads which are not tied to a guild (USER_UPDATE, PRESENCES_REPLACE...) are kept in order for each shard
+		return shard.getInfo()[0];
+	}
+
+	/**
+	 * Gets the ID of the guild a dispatch payload belongs to.
+	 *
+	 * @param data The data of the payload.
+	 * @return The ID of the guild, or null if the payload doesn't belong to a guild.
+	 */
+	private Long getGuildID(Object data) {
+		String guildID = null;
+		if (data instanceof GuildObject) {
+			guildID = ((GuildObject) data).id;
+		} else if (data instanceof ChannelObject) {
+			guildID = ((ChannelObject) data).guild_id;
+		} else if (data instanceof MessageObject) {
+			guildID = ((MessageObject) data).guild_id;
+		} else if (data instanceof MessageDeleteEventResponse) {
+			guildID = ((MessageDeleteEventResponse) data).guild_id;
+		} else if (data instanceof MessageDeleteBulkEventResponse) {
+			guildID = ((MessageDeleteBulkEventResponse) data).guild_id;
+		} else if (data instanceof TypingEventResponse) {
+			guildID = ((TypingEventResponse) data).guild_id;
+		} else if (data instanceof ReactionEventResponse) {
+			guildID = ((ReactionEventResponse) data).guild_id;
+		} else if (data instanceof WebhookObject) {
+			guildID = ((WebhookObject) data).guild_id;
+		} else if (data instanceof VoiceStateObject) {
+			guildID = ((VoiceStateObject) data).guild_id;
+		} else if (data instanceof VoiceUpdateResponse) {
+			guildID = ((VoiceUpdateResponse) data).guild_id;
+		} else if (data instanceof GuildMemberAddEventResponse) {
+			guildID = ((GuildMemberAddEventResponse) data).guild_id;
+		} else if (data instanceof GuildMemberRemoveEventResponse) {
+			guildID = ((GuildMemberRemoveEventResponse) data).guild_id;
+		} else if (data instanceof GuildMemberUpdateEventResponse) {
+			guildID = ((GuildMemberUpdateEventResponse) data).guild_id;
+		} else if (data instanceof GuildMemberChunkEventResponse) {
+			guildID = ((GuildMemberChunkEventResponse) data).guild_id;
+		} else if (data instanceof PresenceUpdateEventResponse) {
+			guildID = ((PresenceUpdateEventResponse) data).guild_id;
+		} else if (data instanceof GuildRoleEventResponse) {
+			guildID = ((GuildRoleEventResponse) data).guild_id;
+		} else if (data instanceof GuildRoleDeleteEventResponse) {
+			guildID = ((GuildRoleDeleteEventResponse) data).guild_id;
+		} else if (data instanceof GuildBanEventResponse) {
+			guildID = ((GuildBanEventResponse) data).guild_id;
+		} else if (data instanceof GuildEmojiUpdateResponse) {
+			guildID = ((GuildEmojiUpdateResponse) data).guild_id;
+		}
+
+		// Payloads without a guild ID aren't looked up in the cache, as this runs on the websocket's read thread
+		return guildID == null ? null : Long.parseUnsignedLong(guildID);
+	}
+
+	/**
+	 * Gets the ID of the channel a dispatch payload belongs to.
+	 *
+	 * @param data The data of the payload.
+	 * @return The ID of the channel, or null if the payload doesn't belong to a channel.
+	 */
+	private static String getChannelID(Object data) {
+		if (data instanceof ChannelObject) {
+			return ((ChannelObject) data).id;
+		} else if (data instanceof MessageObject) {
+			return ((MessageObject) data).channel_id;
+		} else if (data instanceof MessageDeleteEventResponse) {
+			return ((MessageDeleteEventResponse) data).channel_id;
+		} else if (data instanceof MessageDeleteBulkEventResponse) {
+			return ((MessageDeleteBulkEventResponse) data).channel_id;
+		} else if (data instanceof TypingEventResponse) {
+			return ((TypingEventResponse) data).channel_id;
+		} else if (data instanceof ReactionEventResponse) {
+			return ((ReactionEventResponse) data).channel_id;
+		} else if (data instanceof WebhookObject) {
+			return ((WebhookObject) data).channel_id;
+		}
+		return null;
 	}
 
 	private void ready(ReadyResponse ready) {
@@ -235,39 +430,50 @@ class DispatchHandler {
 		if (client.ourUser == null) client.ourUser = DiscordUtils.getUserFromJSON(shard, ready.user);
 		client.getDispatcher().dispatch(new LoginEvent(shard));
 
-		new RequestBuilder(client).setAsync(true).doAction(() -> {
-			ws.sessionId = ready.session_id;
+		ws.sessionId = ready.session_id;
 
-			Set<UnavailableGuildObject> waitingGuilds = ConcurrentHashMap.newKeySet(ready.guilds.length);
-			waitingGuilds.addAll(Arrays.asList(ready.guilds));
+		Set<UnavailableGuildObject> waitingGuilds = ConcurrentHashMap.newKeySet(ready.guilds.length);
+		waitingGuilds.addAll(Arrays.asList(ready.guilds));
 
-			final AtomicInteger loadedGuilds = new AtomicInteger(0);
-			client.getDispatcher().waitFor((GuildCreateEvent e) -> {
-				waitingGuilds.removeIf(g -> g.id.equals(e.getGuild().getStringID()));
-				return loadedGuilds.incrementAndGet() >= ready.guilds.length;
-			}, (long) Math.ceil(Math.sqrt(2 * ready.guilds.length)), TimeUnit.SECONDS);
+		// Nothing waits for the guilds, the shard becomes ready once the last one is created or the timeout elapses
+		client.getDispatcher().waitForAsync((GuildCreateEvent e) -> {
+			if (e.getGuild().getShard() != shard) return false; // Other shards may be loading their guilds at the same time
+			waitingGuilds.removeIf(g -> g.id.equals(e.getGuild().getStringID()));
+			return waitingGuilds.isEmpty();
+		}, (long) Math.ceil(Math.sqrt(2 * ready.guilds.length)), TimeUnit.SECONDS).whenCompleteAsync((e, t) -> {
+			try {
+				waitingGuilds.forEach(guild -> client.getDispatcher().dispatch(new GuildUnavailableEvent(Long.parseUnsignedLong(guild.id))));
 
-			waitingGuilds.forEach(guild -> client.getDispatcher().dispatch(new GuildUnavailableEvent(Long.parseUnsignedLong(guild.id))));
-			return true;
-		}).andThen(() -> {
-			if (this.shard.getInfo()[0] == 0) { // pms are only sent to shard 0
-				for (ChannelObject pmObj : ready.private_channels) {
-					IPrivateChannel pm = (IPrivateChannel) DiscordUtils.getChannelFromJSON(shard, null, pmObj);
-					shard.privateChannels.put(pm);
+				if (this.shard.getInfo()[0] == 0) { // pms are only sent to shard 0
+					for (ChannelObject pmObj : ready.private_channels) {
+						IPrivateChannel pm = (IPrivateChannel) DiscordUtils.getChannelFromJSON(shard, null, pmObj);
+						shard.privateChannels.put(pm);
+					}
 				}
-			}
 
-			ws.isReady = true;
-			client.getDispatcher().dispatch(new ShardReadyEvent(shard)); // All information for this shard has been received
-			return true;
-		}).execute();
+				ws.isReady = true;
+				client.getDispatcher().dispatch(new ShardReadyEvent(shard)); // All information for this shard has been received
+				client.onShardReady(shard);
+			} catch (Exception ex) {
+				Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Unable to finish readying shard " + shard.getInfo()[0], ex);
+			}
+		}, client.scheduler);
 	}
 
 	private void resumed() {
 		Discord4J.LOGGER.info(LogMarkers.WEBSOCKET, "Session resumed on shard " + shard.getInfo()[0]);
 		ws.hasReceivedReady = true; // Technically a lie but irrelevant in the case of a resume.
 		ws.isReady = true;          //
+		shard.metrics.onResumed();
 		client.getDispatcher().dispatch(new ResumedEvent(shard));
+
+		if (ws.resumingFromSnapshot) { // The shard never received a READY in this process, so it becomes ready here
+			ws.resumingFromSnapshot = false;
+			ws.state = DiscordWS.State.READY;
+			client.getDispatcher().dispatch(new LoginEvent(shard));
+			client.getDispatcher().dispatch(new ShardReadyEvent(shard));
+			client.onShardReady(shard);
+		}
 	}
 
 	private void messageCreate(MessageObject json) {
@@ -347,19 +553,27 @@ class DispatchHandler {
 		Guild guild = (Guild) DiscordUtils.getGuildFromJSON(shard, json);
 		shard.guildCache.put(guild);
 
-		new RequestBuilder(client).setAsync(true).doAction(() -> {
-			try {
-				if (json.large) {
-					shard.ws.send(GatewayOps.REQUEST_GUILD_MEMBERS, new GuildMembersRequest(json.id));
-					client.getDispatcher().waitFor((AllUsersReceivedEvent e) ->
-							e.getGuild().getLongID() == guild.getLongID()
-					);
-				}
-			} catch (InterruptedException e) {
-				Discord4J.LOGGER.error(LogMarkers.EVENTS, "Wait for AllUsersReceivedEvent on guild create was interrupted.", e);
+		if (json.large) {
+			switch (client.memberLoadingStrategy) {
+				case EAGER_BATCHED: // The guild is announced once all of its members have been received
+					shard.memberLoader.load(guild, () -> announceGuild(guild));
+					return;
+				case LAZY:
+					guild.setMemberLoader(() -> shard.memberLoader.load(guild, () -> {}));
+					break;
 			}
-			return true;
-		}).andThen(() -> {
+		}
+
+		announceGuild(guild);
+	}
+
+	/**
+	 * Loads the webhooks of a newly created guild and dispatches its {@link GuildCreateEvent}.
+	 *
+	 * @param guild The guild.
+	 */
+	private void announceGuild(Guild guild) {
+		new RequestBuilder(client).setAsync(true).doAction(() -> {
 			guild.loadWebhooks();
 			client.dispatcher.dispatch(new GuildCreateEvent(guild));
 			Discord4J.LOGGER.debug(LogMarkers.EVENTS, "New guild has been created/joined! \"{}\" with ID {} on shard {}.", guild.getName(), guild.getStringID(), shard.getInfo()[0]);
@@ -502,15 +716,16 @@ class DispatchHandler {
 			User user = (User) guild.getUserByID(Long.parseUnsignedLong(event.user.id));
 			if (user != null) {
 				if (event.user.username != null) { //Full object was sent so there is a user change, otherwise all user fields but id would be null
-					IUser oldUser = user.copy();
+					IUser oldUser = client.dispatcher.hasListeners(UserUpdateEvent.class) ? user.copy() : null;
 					user = DiscordUtils.getUserFromJSON(shard, event.user);
-					client.dispatcher.dispatch(new UserUpdateEvent(oldUser, user));
+					if (oldUser != null) client.dispatcher.dispatch(new UserUpdateEvent(oldUser, user));
 				}
 
 				if (!user.getPresence().equals(presence)) {
 					IPresence oldPresence = user.getPresence();
 					user.setPresence(presence);
-					client.dispatcher.dispatch(new PresenceUpdateEvent(user, oldPresence, presence));
+					if (client.dispatcher.hasListeners(PresenceUpdateEvent.class))
+						client.dispatcher.dispatch(new PresenceUpdateEvent(user, oldPresence, presence));
 					Discord4J.LOGGER.debug(LogMarkers.PRESENCES, "User \"{}\" changed presence to {}", user.getName(), user.getPresence());
 				}
 			}
@@ -524,6 +739,7 @@ class DispatchHandler {
 		// Clean up cache
 		if (guild != null) {
 			((ShardImpl) guild.getShard()).guildCache.remove(guild);
+			client.entityIndex.remove(guild);
 			((User) client.getOurUser()).voiceStates.remove(guild.getLongID());
 			DiscordVoiceWS vWS = shard.voiceWebSockets.get(guildId);
 			if (vWS != null) {
@@ -550,6 +766,7 @@ class DispatchHandler {
 			Guild guild = (Guild) shard.getGuildByID(Long.parseUnsignedLong(json.guild_id));
 			if (guild != null) {
 				IChannel channel = DiscordUtils.getChannelFromJSON(shard, guild, json);
+				client.entityIndex.add(channel.getLongID(), guild);
 				if (json.type == ChannelObject.Type.GUILD_TEXT) {
 					guild.channels.put(channel);
 					client.dispatcher.dispatch(new ChannelCreateEvent(channel));
@@ -569,9 +786,10 @@ class DispatchHandler {
 		if (json.type == ChannelObject.Type.GUILD_TEXT) {
 			Channel channel = (Channel) client.getChannelByID(Long.parseUnsignedLong(json.id));
 			if (channel != null) {
-				if (!channel.isPrivate())
+				if (!channel.isPrivate()) {
 					((Guild) channel.getGuild()).channels.remove(channel);
-				else
+					client.entityIndex.remove(channel.getLongID());
+				} else
 					shard.privateChannels.remove(channel);
 				client.dispatcher.dispatch(new ChannelDeleteEvent(channel));
 			}
@@ -579,12 +797,14 @@ class DispatchHandler {
 			VoiceChannel channel = (VoiceChannel) client.getVoiceChannelByID(Long.parseUnsignedLong(json.id));
 			if (channel != null) {
 				((Guild) channel.getGuild()).voiceChannels.remove(channel);
+				client.entityIndex.remove(channel.getLongID());
 				client.dispatcher.dispatch(new VoiceChannelDeleteEvent(channel));
 			}
 		} else if (json.type == ChannelObject.Type.GUILD_CATEGORY) {
 			ICategory category = client.getCategoryByID(Long.parseUnsignedLong(json.id));
 			if (category != null) {
 				((Guild) category.getGuild()).categories.remove(category);
+				client.entityIndex.remove(category.getLongID());
 				client.dispatcher.dispatch(new CategoryDeleteEvent(category));
 			}
 		}
@@ -593,9 +813,9 @@ class DispatchHandler {
 	private void userUpdate(UserUpdateEventResponse event) {
 		User newUser = (User) client.getUserByID(Long.parseUnsignedLong(event.id));
 		if (newUser != null) {
-			IUser oldUser = newUser.copy();
+			IUser oldUser = client.dispatcher.hasListeners(UserUpdateEvent.class) ? newUser.copy() : null;
 			newUser = DiscordUtils.getUserFromJSON(shard, event);
-			client.dispatcher.dispatch(new UserUpdateEvent(oldUser, newUser));
+			if (oldUser != null) client.dispatcher.dispatch(new UserUpdateEvent(oldUser, newUser));
 		}
 	}
 
@@ -603,34 +823,41 @@ class DispatchHandler {
 		if (json.type == ChannelObject.Type.GUILD_TEXT) {
 			Channel toUpdate = (Channel) shard.getChannelByID(Long.parseUnsignedLong(json.id));
 			if (toUpdate != null) {
-				IChannel oldChannel = toUpdate.copy();
+				// ChannelCategoryUpdateEvent is a ChannelUpdateEvent, so this covers both events
+				IChannel oldChannel = client.dispatcher.hasListeners(ChannelCategoryUpdateEvent.class) ? toUpdate.copy() : null;
 				toUpdate = (Channel) DiscordUtils.getChannelFromJSON(shard, toUpdate.getGuild(), json);
 				toUpdate.loadWebhooks();
 
-				if (!Objects.equals(oldChannel.getCategory(), toUpdate.getCategory())) {
-					client.dispatcher.dispatch(new ChannelCategoryUpdateEvent(oldChannel, toUpdate, oldChannel.getCategory(), toUpdate.getCategory()));
-				} else {
-					client.dispatcher.dispatch(new ChannelUpdateEvent(oldChannel, toUpdate));
+				if (oldChannel != null) {
+					if (!Objects.equals(oldChannel.getCategory(), toUpdate.getCategory())) {
+						client.dispatcher.dispatch(new ChannelCategoryUpdateEvent(oldChannel, toUpdate, oldChannel.getCategory(), toUpdate.getCategory()));
+					} else {
+						client.dispatcher.dispatch(new ChannelUpdateEvent(oldChannel, toUpdate));
+					}
 				}
 			}
 		} else if (json.type == ChannelObject.Type.GUILD_VOICE) {
 			IVoiceChannel toUpdate = shard.getVoiceChannelByID(Long.parseUnsignedLong(json.id));
 			if (toUpdate != null) {
-				IVoiceChannel oldChannel = toUpdate.copy();
+				boolean listening = client.dispatcher.hasListeners(ChannelCategoryUpdateEvent.class)
+						|| client.dispatcher.hasListeners(VoiceChannelUpdateEvent.class);
+				IVoiceChannel oldChannel = listening ? toUpdate.copy() : null;
 				toUpdate = (IVoiceChannel) DiscordUtils.getChannelFromJSON(shard, toUpdate.getGuild(), json);
 
-				if (!Objects.equals(oldChannel.getCategory(), toUpdate.getCategory())) {
-					client.dispatcher.dispatch(new ChannelCategoryUpdateEvent(oldChannel, toUpdate, oldChannel.getCategory(), toUpdate.getCategory()));
-				} else {
-					client.dispatcher.dispatch(new VoiceChannelUpdateEvent(oldChannel, toUpdate));
+				if (oldChannel != null) {
+					if (!Objects.equals(oldChannel.getCategory(), toUpdate.getCategory())) {
+						client.dispatcher.dispatch(new ChannelCategoryUpdateEvent(oldChannel, toUpdate, oldChannel.getCategory(), toUpdate.getCategory()));
+					} else {
+						client.dispatcher.dispatch(new VoiceChannelUpdateEvent(oldChannel, toUpdate));
+					}
 				}
 			}
 		} else if (json.type == ChannelObject.Type.GUILD_CATEGORY) {
 			ICategory toUpdate = shard.getCategoryByID(Long.parseUnsignedLong(json.id));
 			if (toUpdate != null) {
-				ICategory oldCategory = toUpdate.copy();
+				ICategory oldCategory = client.dispatcher.hasListeners(CategoryUpdateEvent.class) ? toUpdate.copy() : null;
 				toUpdate = DiscordUtils.getCategoryFromJSON(shard, toUpdate.getGuild(), json);
-				client.dispatcher.dispatch(new CategoryUpdateEvent(oldCategory, toUpdate));
+				if (oldCategory != null) client.dispatcher.dispatch(new CategoryUpdateEvent(oldCategory, toUpdate));
 			}
 		}
 	}
@@ -646,22 +873,27 @@ class DispatchHandler {
 			IUser user = DiscordUtils.getUserFromGuildMemberResponse(guildToUpdate, member);
 			guildToUpdate.users.put(user);
 		}
-		if (guildToUpdate.getUsers().size() >= guildToUpdate.getTotalMemberCount()) {
+		if (guildToUpdate.users.size() >= guildToUpdate.getTotalMemberCount()) {
 			client.getDispatcher().dispatch(new AllUsersReceivedEvent(guildToUpdate));
 		}
+		shard.memberLoader.onMembersReceived(guildToUpdate);
 	}
 
 	private void guildUpdate(GuildObject json) {
 		Guild toUpdate = (Guild) client.getGuildByID(Long.parseUnsignedLong(json.id));
 
 		if (toUpdate != null) {
-			IGuild oldGuild = toUpdate.copy();
+			// Copying a guild copies all of its channels, roles and members, so it's skipped if nothing would see it
+			IGuild oldGuild = client.dispatcher.hasListeners(GuildUpdateEvent.class) ? toUpdate.copy() : null;
+			IUser oldOwner = toUpdate.getOwner();
+			long oldOwnerID = toUpdate.getOwnerLongID();
 
 			toUpdate = (Guild) DiscordUtils.getGuildFromJSON(shard, json);
 
-			if (toUpdate.getOwnerLongID() != oldGuild.getOwnerLongID()) {
-				client.dispatcher.dispatch(new GuildTransferOwnershipEvent(oldGuild.getOwner(), toUpdate.getOwner(), toUpdate));
-			} else {
+			if (toUpdate.getOwnerLongID() != oldOwnerID) {
+				if (client.dispatcher.hasListeners(GuildTransferOwnershipEvent.class))
+					client.dispatcher.dispatch(new GuildTransferOwnershipEvent(oldOwner, toUpdate.getOwner(), toUpdate));
+			} else if (oldGuild != null) {
 				client.dispatcher.dispatch(new GuildUpdateEvent(oldGuild, toUpdate));
 			}
 		}
@@ -671,6 +903,7 @@ class DispatchHandler {
 		IGuild guild = client.getGuildByID(Long.parseUnsignedLong(event.guild_id));
 		if (guild != null) {
 			IRole role = DiscordUtils.getRoleFromJSON(guild, event.role);
+			client.entityIndex.add(role.getLongID(), guild);
 			client.dispatcher.dispatch(new RoleCreateEvent(role));
 		}
 	}
@@ -680,9 +913,9 @@ class DispatchHandler {
 		if (guild != null) {
 			IRole toUpdate = guild.getRoleByID(Long.parseUnsignedLong(event.role.id));
 			if (toUpdate != null) {
-				IRole oldRole = toUpdate.copy();
+				IRole oldRole = client.dispatcher.hasListeners(RoleUpdateEvent.class) ? toUpdate.copy() : null;
 				toUpdate = DiscordUtils.getRoleFromJSON(guild, event.role);
-				client.dispatcher.dispatch(new RoleUpdateEvent(oldRole, toUpdate));
+				if (oldRole != null) client.dispatcher.dispatch(new RoleUpdateEvent(oldRole, toUpdate));
 
 				if (guild.getRolesForUser(client.getOurUser()).contains(toUpdate))
 					((Guild) guild).loadWebhooks();
@@ -696,6 +929,7 @@ class DispatchHandler {
 			IRole role = guild.getRoleByID(Long.parseUnsignedLong(event.role_id));
 			if (role != null) {
 				guild.roles.remove(role);
+				client.entityIndex.remove(role.getLongID());
 				client.dispatcher.dispatch(new RoleDeleteEvent(role));
 			}
 		}
@@ -774,6 +1008,8 @@ class DispatchHandler {
 
 			guild.emojis.clear();
 			guild.emojis.putAll(newEmoji);
+			client.entityIndex.removeAll(oldEmoji);
+			client.entityIndex.addAll(newEmoji, guild);
 
 			client.dispatcher.dispatch(new GuildEmojisUpdateEvent(guild, oldEmoji, newEmoji));
 		}
@@ -0,0 +1,104 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import java.util.concurrent.*;
+
+/**
+ * Executes dispatch payloads on a fixed number of serial lanes.
+ *
+ * <p>Every task is submitted with a key (usually a guild or channel ID). Tasks with the same key always run on the same
+ * lane, so they are executed in the order they were submitted, while tasks with different keys run in parallel on the
+ * other lanes. When a lane falls behind, the submitting thread blocks until there is room in the lane's queue rather
+ * than running the task itself, which would break the ordering.
+ */
+class DispatchLanes {
+
+	/**
+	 * The number of tasks each lane may have queued before submitting blocks.
+	 */
+	private static final int LANE_CAPACITY = 1024;
+	/**
+	 * The time a lane's thread is kept alive while it has no tasks, in seconds. The lanes aren't shut down when the
+	 * client logs out, as it may log in again, so their threads exit once they stop receiving payloads instead.
+	 */
+	private static final long KEEP_ALIVE = 60L;
+
+	/**
+	 * The executors for each lane. Each one has a single thread.
+	 */
+	private final ThreadPoolExecutor[] lanes;
+
+	DispatchLanes(int laneCount) {
+		this.lanes = new ThreadPoolExecutor[laneCount];
+		for (int i = 0; i < laneCount; i++) {
+			lanes[i] = new ThreadPoolExecutor(1, 1, KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(LANE_CAPACITY),
+					DiscordUtils.createDaemonThreadFactory("Dispatch Handler - Lane " + i), DispatchLanes::waitForRoom);
+			lanes[i].allowCoreThreadTimeOut(true);
+		}
+	}
+
+	/**
+	 * Submits a task to the lane associated with the given key.
+	 *
+	 * @param key The key which determines the lane the task is executed on.
+	 * @param task The task to execute.
+	 */
+	void submit(long key, Runnable task) {
+		lanes[laneFor(key)].execute(task);
+	}
+
+	/**
+	 * Waits for every task which has been submitted so far to be executed.
+	 *
+	 * @param timeout The maximum time to wait.
+	 * @param unit The unit of the timeout.
+	 * @return Whether the tasks were executed before the timeout elapsed.
+	 * @throws InterruptedException If the current thread was interrupted while waiting.
+	 */
+	boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(lanes.length);
+		for (ThreadPoolExecutor lane : lanes) {
+			lane.execute(latch::countDown);
+		}
+		return latch.await(timeout, unit);
+	}
+
+	/**
+	 * Gets the index of the lane tasks with the given key are executed on.
+	 *
+	 * @param key The key.
+	 * @return The index of the lane.
+	 */
+	private int laneFor(long key) {
+		// Snowflakes share most of their low bits (worker, process and increment), so they're mixed before use
+		return (int) (((key * 0x9E3779B97F4A7C15L) >>> 32) % lanes.length);
+	}
+
+	/**
+	 * Blocks the submitting thread until the lane's queue has room for the task.
+	 */
+	private static void waitForRoom(Runnable task, ThreadPoolExecutor lane) {
+		try {
+			lane.getQueue().put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("Interrupted while waiting for room in dispatch lane", e);
+		}
+	}
+}
@@ -0,0 +1,441 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Converts gateway payloads between the Erlang External Term Format and the token streams Jackson binds the json
+ * objects from.
+ *
+ * <p>Decoded terms are written to a {@link TokenBuffer}, so a payload is bound to the same classes as it would be if it
+ * was received as JSON. Integers (including snowflakes, which Discord sends as big integers) are written as numeric
+ * tokens, so they are never formatted and parsed as text. Jackson converts them to strings for the fields which hold
+ * IDs.
+ *
+ * @see <a href=http://erlang.org/doc/apps/erts/erl_ext_dist.html>External Term Format</a>
+ */
+class EtfCodec {
+
+	/**
+	 * The byte every term starts with.
+	 */
+	static final byte VERSION = (byte) 131;
+
+	private static final int NEW_FLOAT_EXT = 70;
+	private static final int COMPRESSED = 80;
+	private static final int SMALL_INTEGER_EXT = 97;
+	private static final int INTEGER_EXT = 98;
+	private static final int FLOAT_EXT = 99;
+	private static final int ATOM_EXT = 100;
+	private static final int SMALL_TUPLE_EXT = 104;
+	private static final int LARGE_TUPLE_EXT = 105;
+	private static final int NIL_EXT = 106;
+	private static final int STRING_EXT = 107;
+	private static final int LIST_EXT = 108;
+	private static final int BINARY_EXT = 109;
+	private static final int SMALL_BIG_EXT = 110;
+	private static final int LARGE_BIG_EXT = 111;
+	private static final int SMALL_ATOM_EXT = 115;
+	private static final int MAP_EXT = 116;
+	private static final int ATOM_UTF8_EXT = 118;
+	private static final int SMALL_ATOM_UTF8_EXT = 119;
+
+	/**
+	 * The data being decoded.
+	 */
+	private final byte[] data;
+	/**
+	 * The position of the next byte to decode.
+	 */
+	private int position;
+	/**
+	 * The position after the last byte of the term.
+	 */
+	private final int end;
+
+	private EtfCodec(byte[] data, int offset, int len) {
+		this.data = data;
+		this.position = offset;
+		this.end = offset + len;
+	}
+
+	/**
+	 * Gets whether a payload is encoded in the External Term Format rather than JSON.
+	 *
+	 * @param payload The array containing the payload.
+	 * @param offset The offset of the payload in the array.
+	 * @param len The length of the payload.
+	 * @return Whether the payload is encoded in the External Term Format.
+	 */
+	static boolean isEtf(byte[] payload, int offset, int len) {
+		return len > 0 && payload[offset] == VERSION;
+	}
+
+	/**
+	 * Decodes a term and creates a parser which reads it as JSON tokens.
+	 *
+	 * @param payload The array containing the term.
+	 * @param offset The offset of the term in the array.
+	 * @param len The length of the term.
+	 * @return The parser, positioned before the term.
+	 * @throws IOException If the term is invalid.
+	 */
+	static JsonParser createParser(byte[] payload, int offset, int len) throws IOException {
+		TokenBuffer buffer = new TokenBuffer(DiscordUtils.MAPPER, false);
+		new EtfCodec(payload, offset, len).decode(buffer);
+		return buffer.asParser(DiscordUtils.MAPPER);
+	}
+
+	/**
+	 * Encodes a JSON tree as a term. Objects are encoded as maps with binary keys, arrays as lists, strings as binaries
+	 * and null and booleans as atoms.
+	 *
+	 * @param node The JSON tree.
+	 * @return The encoded term.
+	 */
+	static byte[] encode(JsonNode node) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		out.write(VERSION);
+		encode(node, out);
+		return out.toByteArray();
+	}
+
+	private void decode(JsonGenerator generator) throws IOException {
+		if (readByte() != VERSION) throw new JsonParseException(null, "Unsupported External Term Format version");
+
+		require(1);
+		if (data[position] == COMPRESSED) {
+			position++;
+			int size = readInt();
+			Inflater inflater = new Inflater();
+			byte[] inflated = new byte[size];
+			try {
+				inflater.setInput(data, position, end - position);
+				if (inflater.inflate(inflated) != size) throw new JsonParseException(null, "Truncated compressed term");
+			} catch (DataFormatException e) {
+				throw new JsonParseException(null, "Corrupt compressed term", e);
+			} finally {
+				inflater.end();
+			}
+			new EtfCodec(inflated, 0, size).decodeTerm(generator);
+		} else {
+			decodeTerm(generator);
+		}
+		generator.flush();
+	}
+
+	/**
+	 * Decodes the next term and writes its tokens.
+	 *
+	 * @param generator The generator the tokens are written to.
+	 * @throws IOException If the term is invalid.
+	 */
+	private void decodeTerm(JsonGenerator generator) throws IOException {
+		int tag = readByte() & 0xFF;
+		switch (tag) {
+			case SMALL_INTEGER_EXT:
+				generator.writeNumber(readByte() & 0xFF);
+				break;
+			case INTEGER_EXT:
+				generator.writeNumber(readInt());
+				break;
+			case SMALL_BIG_EXT:
+				writeBig(generator, readByte() & 0xFF);
+				break;
+			case LARGE_BIG_EXT:
+				writeBig(generator, readInt());
+				break;
+			case NEW_FLOAT_EXT:
+				generator.writeNumber(Double.longBitsToDouble(readLong()));
+				break;
+			case FLOAT_EXT: // Formatted with %.20e and padded with zeros
+				String formatted = readString(31, StandardCharsets.ISO_8859_1);
+				int terminator = formatted.indexOf('\0');
+				generator.writeNumber(Double.parseDouble(terminator == -1 ? formatted : formatted.substring(0, terminator)));
+				break;
+			case ATOM_EXT:
+			case ATOM_UTF8_EXT:
+				writeAtom(generator, readString(readShort(), StandardCharsets.UTF_8));
+				break;
+			case SMALL_ATOM_EXT:
+			case SMALL_ATOM_UTF8_EXT:
+				writeAtom(generator, readString(readByte() & 0xFF, StandardCharsets.UTF_8));
+				break;
+			case BINARY_EXT:
+				generator.writeString(readString(readInt(), StandardCharsets.UTF_8));
+				break;
+			case STRING_EXT: // Any list of integers from 0 to 255, like READY's shard array, so it isn't text
+				int count = readShort();
+				require(count);
+				generator.writeStartArray();
+				for (int i = 0; i < count; i++) {
+					generator.writeNumber(data[position++] & 0xFF);
+				}
+				generator.writeEndArray();
+				break;
+			case NIL_EXT:
+				generator.writeStartArray();
+				generator.writeEndArray();
+				break;
+			case LIST_EXT:
+				int length = readInt();
+				generator.writeStartArray();
+				for (int i = 0; i < length; i++) {
+					decodeTerm(generator);
+				}
+				generator.writeEndArray();
+				if (readByte() != NIL_EXT) throw new JsonParseException(null, "Improper lists are not supported");
+				break;
+			case SMALL_TUPLE_EXT:
+				writeTuple(generator, readByte() & 0xFF);
+				break;
+			case LARGE_TUPLE_EXT:
+				writeTuple(generator, readInt());
+				break;
+			case MAP_EXT:
+				int arity = readInt();
+				generator.writeStartObject();
+				for (int i = 0; i < arity; i++) {
+					generator.writeFieldName(decodeKey());
+					decodeTerm(generator);
+				}
+				generator.writeEndObject();
+				break;
+			default:
+				throw new JsonParseException(null, "Unsupported External Term Format tag " + tag);
+		}
+	}
+
+	/**
+	 * Decodes a map key. Discord's keys are atoms or binaries, but any scalar is accepted.
+	 *
+	 * @return The key.
+	 * @throws IOException If the key is invalid.
+	 */
+	private String decodeKey() throws IOException {
+		int tag = data[position] & 0xFF;
+		switch (tag) {
+			case ATOM_EXT:
+			case ATOM_UTF8_EXT:
+				position++;
+				return readString(readShort(), StandardCharsets.UTF_8);
+			case SMALL_ATOM_EXT:
+			case SMALL_ATOM_UTF8_EXT:
+				position++;
+				return readString(readByte() & 0xFF, StandardCharsets.UTF_8);
+			case BINARY_EXT:
+				position++;
+				return readString(readInt(), StandardCharsets.UTF_8);
+			default:
+				TokenBuffer key = new TokenBuffer(DiscordUtils.MAPPER, false);
+				decodeTerm(key);
+				try (JsonParser parser = key.asParser()) {
+					parser.nextToken();
+					return parser.getValueAsString();
+				}
+		}
+	}
+
+	private void writeAtom(JsonGenerator generator, String atom) throws IOException {
+		switch (atom) {
+			case "nil":
+			case "null":
+				generator.writeNull();
+				break;
+			case "true":
+				generator.writeBoolean(true);
+				break;
+			case "false":
+				generator.writeBoolean(false);
+				break;
+			default:
+				generator.writeString(atom);
+		}
+	}
+
+	private void writeTuple(JsonGenerator generator, int arity) throws IOException {
+		generator.writeStartArray();
+		for (int i = 0; i < arity; i++) {
+			decodeTerm(generator);
+		}
+		generator.writeEndArray();
+	}
+
+	/**
+	 * Writes a big integer, which is stored as its sign followed by its magnitude in little-endian order.
+	 *
+	 * @param generator The generator the integer is written to.
+	 * @param length The number of bytes of the magnitude.
+	 * @throws IOException If the integer is truncated.
+	 */
+	private void writeBig(JsonGenerator generator, int length) throws IOException {
+		boolean negative = readByte() != 0;
+		require(length);
+
+		if (length <= 7 || (length == 8 && data[position + 7] >= 0)) { // Fits in a long (the common case for snowflakes)
+			long value = 0;
+			for (int i = length - 1; i >= 0; i--) {
+				value = (value << 8) | (data[position + i] & 0xFF);
+			}
+			position += length;
+			generator.writeNumber(negative ? -value : value);
+		} else {
+			byte[] magnitude = new byte[length];
+			for (int i = 0; i < length; i++) {
+				magnitude[length - 1 - i] = data[position + i];
+			}
+			position += length;
+			BigInteger value = new BigInteger(1, magnitude);
+			generator.writeNumber(negative ? value.negate() : value);
+		}
+	}
+
+	private byte readByte() throws IOException {
+		require(1);
+		return data[position++];
+	}
+
+	private int readShort() throws IOException {
+		require(2);
+		int value = ((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF);
+		position += 2;
+		return value;
+	}
+
+	private int readInt() throws IOException {
+		require(4);
+		int value = ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+				| ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+		position += 4;
+		return value;
+	}
+
+	private long readLong() throws IOException {
+		return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+	}
+
+	private String readString(int length, Charset charset) throws IOException {
+		require(length);
+		String value = new String(data, position, length, charset);
+		position += length;
+		return value;
+	}
+
+	private void require(int length) throws IOException {
+		if (length < 0 || end - position < length) throw new JsonParseException(null, "Truncated External Term Format term");
+	}
+
+	private static void encode(JsonNode node, ByteArrayOutputStream out) {
+		switch (node.getNodeType()) {
+			case OBJECT:
+				out.write(MAP_EXT);
+				writeInt(out, node.size());
+				Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+				while (fields.hasNext()) {
+					Map.Entry<String, JsonNode> field = fields.next();
+					writeBinary(out, field.getKey());
+					encode(field.getValue(), out);
+				}
+				break;
+			case ARRAY:
+				if (node.size() > 0) {
+					out.write(LIST_EXT);
+					writeInt(out, node.size());
+					for (JsonNode element : node) {
+						encode(element, out);
+					}
+				}
+				out.write(NIL_EXT);
+				break;
+			case STRING:
+				writeBinary(out, node.textValue());
+				break;
+			case NUMBER:
+				if (node.isIntegralNumber()) {
+					encodeInteger(node.bigIntegerValue(), out);
+				} else {
+					out.write(NEW_FLOAT_EXT);
+					long bits = Double.doubleToLongBits(node.doubleValue());
+					writeInt(out, (int) (bits >>> 32));
+					writeInt(out, (int) bits);
+				}
+				break;
+			case BOOLEAN:
+				writeAtom(out, node.booleanValue() ? "true" : "false");
+				break;
+			default: // Null and anything which can't be represented
+				writeAtom(out, "nil");
+		}
+	}
+
+	private static void encodeInteger(BigInteger value, ByteArrayOutputStream out) {
+		if (value.signum() >= 0 && value.bitLength() <= 8) {
+			out.write(SMALL_INTEGER_EXT);
+			out.write(value.intValue());
+		} else if (value.bitLength() <= 31) {
+			out.write(INTEGER_EXT);
+			writeInt(out, value.intValue());
+		} else {
+			byte[] magnitude = value.abs().toByteArray(); // Big-endian, possibly with a leading zero byte
+			int start = magnitude[0] == 0 ? 1 : 0;
+			int length = magnitude.length - start;
+			out.write(SMALL_BIG_EXT);
+			out.write(length);
+			out.write(value.signum() < 0 ? 1 : 0);
+			for (int i = magnitude.length - 1; i >= start; i--) {
+				out.write(magnitude[i]);
+			}
+		}
+	}
+
+	private static void writeAtom(ByteArrayOutputStream out, String atom) {
+		byte[] bytes = atom.getBytes(StandardCharsets.UTF_8);
+		out.write(SMALL_ATOM_UTF8_EXT);
+		out.write(bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static void writeBinary(ByteArrayOutputStream out, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.write(BINARY_EXT);
+		writeInt(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int value) {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+}
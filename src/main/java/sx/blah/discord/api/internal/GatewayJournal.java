@@ -0,0 +1,268 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.util.LogMarkers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An append-only journal of the payloads received on the gateway, used to replay real traffic with
+ * {@link sx.blah.discord.util.GatewayReplayer}.
+ *
+ * <p>The journal is a directory of fixed size segment files which are memory mapped, so recording a payload is a copy
+ * into memory and never waits for the disk. When a segment is full the next one is started, and the oldest segments
+ * are deleted so at most {@link #maxSegments} are kept. Each segment starts with {@link #MAGIC} and
+ * {@link #VERSION}, followed by records of the form:
+ * <pre>
+ * int    length     (of the payload, 0 marks the end of the segment)
+ * long   timestamp  (milliseconds since the epoch)
+ * short  shard      (index of the shard which received the payload)
+ * short  shardCount
+ * byte[] payload    (the decompressed UTF-8 json)
+ * </pre>
+ */
+class GatewayJournal {
+
+	/**
+	 * The first bytes of every segment.
+	 */
+	static final int MAGIC = 0x44344A4C; // D4JL
+	/**
+	 * The version of the segment format.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * The size of a segment's header.
+	 */
+	static final int HEADER_SIZE = 8;
+	/**
+	 * The size of a record's header.
+	 */
+	static final int RECORD_HEADER_SIZE = 16;
+	/**
+	 * The names of segment files. The number orders the segments.
+	 */
+	static final Pattern SEGMENT_NAME = Pattern.compile("gateway-(\\d+)\\.journal");
+
+	/**
+	 * The directory the segments are stored in.
+	 */
+	private final Path directory;
+	/**
+	 * The size of each segment in bytes.
+	 */
+	private final int segmentSize;
+	/**
+	 * The maximum number of segments kept in the directory.
+	 */
+	private final int maxSegments;
+
+	/**
+	 * The segment which is being written. Null if no segment is open. Guarded by this object.
+	 */
+	private MappedByteBuffer segment;
+	/**
+	 * The number of the segment which is being written, or the last one written. Guarded by this object.
+	 */
+	private long segmentNumber = -1;
+	/**
+	 * Whether the journal failed to write and has stopped recording. Guarded by this object.
+	 */
+	private boolean failed;
+
+	GatewayJournal(File directory, int segmentSize, int maxSegments) {
+		if (segmentSize < 8192)
+			throw new IllegalArgumentException("Journal segments must be at least 8 KiB");
+		if (maxSegments < 1)
+			throw new IllegalArgumentException("The journal must keep at least one segment");
+
+		this.directory = directory.toPath();
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+	}
+
+	/**
+	 * Records a payload received by a shard. Payloads which are too large for a segment are skipped.
+	 *
+	 * @param shard The sharding information of the shard which received the payload.
+	 * @param payload The array containing the UTF-8 encoded payload.
+	 * @param offset The offset of the payload in the array.
+	 * @param len The length of the payload.
+	 */
+	synchronized void record(int[] shard, byte[] payload, int offset, int len) {
+		if (failed) return;
+		if (HEADER_SIZE + RECORD_HEADER_SIZE + len + 4 > segmentSize) {
+			Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Payload of {} bytes is too large for the gateway journal.", len);
+			return;
+		}
+
+		try {
+			if (segment == null || segment.remaining() < RECORD_HEADER_SIZE + len + 4) { // Room for the end marker
+				nextSegment();
+			}
+
+			segment.putInt(len);
+			segment.putLong(System.currentTimeMillis());
+			segment.putShort((short) shard[0]);
+			segment.putShort((short) shard[1]);
+			segment.put(payload, offset, len);
+		} catch (IOException e) {
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Unable to write gateway journal. Recording stopped.", e);
+			failed = true;
+			segment = null;
+		}
+	}
+
+	/**
+	 * Finishes the current segment and flushes it to the disk. A new segment is started by the next payload.
+	 */
+	synchronized void close() {
+		if (segment == null) return;
+
+		segment.putInt(0);
+		segment.force();
+		segment = null;
+	}
+
+	/**
+	 * Finishes the current segment and starts the next one, deleting the oldest segments beyond {@link #maxSegments}.
+	 *
+	 * @throws IOException If the segment could not be created.
+	 */
+	private void nextSegment() throws IOException {
+		if (segment != null) {
+			segment.putInt(0);
+			segment.force();
+		} else if (segmentNumber < 0) { // Continue after the segments of earlier runs rather than overwriting them
+			Files.createDirectories(directory);
+			List<Long> existing = listSegments(directory);
+			segmentNumber = existing.isEmpty() ? -1 : existing.get(existing.size() - 1);
+		}
+
+		segmentNumber++;
+		Path file = directory.resolve(getSegmentName(segmentNumber));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize); // The mapping outlives the channel
+		}
+		segment.putInt(MAGIC);
+		segment.putInt(VERSION);
+
+		List<Long> segments = listSegments(directory);
+		for (int i = 0; i < segments.size() - maxSegments; i++) {
+			Files.deleteIfExists(directory.resolve(getSegmentName(segments.get(i))));
+		}
+	}
+
+	/**
+	 * Gets the numbers of the segments in a journal directory, in order.
+	 *
+	 * @param directory The journal directory.
+	 * @return The numbers of the segments.
+	 * @throws IOException If the directory could not be listed.
+	 */
+	static List<Long> listSegments(Path directory) throws IOException {
+		List<Long> segments = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.forEach(file -> {
+				Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+				if (matcher.matches()) segments.add(Long.parseLong(matcher.group(1)));
+			});
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * Reads every record of a journal in order. Segments which don't start with {@link #MAGIC} and {@link #VERSION}
+	 * are skipped.
+	 *
+	 * @param directory The journal directory.
+	 * @param reader Receives each record.
+	 * @return The number of records read.
+	 * @throws IOException If the journal could not be read.
+	 * @throws InterruptedException If the reader was interrupted.
+	 */
+	static long read(Path directory, RecordReader reader) throws IOException, InterruptedException {
+		long records = 0;
+		byte[] payload = new byte[0];
+		for (long number : listSegments(directory)) {
+			MappedByteBuffer segment;
+			try (FileChannel channel = FileChannel.open(directory.resolve(getSegmentName(number)), StandardOpenOption.READ)) {
+				segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			if (segment.remaining() < HEADER_SIZE || segment.getInt() != MAGIC || segment.getInt() != VERSION) {
+				Discord4J.LOGGER.warn(LogMarkers.API, "Skipping invalid journal segment {}.", number);
+				continue;
+			}
+
+			while (segment.remaining() >= RECORD_HEADER_SIZE) {
+				int length = segment.getInt();
+				if (length <= 0 || length > segment.remaining() - RECORD_HEADER_SIZE + 4) break; // End of the segment
+
+				long timestamp = segment.getLong();
+				int[] shard = {segment.getShort(), segment.getShort()};
+				if (payload.length < length) payload = new byte[length];
+				segment.get(payload, 0, length);
+
+				reader.read(timestamp, shard, payload, length);
+				records++;
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Gets the file name of a segment.
+	 *
+	 * @param number The number of the segment.
+	 * @return The file name of the segment.
+	 */
+	static String getSegmentName(long number) {
+		return String.format("gateway-%06d.journal", number);
+	}
+
+	/**
+	 * Receives the records read from a journal.
+	 */
+	@FunctionalInterface
+	interface RecordReader {
+
+		/**
+		 * Receives a record. The payload array is reused for the next record.
+		 *
+		 * @param timestamp The time the payload was received, in milliseconds since the epoch.
+		 * @param shard The sharding information of the shard which received the payload.
+		 * @param payload The array containing the payload, from index 0.
+		 * @param length The length of the payload.
+		 * @throws InterruptedException If the reader was interrupted.
+		 */
+		void read(long timestamp, int[] shard, byte[] payload, int length) throws InterruptedException;
+	}
+}
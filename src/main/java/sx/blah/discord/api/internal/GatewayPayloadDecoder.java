@@ -0,0 +1,132 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import sx.blah.discord.api.internal.json.GatewayPayload;
+import sx.blah.discord.api.internal.json.responses.HelloResponse;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Decodes payloads received on the gateway in a single pass.
+ *
+ * <p>The <code>op</code>, <code>s</code> and <code>t</code> fields are read first and are used to determine the class
+ * the <code>d</code> field is bound to, so no intermediate tree is built for the payload. Discord sends <code>d</code>
+ * last, but if it is received before the fields which determine its type, it is buffered as a token stream and bound
+ * once the rest of the payload has been read.
+ */
+class GatewayPayloadDecoder {
+
+	/**
+	 * Decodes a gateway payload.
+	 *
+	 * @param parser The parser positioned before the payload.
+	 * @param ignoredDispatches The dispatch types whose data should be skipped without being bound.
+	 * @return The payload. Its {@link GatewayPayload#d} is bound to the appropriate class, or is null if the data is not
+	 * needed.
+	 * @throws IOException If the payload could not be parsed.
+	 */
+	static GatewayPayload decode(JsonParser parser, Set<String> ignoredDispatches) throws IOException {
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			throw new JsonParseException(parser, "Expected a gateway payload object");
+		}
+
+		GatewayPayload payload = new GatewayPayload();
+		TokenBuffer bufferedData = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			switch (field) {
+				case "op":
+					payload.op = parser.getIntValue();
+					break;
+				case "s":
+					payload.s = value == JsonToken.VALUE_NULL ? null : parser.getLongValue();
+					break;
+				case "t":
+					payload.t = value == JsonToken.VALUE_NULL ? null : parser.getText();
+					break;
+				case "d":
+					if (payload.op != null && (payload.op != GatewayOps.DISPATCH.ordinal() || payload.t != null)) {
+						payload.d = readData(parser, payload, ignoredDispatches);
+					} else {
+						bufferedData = new TokenBuffer(parser);
+						bufferedData.copyCurrentStructure(parser);
+					}
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+
+		if (bufferedData != null) {
+			try (JsonParser dataParser = bufferedData.asParser(parser.getCodec())) {
+				dataParser.nextToken();
+				payload.d = readData(dataParser, payload, ignoredDispatches);
+			}
+		}
+
+		return payload;
+	}
+
+	/**
+	 * Binds the data of a payload to the class appropriate for its opcode and dispatch type.
+	 *
+	 * @param parser The parser positioned at the start of the data.
+	 * @param payload The payload the data belongs to.
+	 * @param ignoredDispatches The dispatch types whose data should be skipped without being bound.
+	 * @return The bound data, or null if it is not needed.
+	 * @throws IOException If the data could not be parsed.
+	 */
+	private static Object readData(JsonParser parser, GatewayPayload payload, Set<String> ignoredDispatches) throws IOException {
+		Class<?> type = ignoredDispatches.contains(payload.t) ? null : getDataType(payload);
+		if (type == null || parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			parser.skipChildren();
+			return null;
+		}
+
+		return DiscordUtils.MAPPER.readValue(parser, type);
+	}
+
+	/**
+	 * Gets the class the data of a payload should be bound to.
+	 *
+	 * @param payload The payload.
+	 * @return The class the data should be bound to, or null if it is not needed.
+	 */
+	private static Class<?> getDataType(GatewayPayload payload) {
+		if (payload.op == null) return null;
+
+		switch (GatewayOps.get(payload.op)) {
+			case DISPATCH:
+				return payload.t == null ? null : DispatchHandler.getPayloadType(payload.t);
+			case HELLO:
+				return HelloResponse.class;
+			case INVALID_SESSION:
+				return Boolean.class;
+			default:
+				return null;
+		}
+	}
+}
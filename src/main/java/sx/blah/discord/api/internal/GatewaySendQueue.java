@@ -0,0 +1,276 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.util.LogMarkers;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Queues the payloads sent on a gateway connection so they never exceed Discord's send limit.
+ *
+ * <p>Discord closes a connection with code 4008 when more than 120 payloads are sent in 60 seconds. This keeps the time
+ * of the latest sends and allows at most {@link #LIMIT} payloads in any {@link #WINDOW}. Payloads are sent while the
+ * window has room and are otherwise queued by {@link Priority}. Heartbeats may use a few more slots than other payloads
+ * ({@link #HEARTBEAT_LIMIT}), so a burst of member requests or presence updates can never hold back a heartbeat. Only
+ * the latest queued presence update is kept, as it replaces any earlier ones.
+ *
+ * @see <a href=https://discordapp.com/developers/docs/topics/gateway#rate-limiting>Rate Limiting</a>
+ */
+class GatewaySendQueue {
+
+	/**
+	 * The time Discord's send limit applies to, in nanoseconds.
+	 */
+	static final long WINDOW = TimeUnit.SECONDS.toNanos(60);
+	/**
+	 * The maximum number of payloads other than heartbeats that can be sent in any {@link #WINDOW}. Kept below Discord's
+	 * limit of 120 to leave room for heartbeats and clock drift between the client and Discord.
+	 */
+	static final int LIMIT = 115;
+	/**
+	 * The maximum number of payloads, including heartbeats, that can be sent in any {@link #WINDOW}.
+	 */
+	static final int HEARTBEAT_LIMIT = 118;
+
+	/**
+	 * Writes payloads to the connection.
+	 */
+	private final Consumer<Object> writer;
+	/**
+	 * The index of the shard the connection belongs to, for logging.
+	 */
+	private final int shard;
+	/**
+	 * The executor queued payloads are sent on once the window has room.
+	 */
+	private final ScheduledExecutorService scheduler;
+	/**
+	 * The source of the current time, in nanoseconds.
+	 */
+	private final LongSupplier clock;
+	/**
+	 * The queued payloads of each priority, indexed by {@link Priority#ordinal()}. Guarded by this object.
+	 */
+	private final Queue<Object>[] queues;
+	/**
+	 * The latest presence update which has not been sent. Guarded by this object.
+	 */
+	private Object pendingPresence;
+	/**
+	 * The times of the latest {@link #HEARTBEAT_LIMIT} sends, as a ring buffer. Guarded by this object.
+	 */
+	private final long[] sendTimes = new long[HEARTBEAT_LIMIT];
+	/**
+	 * The index in {@link #sendTimes} the next send is recorded at. Guarded by this object.
+	 */
+	private int nextSend;
+	/**
+	 * The number of sends recorded in {@link #sendTimes}, up to its length. Guarded by this object.
+	 */
+	private int recordedSends;
+	/**
+	 * The task which sends queued payloads once the window has room. Guarded by this object.
+	 */
+	private ScheduledFuture<?> scheduledDrain;
+
+	GatewaySendQueue(DiscordWS ws, ScheduledExecutorService scheduler) {
+		this(ws::write, ws.shard.getInfo()[0], scheduler, System::nanoTime);
+	}
+
+	@SuppressWarnings("unchecked")
+	GatewaySendQueue(Consumer<Object> writer, int shard, ScheduledExecutorService scheduler, LongSupplier clock) {
+		this.writer = writer;
+		this.shard = shard;
+		this.scheduler = scheduler;
+		this.clock = clock;
+		this.queues = new Queue[Priority.values().length];
+		for (int i = 0; i < queues.length; i++) {
+			queues[i] = new ArrayDeque<>();
+		}
+		reset();
+	}
+
+	/**
+	 * Sends a payload as soon as the rate limit allows it.
+	 *
+	 * @param op The opcode of the payload. May be null if it is not known.
+	 * @param message The payload, or its JSON text. It is serialized by {@link DiscordWS#write(Object)} when it is sent.
+	 */
+	synchronized void send(GatewayOps op, Object message) {
+		Priority priority = Priority.of(op);
+		if (priority == Priority.PRESENCE) {
+			pendingPresence = message;
+		} else {
+			queues[priority.ordinal()].add(message);
+		}
+		drain();
+	}
+
+	/**
+	 * Discards the queued payloads and the recorded sends. Called when a new connection is opened, as Discord's limit
+	 * applies to each connection and the queued payloads were meant for the previous one.
+	 */
+	synchronized void reset() {
+		for (Queue<Object> queue : queues) {
+			queue.clear();
+		}
+		pendingPresence = null;
+		nextSend = 0;
+		recordedSends = 0;
+		if (scheduledDrain != null) {
+			scheduledDrain.cancel(false);
+			scheduledDrain = null;
+		}
+	}
+
+	/**
+	 * Sends queued payloads in order of priority while the window has room, and schedules the rest to be sent when the
+	 * oldest send that holds them back leaves the window.
+	 */
+	private synchronized void drain() {
+		if (scheduledDrain != null) { // A heartbeat may be sent before the other payloads it was scheduled for
+			scheduledDrain.cancel(false);
+			scheduledDrain = null;
+		}
+
+		long now = clock.getAsLong();
+		Priority next;
+		while ((next = peekPriority()) != null) {
+			long delay = getDelay(next == Priority.HEARTBEAT ? HEARTBEAT_LIMIT : LIMIT, now);
+			if (delay > 0) {
+				Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET, "Shard {} send limit reached. Delaying queued payloads.", shard);
+				scheduledDrain = scheduler.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+				return;
+			}
+
+			sendTimes[nextSend] = now;
+			nextSend = (nextSend + 1) % sendTimes.length;
+			recordedSends = Math.min(recordedSends + 1, sendTimes.length);
+			writer.accept(poll());
+		}
+	}
+
+	/**
+	 * Gets how long a payload must wait so that no more than a number of payloads are sent in any {@link #WINDOW}.
+	 *
+	 * @param limit The maximum number of payloads in a window.
+	 * @param now The current time, in nanoseconds.
+	 * @return The time to wait in nanoseconds, or zero or less if the payload can be sent now.
+	 */
+	private long getDelay(int limit, long now) {
+		if (recordedSends < limit) return 0;
+		long limitingSend = sendTimes[(nextSend - limit + sendTimes.length) % sendTimes.length];
+		return limitingSend + WINDOW - now;
+	}
+
+	/**
+	 * Gets the priority of the queued payload with the highest priority.
+	 *
+	 * @return The priority, or null if no payloads are queued.
+	 */
+	private Priority peekPriority() {
+		for (Priority priority : Priority.values()) {
+			if (priority == Priority.PRESENCE ? pendingPresence != null : !queues[priority.ordinal()].isEmpty()) {
+				return priority;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the queued payload with the highest priority.
+	 *
+	 * @return The payload, or null if none are queued.
+	 */
+	private Object poll() {
+		for (int i = 0; i < queues.length; i++) {
+			if (i == Priority.PRESENCE.ordinal() && pendingPresence != null) {
+				Object presence = pendingPresence;
+				pendingPresence = null;
+				return presence;
+			}
+			Object message = queues[i].poll();
+			if (message != null) return message;
+		}
+		return null;
+	}
+
+	/**
+	 * The order queued payloads are sent in. Payloads with the same priority are sent in the order they were queued.
+	 */
+	enum Priority {
+		/**
+		 * Heartbeats, which keep the connection alive.
+		 */
+		HEARTBEAT,
+		/**
+		 * Identifies and resumes, which start the session.
+		 */
+		SESSION,
+		/**
+		 * Voice state updates, which users are waiting on to join or leave voice channels.
+		 */
+		VOICE_STATE,
+		/**
+		 * Guild member requests.
+		 */
+		MEMBER_REQUEST,
+		/**
+		 * Any other payloads.
+		 */
+		OTHER,
+		/**
+		 * Presence updates. Only the latest one is sent.
+		 */
+		PRESENCE;
+
+		/**
+		 * Gets the priority of payloads with an opcode.
+		 *
+		 * @param op The opcode. May be null.
+		 * @return The priority of the payloads.
+		 */
+		static Priority of(GatewayOps op) {
+			if (op == null) return OTHER;
+
+			switch (op) {
+				case HEARTBEAT:
+					return HEARTBEAT;
+				case IDENTIFY:
+				case RESUME:
+					return SESSION;
+				case VOICE_STATE_UPDATE:
+					return VOICE_STATE;
+				case REQUEST_GUILD_MEMBERS:
+					return MEMBER_REQUEST;
+				case STATUS_UPDATE:
+					return PRESENCE;
+				default:
+					return OTHER;
+			}
+		}
+	}
+}
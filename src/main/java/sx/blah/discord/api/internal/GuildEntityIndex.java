@@ -0,0 +1,180 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+import sx.blah.discord.util.cache.LongMap;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Indexes the guild every channel, voice channel, category, role and emoji of a client belongs to by the entity's ID,
+ * so they can be looked up without searching every guild of every shard.
+ *
+ * <p>Snowflakes are unique across entity types, so a single map serves all of them. The index only points to the
+ * guild: a lookup gets the guild from its shard's cache and the entity from the guild's cache, so an entry which is out
+ * of date can never return an entity which is no longer cached. Lookups which find nothing here fall back to searching
+ * the guilds.
+ */
+class GuildEntityIndex {
+
+	/**
+	 * The guild of each entity, by the entity's ID. Guarded by {@link #lock}.
+	 */
+	private final LongMap<IGuild> guilds = LongMap.newMap();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Indexes every channel, voice channel, category, role and emoji of a guild.
+	 *
+	 * @param guild The guild.
+	 */
+	void add(IGuild guild) {
+		lock.writeLock().lock();
+		try {
+			putAll(guild.getChannels(), guild);
+			putAll(guild.getVoiceChannels(), guild);
+			putAll(guild.getCategories(), guild);
+			putAll(guild.getRoles(), guild);
+			putAll(guild.getEmojis(), guild);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Indexes an entity of a guild.
+	 *
+	 * @param id The ID of the entity.
+	 * @param guild The guild the entity belongs to.
+	 */
+	void add(long id, IGuild guild) {
+		lock.writeLock().lock();
+		try {
+			guilds.put(id, guild);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Indexes entities of a guild.
+	 *
+	 * @param entities The entities.
+	 * @param guild The guild the entities belong to.
+	 */
+	void addAll(Collection<? extends IIDLinkedObject> entities, IGuild guild) {
+		lock.writeLock().lock();
+		try {
+			putAll(entities, guild);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes an entity from the index.
+	 *
+	 * @param id The ID of the entity.
+	 */
+	void remove(long id) {
+		lock.writeLock().lock();
+		try {
+			guilds.remove(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes entities from the index.
+	 *
+	 * @param entities The entities.
+	 */
+	void removeAll(Collection<? extends IIDLinkedObject> entities) {
+		lock.writeLock().lock();
+		try {
+			deleteAll(entities);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes every channel, voice channel, category, role and emoji of a guild from the index.
+	 *
+	 * @param guild The guild.
+	 */
+	void remove(IGuild guild) {
+		lock.writeLock().lock();
+		try {
+			deleteAll(guild.getChannels());
+			deleteAll(guild.getVoiceChannels());
+			deleteAll(guild.getCategories());
+			deleteAll(guild.getRoles());
+			deleteAll(guild.getEmojis());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Looks up an entity in the guild it is indexed to.
+	 *
+	 * @param id The ID of the entity.
+	 * @param lookup Gets the entity from the guild, or null if the guild doesn't have it.
+	 * @param <T> The type of the entity.
+	 * @return The entity, or null if it isn't indexed or its guild is no longer cached.
+	 */
+	<T> T find(long id, Function<IGuild, T> lookup) {
+		IGuild indexed;
+		lock.readLock().lock();
+		try {
+			indexed = guilds.get(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (indexed == null) return null;
+
+		// The guild may have been removed or replaced since the entity was indexed
+		IGuild guild = indexed.getShard().getGuildByID(indexed.getLongID());
+		return guild == null ? null : lookup.apply(guild);
+	}
+
+	/**
+	 * Indexes entities of a guild. The write lock must be held.
+	 */
+	private void putAll(Collection<? extends IIDLinkedObject> entities, IGuild guild) {
+		for (IIDLinkedObject entity : entities) {
+			guilds.put(entity.getLongID(), guild);
+		}
+	}
+
+	/**
+	 * Removes entities from the index. The write lock must be held.
+	 */
+	private void deleteAll(Collection<? extends IIDLinkedObject> entities) {
+		for (IIDLinkedObject entity : entities) {
+			guilds.remove(entity.getLongID());
+		}
+	}
+}
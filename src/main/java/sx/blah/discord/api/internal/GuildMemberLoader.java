@@ -0,0 +1,146 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.internal.json.requests.GuildMembersRequest;
+import sx.blah.discord.handle.impl.obj.Guild;
+import sx.blah.discord.util.LogMarkers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests the members of large guilds on a shard and tracks when all of them have been received.
+ *
+ * <p>Requests are buffered for a short time so the guilds which are created in a burst (on startup) are requested with
+ * a single {@link GatewayOps#REQUEST_GUILD_MEMBERS} payload. Completion is tracked as member chunks are received, so no
+ * thread waits for a guild's members to arrive.
+ */
+class GuildMemberLoader {
+
+	/**
+	 * The maximum number of guilds requested in one payload. Keeps the payload well below the gateway's size limit.
+	 */
+	private static final int MAX_GUILDS_PER_REQUEST = 100;
+	/**
+	 * How long requests are buffered before they are sent, in milliseconds.
+	 */
+	private static final long FLUSH_DELAY = 500;
+	/**
+	 * How long to wait for the members of a guild before giving up, in milliseconds.
+	 */
+	private static final long LOAD_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+
+	/**
+	 * The shard whose guilds are loaded.
+	 */
+	private final ShardImpl shard;
+	/**
+	 * The IDs of guilds which have not been requested yet. Guarded by this object.
+	 */
+	private final List<String> pendingRequests = new ArrayList<>();
+	/**
+	 * The task which sends the pending requests. Guarded by this object.
+	 */
+	private ScheduledFuture<?> scheduledFlush;
+	/**
+	 * The guilds whose members are being loaded.
+	 */
+	private final Map<Long, LoadingGuild> loading = new ConcurrentHashMap<>();
+
+	GuildMemberLoader(ShardImpl shard) {
+		this.shard = shard;
+	}
+
+	/**
+	 * Requests the members of a guild.
+	 *
+	 * @param guild The guild.
+	 * @param onLoaded Executed once all of the guild's members have been received (or loading timed out).
+	 */
+	void load(Guild guild, Runnable onLoaded) {
+		DiscordClientImpl client = (DiscordClientImpl) shard.getClient();
+		LoadingGuild loadingGuild = new LoadingGuild(onLoaded);
+		LoadingGuild previous = loading.put(guild.getLongID(), loadingGuild);
+		if (previous != null) previous.timeout.cancel(false);
+		loadingGuild.timeout = client.scheduler.schedule(() -> {
+			if (loading.remove(guild.getLongID(), loadingGuild)) {
+				Discord4J.LOGGER.warn(LogMarkers.WEBSOCKET, "Timed out waiting for the members of guild {} on shard {}. Received {} of {} members.",
+						guild.getStringID(), shard.getInfo()[0], guild.users.size(), guild.getTotalMemberCount());
+				loadingGuild.onLoaded.run();
+			}
+		}, LOAD_TIMEOUT, TimeUnit.MILLISECONDS);
+
+		synchronized (this) {
+			pendingRequests.add(guild.getStringID());
+			if (pendingRequests.size() >= MAX_GUILDS_PER_REQUEST) {
+				flush();
+			} else if (scheduledFlush == null) {
+				scheduledFlush = client.scheduler.schedule(this::flush, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Called after a chunk of members has been added to a guild.
+	 *
+	 * @param guild The guild.
+	 */
+	void onMembersReceived(Guild guild) {
+		if (guild.users.size() < guild.getTotalMemberCount()) return;
+
+		LoadingGuild loadingGuild = loading.remove(guild.getLongID());
+		if (loadingGuild != null) {
+			loadingGuild.timeout.cancel(false);
+			loadingGuild.onLoaded.run();
+		}
+	}
+
+	/**
+	 * Sends the pending requests.
+	 */
+	private synchronized void flush() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		if (pendingRequests.isEmpty()) return;
+
+		String[] guildIDs = pendingRequests.toArray(new String[0]);
+		pendingRequests.clear();
+		Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Requesting the members of {} guilds on shard {}.", guildIDs.length, shard.getInfo()[0]);
+		shard.ws.send(GatewayOps.REQUEST_GUILD_MEMBERS, new GuildMembersRequest(guildIDs));
+	}
+
+	/**
+	 * A guild whose members are being loaded.
+	 */
+	private static class LoadingGuild {
+		final Runnable onLoaded;
+		volatile ScheduledFuture<?> timeout;
+
+		LoadingGuild(Runnable onLoaded) {
+			this.onLoaded = onLoaded;
+		}
+	}
+}
@@ -20,8 +20,7 @@ package sx.blah.discord.api.internal;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.util.LogMarkers;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -52,11 +51,11 @@ class HeartbeatHandler {
 	private final AtomicBoolean waitingForAck = new AtomicBoolean(false);
 
 	/**
-	 * Thread on which the {@link #heartbeatTask} runs.
+	 * The scheduled {@link #heartbeatTask}. Null if heartbeats are not being sent.
 	 */
-	private ScheduledExecutorService keepAlive = Executors.newSingleThreadScheduledExecutor(DiscordUtils.createDaemonThreadFactory("Keep-Alive Handler"));
+	private volatile ScheduledFuture<?> keepAlive;
 	/**
-	 * The task scheduled on {@link #keepAlive} which handles the actual sending and receiving of heartbeats.
+	 * The task scheduled on the client's scheduler which handles the actual sending and receiving of heartbeats.
 	 */
 	private final Runnable heartbeatTask;
 
@@ -76,6 +75,7 @@ class HeartbeatHandler {
 		heartbeatTask = () -> {
 			if (waitingForAck.get()) { // Missed ping
 				missedPings.set(missedPings.get() + 1);
+				ws.shard.metrics.onHeartbeatMissed();
 				Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Last heartbeat not acknowledged by Discord. Total: {}", missedPings.get());
 
 				if (missedPings.get() == maxMissedPings) {
@@ -95,15 +95,15 @@ class HeartbeatHandler {
 	}
 
 	/**
-	 * Schedules the {@link #heartbeatTask} on the {@link #keepAlive} executor with the given interval. If the executor
-	 * was previously shutdown (this happens in the case of reconnects), then a new one is created.
+	 * Schedules the {@link #heartbeatTask} on the client's scheduler with the given interval. Any heartbeats which were
+	 * previously scheduled (this happens in the case of reconnects) are cancelled.
 	 *
 	 * @param interval The time between heartbeats in milliseconds.
 	 */
-	void begin(long interval) {
-		if (keepAlive.isShutdown()) keepAlive = Executors.newSingleThreadScheduledExecutor(DiscordUtils.createDaemonThreadFactory("Keep-Alive Handler"));
+	synchronized void begin(long interval) {
+		if (keepAlive != null) keepAlive.cancel(false);
 
-		keepAlive.scheduleAtFixedRate(heartbeatTask, 0, interval, TimeUnit.MILLISECONDS);
+		keepAlive = ws.client.scheduler.scheduleAtFixedRate(heartbeatTask, 0, interval, TimeUnit.MILLISECONDS);
 	}
 
 	/**
@@ -114,16 +114,20 @@ class HeartbeatHandler {
 			Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Received heartbeat ack without sending a heartbeat. Is the websocket out of sync?");
 		}
 		ackResponseTime = System.currentTimeMillis() - sentHeartbeatAt;
+		ws.shard.metrics.onHeartbeatAck(ackResponseTime);
 		waitingForAck.set(false);
 	}
 
 	/**
 	 * Stops the sending of heartbeats and resets stored heartbeat information.
 	 */
-	void shutdown() {
+	synchronized void shutdown() {
 		missedPings.set(0);
 		waitingForAck.set(false);
-		keepAlive.shutdown();
+		if (keepAlive != null) {
+			keepAlive.cancel(false);
+			keepAlive = null;
+		}
 	}
 
 	/**
@@ -0,0 +1,75 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.util.LogMarkers;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the {@link GatewayOps#IDENTIFY} payloads sent by every shard of a client.
+ *
+ * <p>Discord only allows a client to identify once every 5 seconds. This acts as a token bucket which holds a single
+ * token and is refilled every 5 seconds: each identify takes the next available token and is sent once it is available.
+ * Only the identify is delayed. Shards connect, receive {@link GatewayOps#HELLO} and heartbeat while they wait for
+ * their turn, and shards which have already identified continue to receive their guilds.
+ *
+ * @see <a href=https://discordapp.com/developers/docs/topics/gateway#rate-limiting>Rate Limiting</a>
+ */
+class IdentifyScheduler {
+
+	/**
+	 * The minimum time between two identifies, in nanoseconds.
+	 */
+	private static final long IDENTIFY_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+	/**
+	 * The executor identifies are scheduled on.
+	 */
+	private final ScheduledExecutorService scheduler;
+	/**
+	 * The time (from {@link System#nanoTime()}) the next token becomes available. Guarded by this object.
+	 */
+	private long nextIdentify;
+
+	IdentifyScheduler(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+		this.nextIdentify = System.nanoTime();
+	}
+
+	/**
+	 * Schedules an identify to be sent as soon as the rate limit allows it.
+	 *
+	 * @param shard The shard which is identifying.
+	 * @param identify The task which sends the identify.
+	 */
+	void schedule(ShardImpl shard, Runnable identify) {
+		long delay;
+		synchronized (this) {
+			long now = System.nanoTime();
+			long slot = Math.max(now, nextIdentify);
+			nextIdentify = slot + IDENTIFY_INTERVAL;
+			delay = slot - now;
+		}
+
+		Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Shard {} will identify in {} ms.", shard.getInfo()[0], TimeUnit.NANOSECONDS.toMillis(delay));
+		scheduler.schedule(identify, delay, TimeUnit.NANOSECONDS);
+	}
+}
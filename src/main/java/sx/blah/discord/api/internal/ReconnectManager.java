@@ -18,37 +18,43 @@
 package sx.blah.discord.api.internal;
 
 import sx.blah.discord.Discord4J;
-import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.handle.impl.events.shard.ReconnectFailureEvent;
 import sx.blah.discord.handle.impl.events.shard.ReconnectSuccessEvent;
 import sx.blah.discord.util.LogMarkers;
 
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Manages the reconnection process for all of the shards of a client. This ensures that shards obey the identify
- * ratelimit when reconnecting.
+ * Manages the reconnection process for all of the shards of a client.
+ *
+ * <p>Up to {@link #MAX_CONCURRENT_RECONNECTS} shards reconnect at the same time, each with its own attempt counter and
+ * backoff, and the rest wait for their turn. Reconnecting only opens the connection: shards which resume their session
+ * send {@link GatewayOps#RESUME} as soon as they connect, while shards which must identify again wait for the
+ * {@link IdentifyScheduler} like any other identify, so reconnecting shards obey the identify ratelimit. No thread is
+ * blocked while waiting for a backoff or a turn.
  */
 class ReconnectManager {
 
 	/**
-	 * The thread on which {@link DiscordWS#connect()} will be executed.
+	 * The maximum number of shards which may be connecting at the same time.
 	 */
-	private final ExecutorService reconnectExecutor = Executors.newSingleThreadExecutor(DiscordUtils.createDaemonThreadFactory("Reconnect Thread"));
-
+	private static final int MAX_CONCURRENT_RECONNECTS = 16;
 	/**
-	 * Queue of websockets waiting to be reconnected.
+	 * How long an attempt may take before it is considered to have failed, in milliseconds.
 	 */
-	private final Queue<DiscordWS> websockets = new LinkedList<>();
+	private static final long ATTEMPT_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
 
 	/**
 	 * The client associated with this manager.
 	 */
-	private final IDiscordClient client;
+	private final DiscordClientImpl client;
 
 	/**
 	 * The maximum number of reconnect attempts allowed per {@link DiscordWS} by this manager.
@@ -56,109 +62,172 @@ class ReconnectManager {
 	private final int maxAttempts;
 
 	/**
-	 * The current attempt being executed by the manager. [0, maxAttempts)
+	 * The permits of the shards which are connecting.
+	 */
+	private final Semaphore permits = new Semaphore(MAX_CONCURRENT_RECONNECTS);
+
+	/**
+	 * The websockets which are waiting for a permit to connect. Guarded by this object.
 	 */
-	private int curAttempt;
+	private final Queue<Reconnect> waiting = new LinkedList<>();
 
 	/**
-	 * If true, {@link #onReconnectError()} may be triggered by {@link DiscordWS#onWebSocketError(Throwable)}
-	 * This is used to ensure that {@link #onReconnectError()} is only called once per reconnect attempt.
+	 * The reconnects which are in progress, by websocket.
 	 */
-	private boolean acknowledgeErrors = true;
+	private final Map<DiscordWS, Reconnect> reconnects = new ConcurrentHashMap<>();
 
-	ReconnectManager(IDiscordClient client, int maxAttempts) {
+	ReconnectManager(DiscordClientImpl client, int maxAttempts) {
 		this.client = client;
 		this.maxAttempts = maxAttempts;
 	}
 
 	/**
-	 * Adds a {@link DiscordWS} to the reconnection queue.
-	 * If there is only one WS in the queue, the reconnection process will begin immediately.
+	 * Begins reconnecting a {@link DiscordWS}. It connects immediately if fewer than
+	 * {@link #MAX_CONCURRENT_RECONNECTS} shards are connecting, or once another shard has finished otherwise. If the
+	 * websocket is already reconnecting, its current attempt has failed.
 	 *
 	 * @param ws The websocket to reconnect.
 	 */
-	synchronized void scheduleReconnect(DiscordWS ws) {
-		websockets.offer(ws);
-		if (websockets.size() == 1) beginNewReconnect();
+	void scheduleReconnect(DiscordWS ws) {
+		Reconnect reconnect = new Reconnect(ws);
+		Reconnect existing = reconnects.putIfAbsent(ws, reconnect);
+		if (existing != null) {
+			onReconnectError(ws);
+			return;
+		}
+
+		ws.shard.metrics.onReconnect();
+		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Beginning reconnect for shard {}.", ws.shard.getInfo()[0]);
+		synchronized (this) {
+			waiting.offer(reconnect);
+		}
+		startWaiting();
 	}
 
 	/**
-	 * Starts the reconnect process for the next websocket in the queue.
+	 * Called by {@link DiscordWS#onWebSocketText(String)} when it receives {@link GatewayOps#HELLO} which signals that a
+	 * reconnect was successful. The websocket's permit is released to the next waiting websocket.
 	 *
-	 * @throws IllegalStateException if the queue is empty.
+	 * @param ws The websocket which connected.
 	 */
-	private void beginNewReconnect() {
-		if (websockets.size() == 0) throw new IllegalStateException("Attempt to begin reconnect process with no websockets in queue.");
-
-		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Beginning reconnect for shard {}.", websockets.peek().shard.getInfo()[0]);
-		performReconnect();
+	void onReconnectSuccess(DiscordWS ws) {
+		Reconnect reconnect = reconnects.remove(ws);
+		if (reconnect == null) return; // Not reconnecting
+
+		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} succeeded.", ws.shard.getInfo()[0]);
+		client.getDispatcher().dispatch(new ReconnectSuccessEvent(ws.shard));
+		reconnect.finishAttempt();
+		startWaiting();
 	}
 
 	/**
-	 * Calls {@link DiscordWS#connect()} for the current websocket in the queue.
+	 * Called by {@link DiscordWS#onWebSocketError(Throwable)} for errors which signify that a reconnect attempt failed.
+	 * If there are attempts remaining, the next attempt is scheduled after {@link #getBackOffMillis(int)}.
+	 * If all attempts have been performed, the {@link DiscordWS} is abandoned.
+	 *
+	 * @param ws The websocket whose attempt failed.
 	 */
-	private void performReconnect() {
-		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Performing reconnect attempt {} for shard {}.", curAttempt, websockets.peek().shard.getInfo()[0]);
-		reconnectExecutor.submit(() -> {
-			acknowledgeErrors = true;
-			websockets.peek().connect();
-		});
+	void onReconnectError(DiscordWS ws) {
+		Reconnect reconnect = reconnects.get(ws);
+		if (reconnect == null || !reconnect.finishAttempt()) return; // Not reconnecting, or this attempt already failed
+		startWaiting(); // The permit is released during the backoff
+
+		client.getDispatcher().dispatch(new ReconnectFailureEvent(ws.shard, reconnect.attempt, maxAttempts));
+		if (reconnect.attempt == maxAttempts - 1) {
+			Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} failed after {} attempts. Abandoning shard.", ws.shard.getInfo()[0], maxAttempts);
+			reconnects.remove(ws);
+			client.getShards().remove(ws.shard); // remove reference to the shard from the client. It is useless now.
+		} else {
+			long backOff = Math.max(1000, getBackOffMillis(reconnect.attempt));
+			Discord4J.LOGGER.debug(LogMarkers.RECONNECTS, "Shard {} waiting {} ms before the next attempt.", ws.shard.getInfo()[0], backOff);
+			reconnect.attempt++;
+			client.scheduler.schedule(() -> {
+				synchronized (this) {
+					waiting.offer(reconnect);
+				}
+				startWaiting();
+			}, backOff, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	/**
-	 * Called by {@link DiscordWS#onWebSocketText(String)} when it receives {@link GatewayOps#HELLO} which signals that a reconnect was successful.
-	 * The current websocket is removed from the queue and the reconnect process for the next one in the queue begins.
+	 * Starts the attempts of waiting websockets while there are permits available.
 	 */
-	void onReconnectSuccess() {
-		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} succeeded.", websockets.peek().shard.getInfo()[0]);
-		client.getDispatcher().dispatch(new ReconnectSuccessEvent(websockets.peek().shard));
-
-		acknowledgeErrors = false;
-		curAttempt = 0;
-		websockets.remove();
-
-		if (websockets.size() > 0) beginNewReconnect();
+	private void startWaiting() {
+		while (true) {
+			Reconnect reconnect;
+			synchronized (this) {
+				if (waiting.isEmpty() || !permits.tryAcquire()) return;
+				reconnect = waiting.poll();
+			}
+			if (reconnects.get(reconnect.ws) != reconnect) { // Abandoned or replaced while waiting
+				permits.release();
+				continue;
+			}
+			client.scheduler.execute(reconnect::startAttempt);
+		}
 	}
 
 	/**
-	 * Called by {@link DiscordWS#onWebSocketError(Throwable)} for errors which signify that a reconnect attempt failed.
-	 * If there are attempts remaining, the the thread is blocked according to {@link #getBackOffMillis()} and the next attempt begins.
-	 * If all attempts have been performed, the current {@link DiscordWS} is abandoned and the reconnect process for the next one in the queue begins.
+	 * Gets the amount of time the manager should wait before performing the next reconnect attempt.
+	 *
+	 * @param attempt The attempt which failed. [0, maxAttempts)
+	 * @return The amount of time to wait in milliseconds.
 	 */
-	void onReconnectError() {
-		if (!acknowledgeErrors) return;
-		acknowledgeErrors = false;
-
-		reconnectExecutor.submit(() -> {
-			client.getDispatcher().dispatch(new ReconnectFailureEvent(websockets.peek().shard, curAttempt, maxAttempts));
-			if (curAttempt == maxAttempts - 1) {
-				// abandon the ws
-				Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} failed after {} attempts. Abandoning shard.", websockets.peek().shard.getInfo()[0], maxAttempts);
-				curAttempt = 0;
-				client.getShards().remove(websockets.peek().shard); // remove reference to the shard from the client. It is useless now.
-				websockets.remove();
-
-				// begin the next one
-				if (websockets.size() > 0) beginNewReconnect();
-			} else {
-				try {
-					long backOff = Math.max(1000, getBackOffMillis());
-					Discord4J.LOGGER.debug(LogMarkers.RECONNECTS, "Sleeping for {} ms.", backOff);
-					Thread.sleep(backOff);
-					curAttempt++;
-					performReconnect();
-				} catch (Exception e) {
-					Discord4J.LOGGER.error(LogMarkers.RECONNECTS, "Discord4J Internal Exception", e);
-				}
-			}
-		});
+	private static long getBackOffMillis(int attempt) {
+		return (2 * attempt + ThreadLocalRandom.current().nextInt(0, 3)) * 1000;
 	}
 
 	/**
-	 * Gets the amount of time the manager should wait before performing the next reconnect attempt depending on {@link #curAttempt}
-	 * @return The amount of time to sleep in milliseconds.
+	 * The reconnect process of a single websocket.
 	 */
-	private long getBackOffMillis() {
-		return (2 * curAttempt + ThreadLocalRandom.current().nextInt(0, 3)) * 1000;
+	private class Reconnect {
+		final DiscordWS ws;
+		/**
+		 * The current attempt. [0, maxAttempts)
+		 */
+		volatile int attempt;
+		/**
+		 * Whether an attempt is in progress and holds a permit. Guarded by this object.
+		 */
+		private boolean connecting;
+		/**
+		 * The task which fails the current attempt if it takes too long. Guarded by this object.
+		 */
+		private ScheduledFuture<?> timeout;
+
+		Reconnect(DiscordWS ws) {
+			this.ws = ws;
+		}
+
+		/**
+		 * Connects the websocket. Called once a permit has been acquired for the attempt.
+		 */
+		void startAttempt() {
+			synchronized (this) {
+				connecting = true;
+				timeout = client.scheduler.schedule(() -> {
+					Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect attempt {} for shard {} timed out.", attempt, ws.shard.getInfo()[0]);
+					onReconnectError(ws);
+				}, ATTEMPT_TIMEOUT, TimeUnit.MILLISECONDS);
+			}
+
+			Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Performing reconnect attempt {} for shard {}.", attempt, ws.shard.getInfo()[0]);
+			ws.connect();
+		}
+
+		/**
+		 * Ends the current attempt and releases its permit.
+		 *
+		 * @return Whether an attempt was in progress. False if the attempt already ended.
+		 */
+		synchronized boolean finishAttempt() {
+			if (!connecting) return false;
+
+			connecting = false;
+			timeout.cancel(false);
+			permits.release();
+			return true;
+		}
 	}
 }
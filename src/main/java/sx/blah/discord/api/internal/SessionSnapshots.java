@@ -0,0 +1,308 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.internal.json.SessionSnapshot;
+import sx.blah.discord.api.internal.json.objects.*;
+import sx.blah.discord.handle.impl.obj.Guild;
+import sx.blah.discord.handle.obj.*;
+import sx.blah.discord.util.LogMarkers;
+import sx.blah.discord.util.session.ISessionStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves shard sessions to the client's {@link ISessionStore} and restores them.
+ *
+ * <p>A snapshot holds the session ID and sequence number of the shard along with its guilds and private channels. They
+ * are stored in the same json format Discord sends them in (compressed with gzip), so restoring a snapshot rebuilds
+ * the cache the same way a <code>GUILD_CREATE</code> does.
+ */
+class SessionSnapshots {
+
+	/**
+	 * The version of the snapshot format. Snapshots with a different version are discarded.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * How long to wait for dispatch payloads which were received before the connection was closed to be handled.
+	 */
+	private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+	/**
+	 * Saves the session of a shard. The shard's connection must have been closed already so the cache doesn't change
+	 * while it is saved.
+	 *
+	 * @param shard The shard.
+	 * @param ws The closed connection of the shard.
+	 */
+	static void save(ShardImpl shard, DiscordWS ws) {
+		DiscordClientImpl client = (DiscordClientImpl) shard.getClient();
+		try {
+			// Payloads which were received before closing must be applied to the cache so it matches the sequence
+			if (!client.dispatchLanes.awaitIdle(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				Discord4J.LOGGER.warn(LogMarkers.API, "Timed out waiting for shard {} to handle its last payloads. Not saving session.", shard.getInfo()[0]);
+				return;
+			}
+
+			SessionSnapshot snapshot = new SessionSnapshot();
+			snapshot.version = VERSION;
+			snapshot.shard = shard.getInfo();
+			snapshot.session_id = ws.sessionId;
+			snapshot.seq = ws.seq;
+			snapshot.timestamp = System.currentTimeMillis();
+			snapshot.user = toJSON(client.getOurUser());
+			snapshot.guilds = shard.guildCache.stream().map(guild -> toJSON((Guild) guild)).toArray(GuildObject[]::new);
+			snapshot.private_channels = shard.privateChannels.stream().map(SessionSnapshots::toJSON).toArray(ChannelObject[]::new);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (OutputStream out = new GZIPOutputStream(bytes)) {
+				DiscordUtils.MAPPER_NO_NULLS.writeValue(out, snapshot);
+			}
+			client.sessionStore.save(shard.getInfo()[0], bytes.toByteArray());
+			Discord4J.LOGGER.info(LogMarkers.API, "Saved session of shard {} with {} guilds.", shard.getInfo()[0], snapshot.guilds.length);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			Discord4J.LOGGER.error(LogMarkers.API, "Unable to save session of shard {}.", shard.getInfo()[0], e);
+		}
+	}
+
+	/**
+	 * Restores the saved session of a shard, if it has one. The shard's cache is rebuilt from the snapshot and the
+	 * connection is set to resume the session.
+	 *
+	 * @param shard The shard.
+	 * @param ws The connection of the shard, which has not been opened yet.
+	 * @return Whether a session was restored.
+	 */
+	static boolean restore(ShardImpl shard, DiscordWS ws) {
+		DiscordClientImpl client = (DiscordClientImpl) shard.getClient();
+		int index = shard.getInfo()[0];
+		try {
+			byte[] bytes = client.sessionStore.load(index);
+			if (bytes == null) return false;
+			client.sessionStore.delete(index); // A session must never be resumed twice
+
+			SessionSnapshot snapshot;
+			try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+				snapshot = DiscordUtils.MAPPER.readValue(in, SessionSnapshot.class);
+			}
+			if (snapshot.version != VERSION || !Arrays.equals(snapshot.shard, shard.getInfo())) {
+				Discord4J.LOGGER.info(LogMarkers.API, "Discarding incompatible saved session of shard {}.", index);
+				return false;
+			}
+
+			if (client.ourUser == null) client.ourUser = DiscordUtils.getUserFromJSON(shard, snapshot.user);
+			for (GuildObject guild : snapshot.guilds) {
+				shard.guildCache.put(DiscordUtils.getGuildFromJSON(shard, guild));
+			}
+			for (ChannelObject channel : snapshot.private_channels) {
+				shard.privateChannels.put((IPrivateChannel) DiscordUtils.getChannelFromJSON(shard, null, channel));
+			}
+
+			ws.sessionId = snapshot.session_id;
+			ws.seq = snapshot.seq;
+			ws.state = DiscordWS.State.RESUMING;
+			ws.resumingFromSnapshot = true;
+			Discord4J.LOGGER.info(LogMarkers.API, "Restored session of shard {} with {} guilds saved {} seconds ago.", index,
+					snapshot.guilds.length, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - snapshot.timestamp));
+			return true;
+		} catch (Exception e) {
+			Discord4J.LOGGER.error(LogMarkers.API, "Unable to restore session of shard {}. Identifying instead.", index, e);
+			shard.guildCache.forEach((guildID, guild) -> client.entityIndex.remove(guild));
+			shard.guildCache.clear();
+			shard.privateChannels.clear();
+			return false;
+		}
+	}
+
+	private static UserObject toJSON(IUser user) {
+		UserObject json = new UserObject();
+		json.id = user.getStringID();
+		json.username = user.getName();
+		json.discriminator = user.getDiscriminator();
+		json.avatar = user.getAvatar();
+		json.bot = user.isBot();
+		return json;
+	}
+
+	private static GuildObject toJSON(Guild guild) {
+		GuildObject json = new GuildObject();
+		json.id = guild.getStringID();
+		json.name = guild.getName();
+		json.icon = guild.getIcon();
+		json.owner_id = Long.toUnsignedString(guild.getOwnerLongID());
+		json.region = guild.getRegionID();
+		json.afk_channel_id = guild.getAFKChannel() == null ? null : guild.getAFKChannel().getStringID();
+		json.afk_timeout = guild.getAFKTimeout();
+		json.verification_level = guild.getVerificationLevel().ordinal();
+		json.system_channel_id = guild.getSystemChannel() == null ? null : guild.getSystemChannel().getStringID();
+		json.member_count = guild.getTotalMemberCount();
+		json.roles = guild.roles.stream().map(SessionSnapshots::toJSON).toArray(RoleObject[]::new);
+		json.emojis = guild.emojis.stream().map(SessionSnapshots::toJSON).toArray(EmojiObject[]::new);
+		json.channels = Stream.concat(Stream.concat(
+				guild.channels.stream().map(SessionSnapshots::toJSON),
+				guild.voiceChannels.stream().map(SessionSnapshots::toJSON)),
+				guild.categories.stream().map(SessionSnapshots::toJSON))
+				.toArray(ChannelObject[]::new);
+
+		List<MemberObject> members = new ArrayList<>();
+		List<PresenceObject> presences = new ArrayList<>();
+		List<VoiceStateObject> voiceStates = new ArrayList<>();
+		for (IUser user : guild.users) { // Not getUsers(), which would request the members of a lazily loaded guild
+			members.add(toMemberJSON(guild, user));
+			presences.add(toPresenceJSON(user));
+			IVoiceState voiceState = user.getVoiceStateForGuild(guild);
+			if (voiceState.getChannel() != null) voiceStates.add(toJSON(voiceState));
+		}
+		json.members = members.toArray(new MemberObject[0]);
+		json.presences = presences.toArray(new PresenceObject[0]);
+		json.voice_states = voiceStates.toArray(new VoiceStateObject[0]);
+		return json;
+	}
+
+	private static RoleObject toJSON(IRole role) {
+		RoleObject json = new RoleObject();
+		json.id = role.getStringID();
+		json.name = role.getName();
+		json.color = role.getColor().getRGB() & 0xFFFFFF;
+		json.hoist = role.isHoisted();
+		json.position = role.getPosition();
+		json.permissions = Permissions.generatePermissionsNumber(role.getPermissions());
+		json.managed = role.isManaged();
+		json.mentionable = role.isMentionable();
+		return json;
+	}
+
+	private static EmojiObject toJSON(IEmoji emoji) {
+		EmojiObject json = new EmojiObject();
+		json.id = emoji.getStringID();
+		json.name = emoji.getName();
+		json.roles = emoji.getRoles().stream().map(IRole::getStringID).toArray(String[]::new);
+		json.require_colons = emoji.requiresColons();
+		json.managed = emoji.isManaged();
+		json.animated = emoji.isAnimated();
+		return json;
+	}
+
+	private static ChannelObject toJSON(IChannel channel) {
+		ChannelObject json = new ChannelObject();
+		json.id = channel.getStringID();
+		if (channel.isPrivate()) {
+			json.type = ChannelObject.Type.PRIVATE;
+			json.recipients = new UserObject[]{toJSON(((IPrivateChannel) channel).getRecipient())};
+			return json;
+		}
+
+		json.guild_id = channel.getGuild().getStringID();
+		json.name = channel.getName();
+		json.position = channel.getPosition();
+		json.nsfw = channel.isNSFW();
+		json.parent_id = channel.getCategory() == null ? null : channel.getCategory().getStringID();
+		json.permission_overwrites = toJSON(channel.getUserOverrides().values(), channel.getRoleOverrides().values());
+		if (channel instanceof IVoiceChannel) {
+			json.type = ChannelObject.Type.GUILD_VOICE;
+			json.bitrate = ((IVoiceChannel) channel).getBitrate();
+			json.user_limit = ((IVoiceChannel) channel).getUserLimit();
+		} else {
+			json.type = ChannelObject.Type.GUILD_TEXT;
+			json.topic = channel.getTopic();
+		}
+		return json;
+	}
+
+	private static ChannelObject toJSON(ICategory category) {
+		ChannelObject json = new ChannelObject();
+		json.id = category.getStringID();
+		json.type = ChannelObject.Type.GUILD_CATEGORY;
+		json.guild_id = category.getGuild().getStringID();
+		json.name = category.getName();
+		json.position = category.getPosition();
+		json.nsfw = category.isNSFW();
+		json.permission_overwrites = toJSON(category.getUserOverrides().values(), category.getRoleOverrides().values());
+		return json;
+	}
+
+	private static OverwriteObject[] toJSON(Iterable<PermissionOverride> userOverrides, Iterable<PermissionOverride> roleOverrides) {
+		List<OverwriteObject> overwrites = new ArrayList<>();
+		for (PermissionOverride override : userOverrides) {
+			overwrites.add(new OverwriteObject("member", override.getStringID(),
+					Permissions.generatePermissionsNumber(override.allow()), Permissions.generatePermissionsNumber(override.deny())));
+		}
+		for (PermissionOverride override : roleOverrides) {
+			overwrites.add(new OverwriteObject("role", override.getStringID(),
+					Permissions.generatePermissionsNumber(override.allow()), Permissions.generatePermissionsNumber(override.deny())));
+		}
+		return overwrites.toArray(new OverwriteObject[0]);
+	}
+
+	private static MemberObject toMemberJSON(Guild guild, IUser user) {
+		MemberObject json = new MemberObject(toJSON(user),
+				user.getRolesForGuild(guild).stream().map(IRole::getStringID).toArray(String[]::new));
+		json.nick = user.getNicknameForGuild(guild);
+		Guild.TimeStampHolder joinTime = guild.joinTimes.get(user.getLongID());
+		json.joined_at = joinTime == null ? null : joinTime.getObject().toString();
+		IVoiceState voiceState = user.getVoiceStateForGuild(guild);
+		json.deaf = voiceState.isDeafened();
+		json.mute = voiceState.isMuted();
+		return json;
+	}
+
+	private static PresenceObject toPresenceJSON(IUser user) {
+		IPresence presence = user.getPresence();
+		PresenceObject json = new PresenceObject();
+		json.user = new UserObject();
+		json.user.id = user.getStringID();
+		json.status = presence.getStatus().name().toLowerCase();
+		if (presence.getActivity().isPresent()) {
+			json.game = new GameObject();
+			json.game.type = presence.getActivity().get().ordinal();
+			json.game.name = presence.getText().orElse(null);
+			json.game.url = presence.getStreamingUrl().orElse(null);
+		}
+		return json;
+	}
+
+	private static VoiceStateObject toJSON(IVoiceState voiceState) {
+		VoiceStateObject json = new VoiceStateObject();
+		json.guild_id = voiceState.getGuild().getStringID();
+		json.channel_id = voiceState.getChannel().getStringID();
+		json.user_id = voiceState.getUser().getStringID();
+		json.session_id = voiceState.getSessionID();
+		json.deaf = voiceState.isDeafened();
+		json.mute = voiceState.isMuted();
+		json.self_deaf = voiceState.isSelfDeafened();
+		json.self_mute = voiceState.isSelfMuted();
+		json.suppress = voiceState.isSuppressed();
+		return json;
+	}
+}
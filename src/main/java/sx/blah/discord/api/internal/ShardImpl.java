@@ -20,6 +20,7 @@ package sx.blah.discord.api.internal;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.IShard;
+import sx.blah.discord.api.IShardMetrics;
 import sx.blah.discord.api.internal.json.objects.ChannelObject;
 import sx.blah.discord.api.internal.json.objects.UserObject;
 import sx.blah.discord.api.internal.json.requests.PresenceUpdateRequest;
@@ -70,10 +71,18 @@ public class ShardImpl implements IShard {
 	 * The private channels on this shard. Only populated if this is shard 0.
 	 */
 	final Cache<IPrivateChannel> privateChannels;
+	/**
+	 * The measurements of this shard's gateway connection.
+	 */
+	final ShardMetrics metrics = new ShardMetrics(this);
 	/**
 	 * The voice gateways for guilds on this shard.
 	 */
 	public final Cache<DiscordVoiceWS> voiceWebSockets;
+	/**
+	 * Loads the members of large guilds on this shard.
+	 */
+	final GuildMemberLoader memberLoader = new GuildMemberLoader(this);
 
 	private final PresenceUpdateRequest identifyPresence;
 
@@ -101,6 +110,7 @@ public class ShardImpl implements IShard {
 	public void login() {
 		Discord4J.LOGGER.trace(LogMarkers.API, "Shard logging in.");
 		this.ws = new DiscordWS(this, gateway, client.maxMissedPings, identifyPresence);
+		if (client.sessionStore != null) SessionSnapshots.restore(this, ws);
 		this.ws.connect();
 	}
 
@@ -116,7 +126,21 @@ public class ShardImpl implements IShard {
 			}).get()
 		);
 		getClient().getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.LOGGED_OUT, this));
-		ws.shutdown();
+		if (!saveSession()) ws.shutdown();
+	}
+
+	/**
+	 * Closes the connection without ending the session and saves the session to the client's session store, so the
+	 * next login resumes it. Nothing is done if the client has no session store or the shard isn't ready.
+	 *
+	 * @return Whether the session was saved.
+	 */
+	boolean saveSession() {
+		if (client.sessionStore == null || !isReady()) return false;
+
+		ws.shutdown(true);
+		SessionSnapshots.save(this, ws);
+		return true;
 	}
 
 	@Override
@@ -134,6 +158,11 @@ public class ShardImpl implements IShard {
 		return ws.heartbeatHandler.getAckResponseTime();
 	}
 
+	@Override
+	public IShardMetrics getMetrics() {
+		return metrics;
+	}
+
 	@Override
 	public void changePresence(StatusType status, ActivityType activity, String text) {
 		if (activity == ActivityType.STREAMING) throw new IllegalArgumentException("Invalid ActivityType");
@@ -190,9 +219,10 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public IChannel getChannelByID(long id) {
-		IChannel channel = guildCache.findResult((guildID, guild) -> guild.getChannelByID(id));
+		IChannel channel = client.entityIndex.find(id, guild -> guild.getShard() == this ? guild.getChannelByID(id) : null);
+		if (channel == null) channel = privateChannels.get(id);
 
-		return channel == null ? privateChannels.get(id) : channel;
+		return channel == null ? guildCache.findResult((guildID, guild) -> guild.getChannelByID(id)) : channel;
 	}
 
 	@Override
@@ -210,7 +240,8 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public IVoiceChannel getVoiceChannelByID(long id) {
-		return guildCache.findResult((guildID, guild) -> guild.getVoiceChannelByID(id));
+		IVoiceChannel channel = client.entityIndex.find(id, guild -> guild.getShard() == this ? guild.getVoiceChannelByID(id) : null);
+		return channel == null ? guildCache.findResult((guildID, guild) -> guild.getVoiceChannelByID(id)) : channel;
 	}
 
 	@Override
@@ -260,7 +291,8 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public IRole getRoleByID(long roleID) {
-		return guildCache.findResult((guildID, guild) -> guild.getRoleByID(roleID));
+		IRole role = client.entityIndex.find(roleID, guild -> guild.getShard() == this ? guild.getRoleByID(roleID) : null);
+		return role == null ? guildCache.findResult((guildID, guild) -> guild.getRoleByID(roleID)) : role;
 	}
 
 	@Override
@@ -314,6 +346,7 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public ICategory getCategoryByID(long categoryID) {
-		return guildCache.findResult((guildId, guild) -> guild.getCategoryByID(categoryID));
+		ICategory category = client.entityIndex.find(categoryID, guild -> guild.getShard() == this ? guild.getCategoryByID(categoryID) : null);
+		return category == null ? guildCache.findResult((guildId, guild) -> guild.getCategoryByID(categoryID)) : category;
 	}
 }
@@ -0,0 +1,285 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.api.IShard;
+import sx.blah.discord.api.IShardMetrics;
+import sx.blah.discord.util.LatencyHistogram;
+import sx.blah.discord.util.LogMarkers;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The default implementation of {@link IShardMetrics}. Updated by the shard's gateway connection as payloads are
+ * received and handled.
+ */
+class ShardMetrics implements IShardMetrics {
+
+	private final ShardImpl shard;
+
+	private final LatencyHistogram heartbeatLatency = new LatencyHistogram();
+	private final LongAdder missedHeartbeats = new LongAdder();
+	private final LongAdder reconnects = new LongAdder();
+	private final LongAdder resumes = new LongAdder();
+	private final LongAdder receivedPayloads = new LongAdder();
+	private final LongAdder receivedBytes = new LongAdder();
+	private final Rate payloadRate = new Rate();
+	private final Rate byteRate = new Rate();
+	private final LongAdder decodeTime = new LongAdder();
+	private final LongAdder dispatchTime = new LongAdder();
+	private final Map<String, Dispatch> dispatches = new ConcurrentHashMap<>();
+
+	ShardMetrics(ShardImpl shard) {
+		this.shard = shard;
+	}
+
+	/**
+	 * Called when a payload has been received and decoded.
+	 *
+	 * @param type The dispatch type of the payload. Null if it isn't a dispatch.
+	 * @param size The size of the payload in bytes.
+	 * @param decodeNanos The time it took to decode the payload.
+	 */
+	void onPayloadReceived(String type, int size, long decodeNanos) {
+		receivedPayloads.increment();
+		receivedBytes.add(size);
+		payloadRate.mark(1);
+		byteRate.mark(size);
+		decodeTime.add(decodeNanos);
+
+		if (type != null) {
+			Dispatch dispatch = dispatches.computeIfAbsent(type, t -> new Dispatch());
+			dispatch.count.increment();
+			dispatch.bytes.add(size);
+			dispatch.eventRate.mark(1);
+			dispatch.byteRate.mark(size);
+			dispatch.decodeTime.add(decodeNanos);
+		}
+	}
+
+	/**
+	 * Called when a dispatch payload has been handled.
+	 *
+	 * @param type The dispatch type of the payload.
+	 * @param nanos The time it took to handle the payload.
+	 */
+	void onDispatchHandled(String type, long nanos) {
+		dispatchTime.add(nanos);
+		Dispatch dispatch = dispatches.get(type);
+		if (dispatch != null) dispatch.dispatchTime.add(nanos);
+	}
+
+	/**
+	 * Called when Discord acknowledges a heartbeat.
+	 *
+	 * @param millis The time it took Discord to acknowledge the heartbeat.
+	 */
+	void onHeartbeatAck(long millis) {
+		heartbeatLatency.record(millis);
+	}
+
+	/**
+	 * Called when Discord did not acknowledge a heartbeat.
+	 */
+	void onHeartbeatMissed() {
+		missedHeartbeats.increment();
+	}
+
+	/**
+	 * Called when the shard begins reconnecting.
+	 */
+	void onReconnect() {
+		reconnects.increment();
+	}
+
+	/**
+	 * Called when the shard resumes a session.
+	 */
+	void onResumed() {
+		resumes.increment();
+	}
+
+	@Override
+	public IShard getShard() {
+		return shard;
+	}
+
+	@Override
+	public LatencyHistogram getHeartbeatLatency() {
+		return heartbeatLatency;
+	}
+
+	@Override
+	public long getMissedHeartbeats() {
+		return missedHeartbeats.sum();
+	}
+
+	@Override
+	public long getReconnects() {
+		return reconnects.sum();
+	}
+
+	@Override
+	public long getResumes() {
+		return resumes.sum();
+	}
+
+	@Override
+	public long getReceivedPayloads() {
+		return receivedPayloads.sum();
+	}
+
+	@Override
+	public long getReceivedBytes() {
+		return receivedBytes.sum();
+	}
+
+	@Override
+	public double getPayloadsPerSecond() {
+		return payloadRate.get();
+	}
+
+	@Override
+	public double getBytesPerSecond() {
+		return byteRate.get();
+	}
+
+	@Override
+	public long getDecodeTime() {
+		return decodeTime.sum();
+	}
+
+	@Override
+	public long getDispatchTime() {
+		return dispatchTime.sum();
+	}
+
+	@Override
+	public Map<String, DispatchMetrics> getDispatchMetrics() {
+		return Collections.unmodifiableMap(dispatches);
+	}
+
+	@Override
+	public Future<?> subscribe(Consumer<IShardMetrics> subscriber, long period, TimeUnit unit) {
+		DiscordClientImpl client = (DiscordClientImpl) shard.getClient();
+		return DiscordUtils.subscribePeriodically(client.metricsScheduler, () -> this, subscriber, period, unit, LogMarkers.API);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Shard %d: heartbeat=[%s], missedHeartbeats=%d, reconnects=%d, resumes=%d, payloads/s=%.2f, bytes/s=%.2f",
+				shard.getInfo()[0], heartbeatLatency, getMissedHeartbeats(), getReconnects(), getResumes(),
+				getPayloadsPerSecond(), getBytesPerSecond());
+	}
+
+	/**
+	 * The metrics of a single dispatch type.
+	 */
+	private static class Dispatch implements DispatchMetrics {
+		final LongAdder count = new LongAdder();
+		final LongAdder bytes = new LongAdder();
+		final Rate eventRate = new Rate();
+		final Rate byteRate = new Rate();
+		final LongAdder decodeTime = new LongAdder();
+		final LongAdder dispatchTime = new LongAdder();
+
+		@Override
+		public long getCount() {
+			return count.sum();
+		}
+
+		@Override
+		public long getBytes() {
+			return bytes.sum();
+		}
+
+		@Override
+		public double getEventsPerSecond() {
+			return eventRate.get();
+		}
+
+		@Override
+		public double getBytesPerSecond() {
+			return byteRate.get();
+		}
+
+		@Override
+		public long getDecodeTime() {
+			return decodeTime.sum();
+		}
+
+		@Override
+		public long getDispatchTime() {
+			return dispatchTime.sum();
+		}
+	}
+
+	/**
+	 * An exponentially weighted moving average of a rate over the last minute. The average is updated every
+	 * {@link #TICK_INTERVAL} when the rate is marked or read, so no thread is needed to maintain it.
+	 */
+	private static class Rate {
+
+		/**
+		 * The time between updates of the average, in nanoseconds.
+		 */
+		private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+		/**
+		 * The weight of each update, which makes the average cover about a minute.
+		 */
+		private static final double ALPHA = 1 - Math.exp(-5.0 / 60.0);
+
+		private final LongAdder uncounted = new LongAdder();
+		private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+		private volatile double rate;
+		private volatile boolean initialized;
+
+		void mark(long n) {
+			tickIfNecessary();
+			uncounted.add(n);
+		}
+
+		double get() {
+			tickIfNecessary();
+			return rate;
+		}
+
+		private void tickIfNecessary() {
+			long oldTick = lastTick.get();
+			long now = System.nanoTime();
+			long age = now - oldTick;
+			if (age < TICK_INTERVAL) return;
+
+			if (lastTick.compareAndSet(oldTick, now - age % TICK_INTERVAL)) {
+				long ticks = age / TICK_INTERVAL;
+				double instantRate = uncounted.sumThenReset() / (double) TimeUnit.NANOSECONDS.toSeconds(TICK_INTERVAL);
+				double rate = initialized ? this.rate + ALPHA * (instantRate - this.rate) : instantRate;
+				// Nothing was counted during the remaining ticks
+				this.rate = rate * Math.pow(1 - ALPHA, ticks - 1);
+				initialized = true;
+			}
+		}
+	}
+}
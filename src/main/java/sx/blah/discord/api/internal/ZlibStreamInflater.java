@@ -0,0 +1,157 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the <code>zlib-stream</code> transport compression used by the gateway.
+ *
+ * <p>Every frame received on a connection shares a single zlib context, so one instance of this class must be used per
+ * websocket connection and {@link #reset()} whenever a new connection is opened. A message is complete once a frame
+ * ends with the <code>Z_SYNC_FLUSH</code> suffix (<code>00 00 ff ff</code>). The input and output buffers are reused
+ * between messages to avoid allocating for every payload.
+ *
+ * @see <a href=https://discordapp.com/developers/docs/topics/gateway#transport-compression>Transport Compression</a>
+ */
+class ZlibStreamInflater {
+
+	/**
+	 * The initial size of the buffers.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 32 * 1024;
+	/**
+	 * The largest a buffer may be kept between messages. Larger buffers (from huge payloads such as GUILD_CREATE) are
+	 * released once the message has been handled.
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * The zlib context shared by all frames of the connection.
+	 */
+	private final Inflater inflater = new Inflater();
+
+	/**
+	 * Holds compressed frames until a full message has been received.
+	 */
+	private byte[] compressed = new byte[INITIAL_BUFFER_SIZE];
+	/**
+	 * The number of bytes of {@link #compressed} which are in use.
+	 */
+	private int compressedLength = 0;
+	/**
+	 * Holds the last decompressed message.
+	 */
+	private byte[] decompressed = new byte[INITIAL_BUFFER_SIZE];
+	/**
+	 * The number of bytes of {@link #decompressed} which are in use.
+	 */
+	private int decompressedLength = 0;
+
+	/**
+	 * Feeds a frame received on the websocket to the inflater.
+	 *
+	 * @param payload The array containing the frame.
+	 * @param offset The offset of the frame in the array.
+	 * @param len The length of the frame.
+	 * @return Whether a full message was decompressed. If true, it can be read with {@link #getBuffer()} and
+	 * {@link #getLength()} until the next call to this method.
+	 * @throws DataFormatException If the compressed data is invalid.
+	 */
+	boolean inflate(byte[] payload, int offset, int len) throws DataFormatException {
+		releaseOversizedBuffers();
+		decompressedLength = 0;
+
+		if (compressedLength == 0 && endsWithFlush(payload, offset, len)) { // The common case, a message fits in a single frame
+			inflater.setInput(payload, offset, len);
+		} else {
+			if (compressedLength + len > compressed.length) {
+				compressed = Arrays.copyOf(compressed, Math.max(compressed.length * 2, compressedLength + len));
+			}
+			System.arraycopy(payload, offset, compressed, compressedLength, len);
+			compressedLength += len;
+
+			if (!endsWithFlush(compressed, 0, compressedLength)) return false; // Wait for the rest of the message
+
+			inflater.setInput(compressed, 0, compressedLength);
+			compressedLength = 0;
+		}
+
+		while (true) {
+			if (decompressedLength == decompressed.length) {
+				decompressed = Arrays.copyOf(decompressed, decompressed.length * 2);
+			}
+			int inflated = inflater.inflate(decompressed, decompressedLength, decompressed.length - decompressedLength);
+			decompressedLength += inflated;
+
+			// If there is still room in the buffer, zlib had nothing more to flush for the input it was given
+			if (decompressedLength < decompressed.length && (inflater.needsInput() || inflater.finished())) break;
+			if (inflated == 0 && inflater.needsDictionary()) throw new DataFormatException("Unexpected preset dictionary");
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the buffer holding the last decompressed message.
+	 *
+	 * @return The buffer holding the last decompressed message.
+	 */
+	byte[] getBuffer() {
+		return decompressed;
+	}
+
+	/**
+	 * Gets the length of the last decompressed message.
+	 *
+	 * @return The length of the last decompressed message.
+	 */
+	int getLength() {
+		return decompressedLength;
+	}
+
+	/**
+	 * Resets the zlib context and discards any buffered data. This must be called when a new connection is opened.
+	 */
+	void reset() {
+		inflater.reset();
+		compressedLength = 0;
+		decompressedLength = 0;
+	}
+
+	/**
+	 * Replaces buffers that grew past {@link #MAX_RETAINED_BUFFER_SIZE} for a previous message.
+	 */
+	private void releaseOversizedBuffers() {
+		if (decompressed.length > MAX_RETAINED_BUFFER_SIZE) decompressed = new byte[INITIAL_BUFFER_SIZE];
+		if (compressedLength == 0 && compressed.length > MAX_RETAINED_BUFFER_SIZE) compressed = new byte[INITIAL_BUFFER_SIZE];
+	}
+
+	/**
+	 * Checks whether the given data ends with the <code>Z_SYNC_FLUSH</code> suffix.
+	 */
+	private static boolean endsWithFlush(byte[] data, int offset, int len) {
+		return len >= 4
+				&& data[offset + len - 4] == 0x00
+				&& data[offset + len - 3] == 0x00
+				&& data[offset + len - 2] == (byte) 0xFF
+				&& data[offset + len - 1] == (byte) 0xFF;
+	}
+}
@@ -31,7 +31,7 @@ public class GatewayPayload {
 	/**
 	 * The sequence number.
 	 */
-	public Integer s;
+	public Long s;
 	/**
 	 * The opcode for the payload.
 	 */
@@ -51,7 +51,7 @@ public class GatewayPayload {
 		this(null, null, op.ordinal(), request);
 	}
 
-	private GatewayPayload(String t, Integer s, Integer op, Object d) {
+	private GatewayPayload(String t, Long s, Integer op, Object d) {
 		this.t = t;
 		this.s = s;
 		this.op = op;
@@ -0,0 +1,61 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal.json;
+
+import sx.blah.discord.api.internal.json.objects.ChannelObject;
+import sx.blah.discord.api.internal.json.objects.GuildObject;
+import sx.blah.discord.api.internal.json.objects.UserObject;
+
+/**
+ * The saved state of a shard's gateway session.
+ * @see sx.blah.discord.util.session.ISessionStore
+ */
+public class SessionSnapshot {
+	/**
+	 * The version of the snapshot format.
+	 */
+	public int version;
+	/**
+	 * The shard info of the shard the session belongs to.
+	 */
+	public int[] shard;
+	/**
+	 * The ID of the gateway session.
+	 */
+	public String session_id;
+	/**
+	 * The last sequence number received in the session.
+	 */
+	public long seq;
+	/**
+	 * The unix timestamp of when the snapshot was taken.
+	 */
+	public long timestamp;
+	/**
+	 * The bot user.
+	 */
+	public UserObject user;
+	/**
+	 * The guilds of the shard.
+	 */
+	public GuildObject[] guilds;
+	/**
+	 * The private channels of the shard.
+	 */
+	public ChannelObject[] private_channels;
+}
@@ -31,4 +31,9 @@ public class MessageDeleteBulkEventResponse {
 	 * The ID of the channel the messages belonged to.
 	 */
 	public String channel_id;
+
+	/**
+	 * The ID of the guild the messages belonged to. Null for private channels.
+	 */
+	public String guild_id;
 }
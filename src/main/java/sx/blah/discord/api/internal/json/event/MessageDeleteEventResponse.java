@@ -32,6 +32,11 @@ public class MessageDeleteEventResponse {
 	 */
 	public String channel_id;
 
+	/**
+	 * The ID of the guild the message belonged to. Null for private channels.
+	 */
+	public String guild_id;
+
 	public MessageDeleteEventResponse() {}
 
 	public MessageDeleteEventResponse(String id, String channel_id) {
@@ -39,4 +39,8 @@ public class ReactionEventResponse {
 	 * The ID of the channel.
 	 */
 	public String channel_id;
+	/**
+	 * The ID of the guild. Null for private channels.
+	 */
+	public String guild_id;
 }
@@ -36,4 +36,9 @@ public class TypingEventResponse {
 	 * The ID of the channel where the user is typing.
 	 */
 	public String channel_id;
+
+	/**
+	 * The ID of the guild where the user is typing. Null for private channels.
+	 */
+	public String guild_id;
 }
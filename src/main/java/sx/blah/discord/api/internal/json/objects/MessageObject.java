@@ -33,6 +33,10 @@ public class MessageObject {
 	 * The channel ID for the channel this message was sent in.
 	 */
 	public String channel_id;
+	/**
+	 * The ID of the guild this message was sent in. Null for private channels.
+	 */
+	public String guild_id;
 	/**
 	 * The author of the message.
 	 */
@@ -18,13 +18,13 @@
 package sx.blah.discord.api.internal.json.requests;
 
 /**
- * Sent to request offline members on the gateway for a guild.
+ * Sent to request offline members on the gateway for one or more guilds.
  */
 public class GuildMembersRequest {
 	/**
-	 * The ID of the guild.
+	 * The IDs of the guilds.
 	 */
-	public String guild_id;
+	public String[] guild_id;
 	/**
 	 * String the username starts with or empty for all users.
 	 */
@@ -34,7 +34,7 @@ public class GuildMembersRequest {
 	 */
 	public int limit = 0;
 
-	public GuildMembersRequest(String guild_id) {
+	public GuildMembersRequest(String... guild_id) {
 		this.guild_id = guild_id;
 	}
 }
@@ -27,4 +27,8 @@ public class HelloResponse {
 	 * How long to wait in between heartbeats.
 	 */
 	public long heartbeat_interval;
+	/**
+	 * The servers which handled the connection. Used for debugging.
+	 */
+	public String[] _trace;
 }
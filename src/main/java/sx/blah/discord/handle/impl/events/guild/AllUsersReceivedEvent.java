@@ -20,8 +20,8 @@ package sx.blah.discord.handle.impl.events.guild;
 import sx.blah.discord.handle.obj.IGuild;
 
 /**
- * Dispatched when guild member chunking completes for a guild. Member chunking is automatically performed for guilds
- * with more members than 250 members.
+ * Dispatched when guild member chunking completes for a guild. Member chunking is performed for guilds with more than
+ * 250 members according to the client's {@link sx.blah.discord.api.MemberLoadingStrategy}.
  *
  * @see <a href=https://discordapp.com/developers/docs/topics/gateway#gateway-request-guild-members>Member Chunking</a>
  */
@@ -779,7 +779,7 @@ public class Channel implements IChannel {
 
 	@Override
 	public List<IUser> getUsersHere() {
-		return guild.getUsers().stream().filter((user) -> {
+		return ((Guild) guild).users.stream().filter((user) -> {
 			EnumSet<Permissions> permissions = getModifiedPermissions(user);
 			return Permissions.READ_MESSAGES.hasPermission(Permissions.generatePermissionsNumber(permissions), true);
 		}).collect(Collectors.toList());
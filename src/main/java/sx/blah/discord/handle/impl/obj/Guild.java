@@ -45,6 +45,7 @@ import java.net.URLEncoder;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -160,6 +161,12 @@ public class Guild implements IGuild {
 	 */
 	private volatile long systemChannelId;
 
+	/**
+	 * Requests the guild's members the first time the member list is accessed. Null if the members have already been
+	 * requested or shouldn't be requested.
+	 */
+	private final AtomicReference<Runnable> memberLoader = new AtomicReference<>();
+
 	public Guild(IShard shard, String name, long id, String icon, long ownerID, long afkChannel, int afkTimeout, String region, int verification, long systemChannelId) {
 		this(shard, name, id, icon, ownerID, afkChannel, afkTimeout, region, verification, systemChannelId,
 				new Cache<>((DiscordClientImpl) shard.getClient(), IRole.class), new Cache<>((DiscordClientImpl) shard.getClient(), IChannel.class),
@@ -253,6 +260,7 @@ public class Guild implements IGuild {
 
 	@Override
 	public List<IUser> getUsers() {
+		loadMembers();
 		return new LinkedList<>(users.values());
 	}
 
@@ -282,6 +290,7 @@ public class Guild implements IGuild {
 
 	@Override
 	public List<IUser> getUsersByName(String name, boolean includeNicknames) {
+		loadMembers();
 		return users.stream()
 				.filter(u -> includeNicknames ? u.getDisplayName(this).equals(name) : u.getName().equals(name))
 				.collect(Collectors.toList());
@@ -289,6 +298,7 @@ public class Guild implements IGuild {
 
 	@Override
 	public List<IUser> getUsersByRole(IRole role) {
+		loadMembers();
 		return users.stream()
 				.filter(user -> user.getRolesForGuild(this).contains(role))
 				.collect(Collectors.toList());
@@ -943,6 +953,23 @@ public class Guild implements IGuild {
 		return totalMemberCount;
 	}
 
+	/**
+	 * Sets the task which requests the guild's members the first time the member list is accessed.
+	 *
+	 * @param memberLoader The task which requests the guild's members.
+	 */
+	public void setMemberLoader(Runnable memberLoader) {
+		this.memberLoader.set(memberLoader);
+	}
+
+	/**
+	 * Requests the guild's members if they are loaded lazily and have not been requested yet.
+	 */
+	private void loadMembers() {
+		Runnable loader = memberLoader.getAndSet(null);
+		if (loader != null) loader.run();
+	}
+
 	/**
 	 * Sets the CACHED total member count of the guild.
 	 *
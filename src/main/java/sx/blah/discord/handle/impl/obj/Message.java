@@ -284,7 +284,7 @@ public class Message implements IMessage {
 	@Override
 	public List<IUser> getMentions() {
 		if (mentionsEveryone) {
-			return channel.isPrivate() ? channel.getUsersHere() : channel.getGuild().getUsers();
+			return channel.isPrivate() ? channel.getUsersHere() : new ArrayList<>(((Guild) channel.getGuild()).users.values());
 		}
 
 		return mentions.stream()
@@ -370,7 +370,7 @@ public class VoiceChannel extends Channel implements IVoiceChannel {
 
 	@Override
 	public List<IUser> getConnectedUsers() {
-		return guild.getUsers().stream().filter(u -> this.equals(u.getVoiceStateForGuild(guild).getChannel())).collect(Collectors.toList());
+		return ((Guild) guild).users.stream().filter(u -> this.equals(u.getVoiceStateForGuild(guild).getChannel())).collect(Collectors.toList());
 	}
 
 	@Override
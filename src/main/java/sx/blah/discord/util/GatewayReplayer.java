@@ -0,0 +1,67 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util;
+
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.internal.DiscordClientImpl;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays a journal recorded with {@link sx.blah.discord.api.ClientBuilder#withGatewayJournal(File)} through a client,
+ * without connecting to Discord. The client's cache is built and its events are dispatched exactly as they were when
+ * the payloads were received, which makes it possible to profile and test the handling of real traffic offline.
+ *
+ * <p>Only dispatch payloads are replayed. A shard is created in the client for every shard which appears in the
+ * journal. The client must have been built but not logged in.
+ *
+ * <pre>{@code
+ * IDiscordClient client = new ClientBuilder().withToken(token).build();
+ * client.getDispatcher().registerListener(new MyListener());
+ * long replayed = new GatewayReplayer(client).replay(new File("journal"), false);
+ * }</pre>
+ */
+public class GatewayReplayer {
+
+	/**
+	 * The client the journal is replayed through.
+	 */
+	private final DiscordClientImpl client;
+
+	public GatewayReplayer(IDiscordClient client) {
+		if (!client.getShards().isEmpty())
+			throw new IllegalStateException("A journal can only be replayed through a client which is not logged in");
+
+		this.client = (DiscordClientImpl) client;
+	}
+
+	/**
+	 * Replays every segment of a journal in order and waits for the payloads to be handled.
+	 *
+	 * @param directory The journal directory.
+	 * @param originalPace Whether payloads should be replayed at the pace they were received rather than as fast as
+	 * possible.
+	 * @return The number of payloads replayed.
+	 * @throws IOException If the journal could not be read.
+	 * @throws InterruptedException If the current thread was interrupted while waiting.
+	 */
+	public long replay(File directory, boolean originalPace) throws IOException, InterruptedException {
+		return client.replayJournal(directory, originalPace);
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of non-negative values, usually durations.
+ *
+ * <p>Values are counted in buckets which grow exponentially in size, with each power of two split into 8 buckets, so
+ * percentiles are accurate to within 12.5% no matter the magnitude of the values. Recording a value never allocates or
+ * blocks.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of bits of a value (below its highest bit) which select its bucket within a power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 3;
+	/**
+	 * The number of buckets each power of two is split into.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The number of values in each bucket.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+	/**
+	 * The number of values recorded.
+	 */
+	private final LongAdder count = new LongAdder();
+	/**
+	 * The sum of the values recorded.
+	 */
+	private final LongAdder sum = new LongAdder();
+	/**
+	 * The smallest value recorded.
+	 */
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	/**
+	 * The largest value recorded.
+	 */
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value The value. Negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(getBucket(value));
+		count.increment();
+		sum.add(value);
+		min.accumulateAndGet(value, Math::min);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return The number of values recorded.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the smallest value recorded.
+	 *
+	 * @return The smallest value recorded, or 0 if no values have been recorded.
+	 */
+	public long getMin() {
+		long min = this.min.get();
+		return min == Long.MAX_VALUE ? 0 : min;
+	}
+
+	/**
+	 * Gets the largest value recorded.
+	 *
+	 * @return The largest value recorded, or 0 if no values have been recorded.
+	 */
+	public long getMax() {
+		long max = this.max.get();
+		return max == Long.MIN_VALUE ? 0 : max;
+	}
+
+	/**
+	 * Gets the mean of the values recorded.
+	 *
+	 * @return The mean of the values recorded, or 0 if no values have been recorded.
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * Gets the value which the given percentage of recorded values are less than or equal to.
+	 *
+	 * @param percentile The percentage, between 0 and 100.
+	 * @return The value at the percentile, or 0 if no values have been recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+
+		long total = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			total += buckets.get(i);
+		}
+		if (total == 0) return 0;
+
+		long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= target) {
+				// The highest value in the bucket, but never more than the largest value actually recorded
+				return Math.min(getMax(), getBucketStart(i) + getBucketSize(i) - 1);
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		min.set(Long.MAX_VALUE);
+		max.set(Long.MIN_VALUE);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, min=%d, mean=%.2f, p50=%d, p99=%d, max=%d",
+				getCount(), getMin(), getMean(), getPercentile(50), getPercentile(99), getMax());
+	}
+
+	/**
+	 * Gets the index of the bucket a value is counted in.
+	 *
+	 * @param value The non-negative value.
+	 * @return The index of the bucket.
+	 */
+	private static int getBucket(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Gets the smallest value counted in a bucket.
+	 *
+	 * @param bucket The index of the bucket.
+	 * @return The smallest value in the bucket.
+	 */
+	private static long getBucketStart(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * Gets the number of distinct values counted in a bucket.
+	 *
+	 * @param bucket The index of the bucket.
+	 * @return The size of the bucket.
+	 */
+	private static long getBucketSize(int bucket) {
+		if (bucket < SUB_BUCKETS) return 1;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		return 1L << (exponent - SUB_BUCKET_BITS);
+	}
+}
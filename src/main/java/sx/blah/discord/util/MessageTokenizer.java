@@ -23,7 +23,6 @@ import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.handle.obj.*;
 
-import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -640,9 +639,7 @@ public class MessageTokenizer {
 			final String content = getContent();
 			final long emojiId = Long.parseUnsignedLong(content.substring(content.lastIndexOf(":") + 1, content.lastIndexOf('>')));
 
-			emoji = tokenizer.getClient().getGuilds().stream()
-					.map(guild -> guild.getEmojiByID(emojiId)).filter(Objects::nonNull).findFirst()
-					.orElse(null);
+			emoji = tokenizer.getClient().getEmojiByID(emojiId);
 		}
 
 		/**
@@ -0,0 +1,75 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * An {@link ISessionStore} which stores the session of each shard in a file in a directory. The directory is created
+ * when the first session is saved.
+ */
+public class FileSessionStore implements ISessionStore {
+
+	/**
+	 * The directory the sessions are stored in.
+	 */
+	private final Path directory;
+
+	public FileSessionStore(File directory) {
+		this.directory = directory.toPath();
+	}
+
+	@Override
+	public void save(int shard, byte[] session) throws IOException {
+		Files.createDirectories(directory);
+		// Written to a temporary file first so a crash while saving never leaves a partial session behind
+		Path temp = Files.createTempFile(directory, "shard-" + shard, ".tmp");
+		try {
+			Files.write(temp, session);
+			Files.move(temp, getFile(shard), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	@Override
+	public byte[] load(int shard) throws IOException {
+		try {
+			return Files.readAllBytes(getFile(shard));
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void delete(int shard) throws IOException {
+		Files.deleteIfExists(getFile(shard));
+	}
+
+	/**
+	 * Gets the file the session of a shard is stored in.
+	 *
+	 * @param shard The index of the shard.
+	 * @return The file of the shard's session.
+	 */
+	private Path getFile(int shard) {
+		return directory.resolve("shard-" + shard + ".session");
+	}
+}
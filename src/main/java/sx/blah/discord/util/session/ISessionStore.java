@@ -0,0 +1,58 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util.session;
+
+import java.io.IOException;
+
+/**
+ * Stores the sessions of a client's shards between runs so they can be resumed.
+ *
+ * <p>Sessions are opaque to the store. Implementations <b>MUST</b> be thread-safe, as shards save and load their
+ * sessions concurrently.
+ *
+ * @see FileSessionStore
+ */
+public interface ISessionStore {
+
+	/**
+	 * Saves the session of a shard, replacing any session which was previously saved for it.
+	 *
+	 * @param shard The index of the shard.
+	 * @param session The serialized session.
+	 * @throws IOException If the session could not be saved.
+	 */
+	void save(int shard, byte[] session) throws IOException;
+
+	/**
+	 * Loads the session of a shard.
+	 *
+	 * @param shard The index of the shard.
+	 * @return The serialized session, or null if no session is saved for the shard.
+	 * @throws IOException If the session could not be loaded.
+	 */
+	byte[] load(int shard) throws IOException;
+
+	/**
+	 * Deletes the session of a shard. This is called once the session has been loaded, so a session is never resumed
+	 * twice.
+	 *
+	 * @param shard The index of the shard.
+	 * @throws IOException If the session could not be deleted.
+	 */
+	void delete(int shard) throws IOException;
+}
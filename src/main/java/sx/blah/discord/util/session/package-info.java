@@ -0,0 +1,30 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This package contains classes related to session persistence.
+ *
+ * <p>When the client is built with a {@link sx.blah.discord.util.session.ISessionStore session store}, each shard saves
+ * its gateway session and a snapshot of its cache to the store when the client logs out. The next time the client
+ * logs in, the shards rebuild their caches from their snapshots and resume their sessions instead of identifying, so
+ * Discord doesn't have to send every guild again. If a session can no longer be resumed, the shard identifies as
+ * usual.
+ *
+ * <p>{@link sx.blah.discord.util.session.FileSessionStore} is the default implementation, which stores each shard's
+ * session in a file.
+ */
+package sx.blah.discord.util.session;
@@ -18,15 +18,26 @@ package sx.blah.discord.api.events;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.handle.impl.events.guild.channel.message.MessageDeleteEvent;
 import sx.blah.discord.handle.impl.events.guild.channel.message.MessageEvent;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -202,14 +213,190 @@ public class EventDispatcherTest {
 			}
 		});
 		thread.start();
-		AtomicReference<HashSet<Object>> internalRegistry = getInternalRegistry(eventDispatcher);
-		for (int i = 0; internalRegistry.get().isEmpty() && i < 10; i++) { //await for the listener to be registered
+		for (int i = 0; getWaiterCount(eventDispatcher) == 0 && i < 10; i++) { //await for the waiter to be added
 			Thread.sleep(50);
 		}
-		assertEquals(1, internalRegistry.get().size());
+		assertEquals(1, getWaiterCount(eventDispatcher));
+		assertEquals(0, getInternalRegistry(eventDispatcher).get().size());
 		eventDispatcher.dispatch(new MyEvent());
 		MyEvent result = interThreadExchange.poll(1, TimeUnit.MINUTES);
 		assertNotNull(result);
+		assertEquals(0, getWaiterCount(eventDispatcher));
+	}
+
+	@Test
+	public void testWaitForAsync() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		CompletableFuture<MyEvent> matching = eventDispatcher.waitForAsync((MyEvent e) -> e.getClient() == null);
+		CompletableFuture<MyEvent> timingOut = eventDispatcher.waitForAsync(MyEvent.class, 10, TimeUnit.MILLISECONDS);
+		assertEquals(2, getWaiterCount(eventDispatcher));
+
+		try {
+			timingOut.get(1, TimeUnit.MINUTES);
+			fail("The future should have timed out");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertFalse(matching.isDone());
+
+		MyEvent evt = new MyEvent();
+		eventDispatcher.dispatch(evt);
+		assertSame(evt, matching.getNow(null));
+		assertEquals(0, getWaiterCount(eventDispatcher));
+	}
+
+	@Test
+	public void testWaiterCountsAsListener() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		assertFalse(eventDispatcher.hasListeners(MyEvent.class));
+
+		// The gateway skips events nothing listens to, so a waiter must be enough for the event to be built
+		CompletableFuture<Event> waiter = eventDispatcher.waitForAsync(Event.class);
+		assertTrue(eventDispatcher.hasListeners(MyEvent.class));
+
+		MyEvent evt = new MyEvent();
+		if (eventDispatcher.hasListeners(MyEvent.class)) eventDispatcher.dispatch(evt);
+		assertSame(evt, waiter.get(1, TimeUnit.MINUTES));
+		assertFalse(eventDispatcher.hasListeners(MyEvent.class));
+	}
+
+	@Test
+	public void testBatchFlushedWhenFull() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		List<List<MyEvent>> batches = new ArrayList<>();
+		eventDispatcher.registerBatchListener(Runnable::run, MyEvent.class, 3, 1, TimeUnit.HOURS, batches::add);
+
+		MyEvent[] events = new MyEvent[7];
+		for (int i = 0; i < events.length; i++) {
+			events[i] = new MyEvent();
+			eventDispatcher.dispatch(events[i]);
+		}
+		// The seventh event waits for the delay, which is far off
+		assertEquals(Arrays.asList(
+				Arrays.asList(events[0], events[1], events[2]),
+				Arrays.asList(events[3], events[4], events[5])), batches);
+	}
+
+	@Test
+	public void testBatchFlushedAfterDelay() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		CompletableFuture<List<MyEvent>> batch = new CompletableFuture<>();
+		eventDispatcher.registerBatchListener(Runnable::run, MyEvent.class, 100, 50, TimeUnit.MILLISECONDS, batch::complete);
+
+		MyEvent first = new MyEvent();
+		MyEvent second = new MyEvent();
+		eventDispatcher.dispatch(first);
+		eventDispatcher.dispatch(second);
+		assertEquals(Arrays.asList(first, second), batch.get(1, TimeUnit.MINUTES));
+	}
+
+	@Test
+	public void testDelayedBatchNotHandledOnScheduler() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		CompletableFuture<String> thread = new CompletableFuture<>();
+		eventDispatcher.registerBatchListener(Runnable::run, MyEvent.class, 100, 50, TimeUnit.MILLISECONDS,
+				(IBatchListener<MyEvent>) events -> thread.complete(Thread.currentThread().getName()));
+
+		eventDispatcher.dispatch(new MyEvent());
+		assertNotEquals("Event Dispatcher Scheduler", thread.get(1, TimeUnit.MINUTES));
+	}
+
+	@Test
+	public void testBatchFlushedOnUnregister() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		List<List<MyEvent>> batches = new ArrayList<>();
+		IBatchListener<MyEvent> listener = batches::add;
+		eventDispatcher.registerBatchListener(Runnable::run, MyEvent.class, 100, 1, TimeUnit.HOURS, listener);
+
+		MyEvent first = new MyEvent();
+		MyEvent second = new MyEvent();
+		eventDispatcher.dispatch(first);
+		eventDispatcher.dispatch(second);
+		assertTrue(batches.isEmpty());
+
+		eventDispatcher.unregisterListener(listener);
+		assertEquals(Collections.singletonList(Arrays.asList(first, second)), batches);
+		assertEquals(0, getInternalRegistry(eventDispatcher).get().size());
+
+		eventDispatcher.dispatch(new MyEvent());
+		assertEquals(1, batches.size());
+	}
+
+	@Test
+	public void testBatchesSubmittedInOrder() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		List<SequencedEvent> handled = new ArrayList<>();
+		IBatchListener<SequencedEvent> listener = handled::addAll;
+		eventDispatcher.registerBatchListener(Runnable::run, SequencedEvent.class, 4, 1, TimeUnit.HOURS, listener);
+
+		// Several threads dispatch at once, as the dispatch lanes of different guilds do
+		int threads = 4;
+		int perThread = 10000;
+		List<Thread> dispatchers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int source = t;
+			dispatchers.add(new Thread(() -> {
+				for (int i = 0; i < perThread; i++) eventDispatcher.dispatch(new SequencedEvent(source, i));
+			}));
+		}
+		dispatchers.forEach(Thread::start);
+		for (Thread thread : dispatchers) thread.join();
+		eventDispatcher.unregisterListener(listener);
+
+		// Every thread's events must be handled in the order that thread dispatched them
+		assertEquals(threads * perThread, handled.size());
+		int[] next = new int[threads];
+		for (SequencedEvent event : handled) {
+			assertEquals(next[event.source]++, event.sequence);
+		}
+	}
+
+	@Test
+	public void testPublisherDemand() throws Exception {
+		EventDispatcher eventDispatcher = new EventDispatcher(null, new EventDispatcher.CallerRunsPolicy(),
+				1, Runtime.getRuntime().availableProcessors() * 4, 128,
+				60L, TimeUnit.SECONDS);
+		List<MyEvent> received = new ArrayList<>();
+		AtomicReference<Subscription> subscription = new AtomicReference<>();
+		eventDispatcher.getPublisher(MyEvent.class, 2, ListenerMailbox.OverflowPolicy.DROP_OLDEST).subscribe(new Subscriber<MyEvent>() {
+			@Override public void onSubscribe(Subscription s) {
+				subscription.set(s);
+				s.request(1);
+			}
+			@Override public void onNext(MyEvent event) {
+				received.add(event);
+			}
+			@Override public void onError(Throwable t) {}
+			@Override public void onComplete() {}
+		});
+		assertEquals(1, getInternalRegistry(eventDispatcher).get().size());
+
+		MyEvent[] events = new MyEvent[4];
+		for (int i = 0; i < events.length; i++) {
+			events[i] = new MyEvent();
+			eventDispatcher.dispatch(events[i]);
+		}
+		assertEquals(Collections.singletonList(events[0]), received); // Only one was requested, the rest are buffered
+
+		subscription.get().request(10);
+		assertEquals(Arrays.asList(events[0], events[2], events[3]), received); // The oldest buffered event was dropped
+
+		subscription.get().cancel();
+		assertEquals(0, getInternalRegistry(eventDispatcher).get().size());
 	}
 
 	@Test
@@ -256,9 +443,26 @@ public class EventDispatcherTest {
 		return (AtomicReference<HashSet<Object>>) declaredField.get(dispatcher);
 	}
 
+	private int getWaiterCount(EventDispatcher dispatcher) throws Exception {
+		Field declaredField = EventDispatcher.class.getDeclaredField("waiters");
+		declaredField.setAccessible(true);
+		return ((Map<?, Set<?>>) declaredField.get(dispatcher)).values().stream().mapToInt(Set::size).sum();
+	}
+
 	class MyEvent extends Event {
 	}
 
+	class SequencedEvent extends Event {
+
+		final int source;
+		final int sequence;
+
+		SequencedEvent(int source, int sequence) {
+			this.source = source;
+			this.sequence = sequence;
+		}
+	}
+
 	static class StaticAndInstanceEventHandler {
 
 		@EventSubscriber public void handleInstance(MessageEvent e) {
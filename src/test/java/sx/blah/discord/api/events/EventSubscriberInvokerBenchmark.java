@@ -0,0 +1,92 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.events;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways an event can reach a listener: through the method handle {@link EventSubscriber} methods used to
+ * be called with, through a generated {@link EventSubscriberInvoker} and through a hand-written {@link IListener}.
+ *
+ * <p>This is not run with the tests. Run {@link #main(String[])} from the test classpath. A generated invoker should
+ * be within a nanosecond of the hand-written listener, and several times faster than the method handle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventSubscriberInvokerBenchmark {
+
+	private final BenchmarkEvent event = new BenchmarkEvent();
+	private final Subscriber subscriber = new Subscriber();
+	private MethodHandle methodHandle;
+	private IListener<Event> generatedInvoker;
+	private IListener<BenchmarkEvent> handWritten;
+
+	@Setup
+	public void setup() throws Exception {
+		Method method = Subscriber.class.getMethod("onEvent", BenchmarkEvent.class);
+		methodHandle = MethodHandles.lookup().unreflect(method).bindTo(subscriber);
+		generatedInvoker = EventSubscriberInvoker.create(method, subscriber);
+		handWritten = subscriber::onEvent;
+		if (generatedInvoker == null) throw new IllegalStateException("Unable to generate an invoker");
+	}
+
+	@Benchmark
+	public long methodHandle() throws Throwable {
+		methodHandle.invoke((Event) event);
+		return subscriber.count;
+	}
+
+	@Benchmark
+	public long generatedInvoker() {
+		generatedInvoker.handle(event);
+		return subscriber.count;
+	}
+
+	@Benchmark
+	public long handWritten() {
+		handWritten.handle(event);
+		return subscriber.count;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(EventSubscriberInvokerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	public static class BenchmarkEvent extends Event {
+	}
+
+	public static class Subscriber {
+		long count;
+
+		@EventSubscriber
+		public void onEvent(BenchmarkEvent event) {
+			count++;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.events;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ListenerMailboxTest {
+
+	private final List<String> handled = new CopyOnWriteArrayList<>();
+	private final CountDownLatch blockerRunning = new CountDownLatch(1);
+	private final CountDownLatch releaseBlocker = new CountDownLatch(1);
+	private ListenerMailbox mailbox;
+
+	@After
+	public void closeMailbox() {
+		releaseBlocker.countDown();
+		if (mailbox != null) mailbox.close();
+	}
+
+	@Test
+	public void testDropNewest() throws Exception {
+		mailbox = blockedMailbox(2, ListenerMailbox.OverflowPolicy.DROP_NEWEST);
+		mailbox.execute(record("a"));
+		mailbox.execute(record("b"));
+		try {
+			mailbox.execute(record("c"));
+			fail("The mailbox should have rejected the task");
+		} catch (RejectedExecutionException expected) {
+		}
+		assertEquals(1, mailbox.getDroppedCount());
+
+		awaitHandled(2);
+		assertEquals(Arrays.asList("a", "b"), handled);
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+		mailbox = blockedMailbox(2, ListenerMailbox.OverflowPolicy.DROP_OLDEST);
+		mailbox.execute(record("a"));
+		mailbox.execute(record("b"));
+		mailbox.execute(record("c"));
+		assertEquals(2, mailbox.getQueueDepth());
+		assertEquals(1, mailbox.getDroppedCount());
+
+		awaitHandled(2);
+		assertEquals(Arrays.asList("b", "c"), handled);
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+		mailbox = blockedMailbox(2, ListenerMailbox.OverflowPolicy.BLOCK);
+		mailbox.execute(record("a"));
+		mailbox.execute(record("b"));
+
+		Thread producer = new Thread(() -> mailbox.execute(record("c")));
+		producer.start();
+		producer.join(100);
+		assertTrue("The producer should wait for room", producer.isAlive());
+
+		releaseBlocker.countDown();
+		producer.join(TimeUnit.MINUTES.toMillis(1));
+		awaitHandled(3);
+		assertEquals(Arrays.asList("a", "b", "c"), handled);
+		assertEquals(0, mailbox.getDroppedCount());
+	}
+
+	@Test
+	public void testKeepLatestPerKey() throws Exception {
+		mailbox = blockedMailbox(3, ListenerMailbox.OverflowPolicy.KEEP_LATEST_PER_KEY);
+		Object listener = new Object();
+		Object otherListener = new Object();
+		assertTrue(mailbox.offer(listener, new KeyedEvent("x"), record("x1")));
+		assertTrue(mailbox.offer(listener, new KeyedEvent("y"), record("y")));
+		assertTrue(mailbox.offer(listener, new KeyedEvent("x"), record("x2"))); // Replaces x1, keeping its place
+		assertTrue(mailbox.offer(otherListener, new KeyedEvent("x"), record("other x"))); // Keys are per listener
+		assertEquals(3, mailbox.getQueueDepth());
+		assertEquals(1, mailbox.getDroppedCount());
+
+		assertTrue(mailbox.offer(listener, new KeyedEvent("z"), record("z"))); // Full, so the oldest is dropped
+		assertEquals(2, mailbox.getDroppedCount());
+
+		awaitHandled(3);
+		assertEquals(Arrays.asList("y", "other x", "z"), handled);
+	}
+
+	@Test
+	public void testClosed() throws Exception {
+		mailbox = new ListenerMailbox("Test", 2, ListenerMailbox.OverflowPolicy.BLOCK);
+		mailbox.close();
+		assertFalse(mailbox.offer(null, null, record("a")));
+		try {
+			mailbox.execute(record("b"));
+			fail("The mailbox should have rejected the task");
+		} catch (RejectedExecutionException expected) {
+		}
+		assertEquals(2, mailbox.getDroppedCount());
+		assertTrue(handled.isEmpty());
+	}
+
+	@Test
+	public void testReentrantOffer() throws Exception {
+		mailbox = new ListenerMailbox("Test", 1, ListenerMailbox.OverflowPolicy.BLOCK);
+		// A listener dispatching events to its own full mailbox must not wait for itself
+		mailbox.execute(() -> {
+			mailbox.execute(record("queued"));
+			mailbox.execute(record("inline"));
+			handled.add("outer");
+		});
+
+		awaitHandled(3);
+		assertEquals(Arrays.asList("inline", "outer", "queued"), handled);
+	}
+
+	/**
+	 * Creates a mailbox whose thread is busy until {@link #releaseBlocker} is released, so tasks stay queued.
+	 */
+	private ListenerMailbox blockedMailbox(int capacity, ListenerMailbox.OverflowPolicy policy) throws InterruptedException {
+		ListenerMailbox mailbox = new ListenerMailbox("Test", capacity, policy, event -> ((KeyedEvent) event).key);
+		mailbox.execute(() -> {
+			blockerRunning.countDown();
+			try {
+				releaseBlocker.await();
+			} catch (InterruptedException ignored) {
+			}
+		});
+		assertTrue(blockerRunning.await(1, TimeUnit.MINUTES));
+		return mailbox;
+	}
+
+	private Runnable record(String name) {
+		return () -> handled.add(name);
+	}
+
+	private void awaitHandled(int count) throws InterruptedException {
+		releaseBlocker.countDown();
+		for (int i = 0; handled.size() < count && i < 1000; i++) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(10); // Any extra task would be handled by now
+		assertEquals(count, handled.size());
+	}
+
+	static class KeyedEvent extends Event {
+		final Object key;
+
+		KeyedEvent(Object key) {
+			this.key = key;
+		}
+	}
+}
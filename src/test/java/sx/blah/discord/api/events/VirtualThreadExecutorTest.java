@@ -0,0 +1,96 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.events;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+public class VirtualThreadExecutorTest {
+
+	@Test
+	public void testCreate() throws Exception {
+		boolean supported;
+		try {
+			Class.forName("java.lang.Thread$Builder");
+			supported = true;
+		} catch (ClassNotFoundException e) {
+			supported = false;
+		}
+
+		// The dispatcher falls back to its thread pool when this returns null
+		assertEquals(supported, VirtualThreadExecutor.create("Test", 1) != null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreateWithoutConcurrency() throws Exception {
+		VirtualThreadExecutor.create("Test", 0);
+	}
+
+	@Test
+	public void testMaximumConcurrency() throws Exception {
+		VirtualThreadExecutor executor = VirtualThreadExecutor.create("Test", 4);
+		assumeNotNull(executor);
+
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(64);
+		for (int i = 0; i < 64; i++) {
+			executor.execute(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException ignored) {
+				}
+				running.decrementAndGet();
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(1, TimeUnit.MINUTES));
+		assertTrue(maxRunning.get() <= 4);
+	}
+
+	@Test
+	public void testReentrantExecute() throws Exception {
+		VirtualThreadExecutor executor = VirtualThreadExecutor.create("Test", 2);
+		assumeNotNull(executor);
+
+		// Every permit is held by a task which waits for a task it submits (like a listener dispatching an event)
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch done = new CountDownLatch(2);
+		for (int i = 0; i < 2; i++) {
+			executor.execute(() -> {
+				started.countDown();
+				try {
+					started.await();
+					CountDownLatch nested = new CountDownLatch(1);
+					executor.execute(nested::countDown);
+					if (nested.await(1, TimeUnit.MINUTES)) done.countDown();
+				} catch (InterruptedException ignored) {
+				}
+			});
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import sx.blah.discord.api.internal.json.GatewayPayload;
+import sx.blah.discord.api.internal.json.objects.UserObject;
+import sx.blah.discord.api.internal.json.responses.ReadyResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class EtfCodecTest {
+
+	@Test
+	public void testDecodeSnowflakes() throws Exception {
+		JsonNode small = decode(map(binary("id"), smallBig(412345678901234567L)));
+		assertTrue(small.get("id").isIntegralNumber());
+		assertEquals(412345678901234567L, small.get("id").longValue());
+		assertEquals(-412345678901234567L, decode(smallBig(-412345678901234567L)).longValue());
+
+		BigInteger max = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+		assertEquals(max, decode(largeBig(max)).bigIntegerValue());
+		assertEquals(BigInteger.valueOf(Long.MAX_VALUE), decode(largeBig(BigInteger.valueOf(Long.MAX_VALUE))).bigIntegerValue());
+
+		// Snowflakes are bound to the String fields which hold IDs
+		try (JsonParser parser = parser(map(atom("id"), smallBig(412345678901234567L), atom("username"), binary("Bot")))) {
+			UserObject user = DiscordUtils.MAPPER.readValue(parser, UserObject.class);
+			assertEquals("412345678901234567", user.id);
+			assertEquals("Bot", user.username);
+		}
+	}
+
+	@Test
+	public void testDecodeMapsAndLists() throws Exception {
+		JsonNode node = decode(map(
+				atom("atom_key"), smallInt(1),
+				binary("binary_key"), list(smallInt(2), integer(-300), binary("three")),
+				smallInt(4), nil()
+		));
+		assertEquals(1, node.get("atom_key").intValue());
+		assertEquals(DiscordUtils.MAPPER.readTree("[2,-300,\"three\"]"), node.get("binary_key"));
+		assertTrue(node.get("4").isArray()); // A bare NIL_EXT is the empty list
+		assertEquals(0, node.get("4").size());
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testDecodeImproperList() throws Exception {
+		decode(concat(new byte[]{108, 0, 0, 0, 1}, smallInt(1), smallInt(2)));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testDecodeTruncated() throws Exception {
+		byte[] term = term(binary("truncated"));
+		try (JsonParser parser = EtfCodec.createParser(term, 0, term.length - 1)) {
+			DiscordUtils.MAPPER.readTree(parser);
+		}
+	}
+
+	@Test
+	public void testDecodeStringExt() throws Exception {
+		// Erlang encodes any list of integers from 0 to 255 as a STRING_EXT
+		JsonNode node = decode(string(0, 2, 255));
+		assertEquals(DiscordUtils.MAPPER.readTree("[0,2,255]"), node);
+
+		try (JsonParser parser = parser(string(1, 4))) {
+			assertArrayEquals(new int[]{1, 4}, DiscordUtils.MAPPER.readValue(parser, int[].class));
+		}
+	}
+
+	@Test
+	public void testDecodeAtoms() throws Exception {
+		assertTrue(decode(atom("nil")).isNull());
+		assertTrue(decode(atom("true")).booleanValue());
+		assertTrue(decode(atom("false")).isBoolean());
+		assertFalse(decode(atom("false")).booleanValue());
+		assertEquals("READY", decode(atom("READY")).textValue());
+	}
+
+	@Test
+	public void testDecodeReady() throws Exception {
+		byte[] ready = term(map(
+				atom("t"), atom("READY"),
+				atom("s"), smallInt(1),
+				atom("op"), smallInt(0),
+				atom("d"), map(
+						atom("v"), smallInt(6),
+						atom("user"), map(
+								atom("username"), binary("Bot"),
+								atom("id"), smallBig(412345678901234567L),
+								atom("discriminator"), binary("0001"),
+								atom("bot"), atom("true"),
+								atom("avatar"), atom("nil")
+						),
+						atom("shard"), string(1, 2),
+						atom("session_id"), binary("7b13d8a1e4c2f1a0"),
+						atom("private_channels"), nil(),
+						atom("guilds"), list(
+								map(atom("id"), smallBig(81384788765712384L), atom("unavailable"), atom("true")),
+								map(atom("id"), smallBig(290926798626357250L), atom("unavailable"), atom("true"))
+						),
+						atom("_trace"), list(binary("gateway-prd-main-1"), binary("discord-sessions-prd-1-2"))
+				)
+		));
+
+		GatewayPayload payload;
+		try (JsonParser parser = EtfCodec.createParser(ready, 0, ready.length)) {
+			payload = GatewayPayloadDecoder.decode(parser, Collections.emptySet());
+		}
+		assertEquals(Integer.valueOf(0), payload.op);
+		assertEquals(Long.valueOf(1), payload.s);
+		assertEquals("READY", payload.t);
+
+		ReadyResponse response = (ReadyResponse) payload.d;
+		assertEquals("6", response.v);
+		assertEquals("412345678901234567", response.user.id);
+		assertEquals("Bot", response.user.username);
+		assertTrue(response.user.bot);
+		assertNull(response.user.avatar);
+		assertArrayEquals(new int[]{1, 2}, response.shard);
+		assertEquals("7b13d8a1e4c2f1a0", response.session_id);
+		assertEquals(0, response.private_channels.length);
+		assertEquals(2, response.guilds.length);
+		assertEquals("290926798626357250", response.guilds[1].id);
+		assertTrue(response.guilds[1].unavailable);
+		assertArrayEquals(new String[]{"gateway-prd-main-1", "discord-sessions-prd-1-2"}, response._trace);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		JsonNode tree = DiscordUtils.MAPPER.readTree("{\"op\":2,\"d\":{\"token\":\"abc\",\"large_threshold\":250,"
+				+ "\"shard\":[0,2],\"id\":412345678901234567,\"max\":18446744073709551615,\"negative\":-3000000000,"
+				+ "\"since\":1.5,\"afk\":false,\"compress\":true,\"game\":null,\"name\":\"h\u00e9llo \ud83d\udc4b\","
+				+ "\"empty\":[],\"nested\":{\"list\":[{},[1]]}}}");
+		byte[] encoded = EtfCodec.encode(tree);
+		assertTrue(EtfCodec.isEtf(encoded, 0, encoded.length));
+		try (JsonParser parser = EtfCodec.createParser(encoded, 0, encoded.length)) {
+			assertEquals(tree, DiscordUtils.MAPPER.readTree(parser));
+		}
+	}
+
+	private static JsonNode decode(byte[] term) throws IOException {
+		try (JsonParser parser = parser(term)) {
+			return DiscordUtils.MAPPER.readTree(parser);
+		}
+	}
+
+	private static JsonParser parser(byte[] term) throws IOException {
+		byte[] versioned = term(term);
+		return EtfCodec.createParser(versioned, 0, versioned.length);
+	}
+
+	private static byte[] term(byte[] term) {
+		return concat(new byte[]{EtfCodec.VERSION}, term);
+	}
+
+	private static byte[] smallInt(int value) {
+		return new byte[]{97, (byte) value};
+	}
+
+	private static byte[] integer(int value) {
+		return concat(new byte[]{98}, int32(value));
+	}
+
+	private static byte[] smallBig(long value) {
+		byte[] magnitude = littleEndian(BigInteger.valueOf(value).abs());
+		return concat(new byte[]{110, (byte) magnitude.length, (byte) (value < 0 ? 1 : 0)}, magnitude);
+	}
+
+	private static byte[] largeBig(BigInteger value) {
+		byte[] magnitude = littleEndian(value.abs());
+		return concat(new byte[]{111}, int32(magnitude.length), new byte[]{(byte) (value.signum() < 0 ? 1 : 0)}, magnitude);
+	}
+
+	private static byte[] atom(String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		return concat(new byte[]{100, 0, (byte) bytes.length}, bytes);
+	}
+
+	private static byte[] binary(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		return concat(new byte[]{109}, int32(bytes.length), bytes);
+	}
+
+	private static byte[] string(int... values) {
+		byte[] bytes = new byte[values.length + 3];
+		bytes[0] = 107;
+		bytes[1] = (byte) (values.length >> 8);
+		bytes[2] = (byte) values.length;
+		for (int i = 0; i < values.length; i++) {
+			bytes[i + 3] = (byte) values[i];
+		}
+		return bytes;
+	}
+
+	private static byte[] nil() {
+		return new byte[]{106};
+	}
+
+	private static byte[] list(byte[]... elements) {
+		return concat(new byte[]{108}, int32(elements.length), concat(elements), nil());
+	}
+
+	private static byte[] map(byte[]... keysAndValues) {
+		return concat(new byte[]{116}, int32(keysAndValues.length / 2), concat(keysAndValues));
+	}
+
+	private static byte[] int32(int value) {
+		return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+	}
+
+	private static byte[] littleEndian(BigInteger magnitude) {
+		byte[] bigEndian = magnitude.toByteArray();
+		int start = bigEndian[0] == 0 ? 1 : 0;
+		byte[] bytes = new byte[bigEndian.length - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = bigEndian[bigEndian.length - 1 - i];
+		}
+		return bytes;
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.write(part, 0, part.length);
+		}
+		return out.toByteArray();
+	}
+}
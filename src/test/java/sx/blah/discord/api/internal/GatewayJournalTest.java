@@ -0,0 +1,181 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sx.blah.discord.api.ClientBuilder;
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.util.GatewayReplayer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class GatewayJournalTest {
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("gateway-journal");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testRecordFraming() throws Exception {
+		long before = System.currentTimeMillis();
+		GatewayJournal journal = new GatewayJournal(directory.toFile(), 8192, 4);
+		byte[] padded = "xx{\"op\":11}yy".getBytes(StandardCharsets.UTF_8);
+		journal.record(new int[]{0, 2}, "{\"op\":10}".getBytes(StandardCharsets.UTF_8), 0, 9);
+		journal.record(new int[]{1, 2}, padded, 2, padded.length - 4); // Only the given range is recorded
+		journal.record(new int[]{1, 2}, new byte[]{(byte) 131, 106}, 0, 2);
+		journal.close();
+
+		List<Record> records = read();
+		assertEquals(3, records.size());
+		assertEquals("{\"op\":10}", records.get(0).text());
+		assertArrayEquals(new int[]{0, 2}, records.get(0).shard);
+		assertEquals("{\"op\":11}", records.get(1).text());
+		assertArrayEquals(new int[]{1, 2}, records.get(1).shard);
+		assertArrayEquals(new byte[]{(byte) 131, 106}, records.get(2).payload);
+		for (Record record : records) {
+			assertTrue(record.timestamp >= before && record.timestamp <= System.currentTimeMillis());
+		}
+	}
+
+	@Test
+	public void testReadOpenSegment() throws Exception {
+		GatewayJournal journal = new GatewayJournal(directory.toFile(), 8192, 4);
+		journal.record(new int[]{0, 1}, payload(1, 100), 0, 100);
+
+		// The rest of the segment is zeros, which ends it like the marker written when it's closed
+		List<Record> records = read();
+		assertEquals(1, records.size());
+		assertArrayEquals(payload(1, 100), records.get(0).payload);
+	}
+
+	@Test
+	public void testSegmentRotation() throws Exception {
+		// Each 8 KiB segment holds two of these payloads
+		GatewayJournal journal = new GatewayJournal(directory.toFile(), 8192, 2);
+		for (int i = 0; i < 8; i++) {
+			journal.record(new int[]{0, 1}, payload(i, 3000), 0, 3000);
+		}
+		journal.record(new int[]{0, 1}, payload(8, 8192), 0, 8192); // Too large for a segment, so it's skipped
+		journal.close();
+
+		assertEquals(Arrays.asList(2L, 3L), GatewayJournal.listSegments(directory));
+		List<Record> records = read();
+		assertEquals(4, records.size());
+		for (int i = 0; i < 4; i++) {
+			assertArrayEquals(payload(i + 4, 3000), records.get(i).payload);
+		}
+
+		// A new journal continues after the existing segments instead of overwriting them
+		journal = new GatewayJournal(directory.toFile(), 8192, 2);
+		journal.record(new int[]{0, 1}, payload(9, 3000), 0, 3000);
+		journal.close();
+		assertEquals(Arrays.asList(3L, 4L), GatewayJournal.listSegments(directory));
+	}
+
+	@Test
+	public void testSkipInvalidSegment() throws Exception {
+		Files.write(directory.resolve(GatewayJournal.getSegmentName(0)), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+		GatewayJournal journal = new GatewayJournal(directory.toFile(), 8192, 4);
+		journal.record(new int[]{0, 1}, payload(1, 10), 0, 10);
+		journal.close();
+
+		List<Record> records = read();
+		assertEquals(1, records.size());
+		assertArrayEquals(payload(1, 10), records.get(0).payload);
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		GatewayJournal journal = new GatewayJournal(directory.toFile(), 65536, 4);
+		record(journal, 0, "{\"op\":10,\"d\":{\"heartbeat_interval\":41250,\"_trace\":[]}}"); // Not a dispatch, so ignored
+		record(journal, 0, guildCreate(1, 4194304L));
+		record(journal, 1, guildCreate(2, 8388608L));
+		journal.close();
+
+		IDiscordClient client = new ClientBuilder().withToken("token").build();
+		assertEquals(3, new GatewayReplayer(client).replay(directory.toFile(), false));
+
+		assertEquals(2, client.getShards().size());
+		assertEquals("Guild 1", client.getGuildByID(4194304L).getName());
+		assertEquals("Guild 2", client.getGuildByID(8388608L).getName());
+		assertEquals(1, client.getGuildByID(8388608L).getShard().getInfo()[0]);
+	}
+
+	private List<Record> read() throws Exception {
+		List<Record> records = new ArrayList<>();
+		long count = GatewayJournal.read(directory, (timestamp, shard, payload, length) ->
+				records.add(new Record(timestamp, shard, Arrays.copyOf(payload, length))));
+		assertEquals(records.size(), count);
+		return records;
+	}
+
+	private static void record(GatewayJournal journal, int shard, String json) {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		journal.record(new int[]{shard, 2}, bytes, 0, bytes.length);
+	}
+
+	private static String guildCreate(int sequence, long id) {
+		return "{\"op\":0,\"s\":" + sequence + ",\"t\":\"GUILD_CREATE\",\"d\":{\"id\":\"" + id + "\",\"name\":\"Guild " + sequence + "\","
+				+ "\"owner_id\":\"1\",\"region\":\"us-east\",\"afk_timeout\":300,\"joined_at\":\"2018-01-01T00:00:00+00:00\","
+				+ "\"roles\":[{\"id\":\"" + id + "\",\"name\":\"@everyone\",\"permissions\":0}],\"emojis\":[],\"features\":[],"
+				+ "\"member_count\":0,\"voice_states\":[],\"members\":[],\"channels\":[],\"presences\":[]}}";
+	}
+
+	private static byte[] payload(int seed, int length) {
+		byte[] payload = new byte[length];
+		Arrays.fill(payload, (byte) ('a' + seed));
+		return payload;
+	}
+
+	private static class Record {
+		final long timestamp;
+		final int[] shard;
+		final byte[] payload;
+
+		Record(long timestamp, int[] shard, byte[] payload) {
+			this.timestamp = timestamp;
+			this.shard = shard;
+			this.payload = payload;
+		}
+
+		String text() {
+			return new String(payload, StandardCharsets.UTF_8);
+		}
+	}
+}
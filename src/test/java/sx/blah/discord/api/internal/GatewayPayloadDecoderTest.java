@@ -0,0 +1,120 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.Test;
+import sx.blah.discord.api.internal.json.GatewayPayload;
+import sx.blah.discord.api.internal.json.objects.ChannelObject;
+import sx.blah.discord.api.internal.json.responses.HelloResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class GatewayPayloadDecoderTest {
+
+	private static final String CHANNEL = "{\"id\":\"41771983423143937\",\"type\":0,\"name\":\"general\",\"permission_overwrites\":[]}";
+
+	@Test
+	public void testDispatch() throws Exception {
+		GatewayPayload payload = decode("{\"t\":\"CHANNEL_CREATE\",\"s\":5,\"op\":0,\"d\":" + CHANNEL + "}");
+		assertEquals("CHANNEL_CREATE", payload.t);
+		assertEquals(Long.valueOf(5), payload.s);
+		assertEquals(Integer.valueOf(GatewayOps.DISPATCH.ordinal()), payload.op);
+		assertChannel(payload.d);
+	}
+
+	@Test
+	public void testDataBeforeOpAndType() throws Exception {
+		GatewayPayload payload = decode("{\"d\":" + CHANNEL + ",\"op\":0,\"s\":6,\"t\":\"CHANNEL_CREATE\"}");
+		assertEquals("CHANNEL_CREATE", payload.t);
+		assertEquals(Long.valueOf(6), payload.s);
+		assertChannel(payload.d);
+	}
+
+	@Test
+	public void testDataBeforeType() throws Exception {
+		// The opcode alone doesn't determine the type of a dispatch's data
+		GatewayPayload payload = decode("{\"op\":0,\"d\":" + CHANNEL + ",\"t\":\"CHANNEL_CREATE\",\"s\":7}");
+		assertEquals(Long.valueOf(7), payload.s);
+		assertChannel(payload.d);
+	}
+
+	@Test
+	public void testIgnoredDispatch() throws Exception {
+		GatewayPayload payload = decode("{\"t\":\"CHANNEL_CREATE\",\"s\":8,\"op\":0,\"d\":" + CHANNEL + "}", "CHANNEL_CREATE");
+		assertEquals("CHANNEL_CREATE", payload.t);
+		assertEquals(Long.valueOf(8), payload.s); // The sequence is still needed to resume
+		assertNull(payload.d);
+
+		payload = decode("{\"d\":" + CHANNEL + ",\"op\":0,\"s\":9,\"t\":\"CHANNEL_CREATE\"}", "CHANNEL_CREATE");
+		assertEquals(Long.valueOf(9), payload.s);
+		assertNull(payload.d);
+	}
+
+	@Test
+	public void testNullSequence() throws Exception {
+		GatewayPayload payload = decode("{\"t\":null,\"s\":null,\"op\":10,\"d\":{\"heartbeat_interval\":41250,\"_trace\":[\"gateway-prd-main-1\"]}}");
+		assertNull(payload.t);
+		assertNull(payload.s);
+		assertEquals(Integer.valueOf(GatewayOps.HELLO.ordinal()), payload.op);
+		assertTrue(payload.d instanceof HelloResponse);
+		assertEquals(41250, ((HelloResponse) payload.d).heartbeat_interval);
+	}
+
+	@Test
+	public void testUnknownDispatch() throws Exception {
+		GatewayPayload payload = decode("{\"t\":\"SOMETHING_NEW\",\"op\":0,\"d\":{\"id\":\"1\",\"nested\":{\"values\":[1,2,3]}},\"s\":10}");
+		assertEquals("SOMETHING_NEW", payload.t);
+		assertEquals(Long.valueOf(10), payload.s); // Fields after the skipped data are still read
+		assertNull(payload.d);
+
+		payload = decode("{\"d\":{\"id\":\"1\",\"nested\":{\"values\":[1,2,3]}},\"t\":\"SOMETHING_NEW\",\"op\":0,\"s\":11}");
+		assertEquals(Long.valueOf(11), payload.s);
+		assertNull(payload.d);
+	}
+
+	@Test
+	public void testUnknownFieldsSkipped() throws Exception {
+		GatewayPayload payload = decode("{\"op\":9,\"extra\":{\"a\":[{\"b\":1}]},\"d\":false,\"more\":[1,[2]]}");
+		assertEquals(Integer.valueOf(GatewayOps.INVALID_SESSION.ordinal()), payload.op);
+		assertEquals(Boolean.FALSE, payload.d);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testNotAnObject() throws Exception {
+		decode("[0]");
+	}
+
+	private static GatewayPayload decode(String json, String... ignoredDispatches) throws IOException {
+		try (JsonParser parser = DiscordUtils.MAPPER.getFactory().createParser(json)) {
+			return GatewayPayloadDecoder.decode(parser, new HashSet<>(Arrays.asList(ignoredDispatches)));
+		}
+	}
+
+	private static void assertChannel(Object data) {
+		assertTrue(data instanceof ChannelObject);
+		ChannelObject channel = (ChannelObject) data;
+		assertEquals("41771983423143937", channel.id);
+		assertEquals("general", channel.name);
+		assertEquals(0, channel.permission_overwrites.length);
+	}
+}
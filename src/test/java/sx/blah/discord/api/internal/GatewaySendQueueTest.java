@@ -0,0 +1,199 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GatewaySendQueueTest {
+
+	private final FakeScheduler scheduler = new FakeScheduler();
+	private final List<Long> sendTimes = new ArrayList<>();
+	private final List<Object> sent = new ArrayList<>();
+	private final GatewaySendQueue queue = new GatewaySendQueue(message -> {
+		sendTimes.add(scheduler.now);
+		sent.add(message);
+	}, 0, scheduler, () -> scheduler.now);
+
+	@Test
+	public void testWindowNeverExceeded() throws Exception {
+		for (int i = 0; i < 400; i++) {
+			queue.send(GatewayOps.REQUEST_GUILD_MEMBERS, "request " + i);
+		}
+		assertEquals(GatewaySendQueue.LIMIT, sent.size()); // The first payloads are sent at once
+
+		long heartbeatInterval = TimeUnit.MILLISECONDS.toNanos(41250);
+		long end = TimeUnit.MINUTES.toNanos(5);
+		for (long time = 0; time < end; time += TimeUnit.MILLISECONDS.toNanos(50)) {
+			scheduler.advanceTo(time);
+			if (time % heartbeatInterval < TimeUnit.MILLISECONDS.toNanos(50)) queue.send(GatewayOps.HEARTBEAT, "heartbeat");
+			if (time % TimeUnit.SECONDS.toNanos(1) == 0) queue.send(GatewayOps.STATUS_UPDATE, "presence");
+		}
+
+		long requests = sent.stream().filter(message -> ((String) message).startsWith("request")).count();
+		assertEquals(400, requests);
+		for (int i = 0; i < sendTimes.size(); i++) {
+			int inWindow = 0;
+			int heartbeats = 0;
+			for (int j = i; j >= 0 && sendTimes.get(j) > sendTimes.get(i) - GatewaySendQueue.WINDOW; j--) {
+				inWindow++;
+				if (sent.get(j).equals("heartbeat")) heartbeats++;
+			}
+			assertTrue("Sent " + inWindow + " payloads in a window", inWindow <= GatewaySendQueue.HEARTBEAT_LIMIT);
+			assertTrue("Sent " + (inWindow - heartbeats) + " payloads in a window", inWindow - heartbeats <= GatewaySendQueue.LIMIT);
+		}
+	}
+
+	@Test
+	public void testHeartbeatNotHeldBack() throws Exception {
+		for (int i = 0; i < GatewaySendQueue.LIMIT + 10; i++) {
+			queue.send(GatewayOps.STATUS_UPDATE, "presence " + i);
+			queue.send(null, "other " + i);
+		}
+		assertEquals(GatewaySendQueue.LIMIT, sent.size());
+
+		scheduler.advanceTo(TimeUnit.SECONDS.toNanos(30));
+		queue.send(GatewayOps.HEARTBEAT, "heartbeat");
+		assertEquals(GatewaySendQueue.LIMIT + 1, sent.size());
+		assertEquals("heartbeat", sent.get(sent.size() - 1));
+		assertEquals(TimeUnit.SECONDS.toNanos(30), (long) sendTimes.get(sendTimes.size() - 1));
+	}
+
+	@Test
+	public void testPriorityAndLatestPresence() throws Exception {
+		for (int i = 0; i < GatewaySendQueue.LIMIT; i++) {
+			queue.send(null, "other");
+		}
+		queue.send(GatewayOps.STATUS_UPDATE, "presence 1");
+		queue.send(GatewayOps.STATUS_UPDATE, "presence 2");
+		queue.send(GatewayOps.REQUEST_GUILD_MEMBERS, "request");
+		queue.send(GatewayOps.RESUME, "resume");
+		sent.clear();
+
+		scheduler.advanceTo(GatewaySendQueue.WINDOW);
+		assertEquals(Arrays.asList("resume", "request", "presence 2"), sent);
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		for (int i = 0; i < GatewaySendQueue.LIMIT + 5; i++) {
+			queue.send(null, "old " + i);
+		}
+		assertEquals(GatewaySendQueue.LIMIT, sent.size());
+
+		// A new connection has its own limit, and the payloads queued for the old one are dropped
+		queue.reset();
+		sent.clear();
+		queue.send(GatewayOps.IDENTIFY, "identify");
+		assertEquals(Collections.singletonList("identify"), sent);
+		scheduler.advanceTo(GatewaySendQueue.WINDOW * 2);
+		assertEquals(1, sent.size());
+	}
+
+	/**
+	 * Runs scheduled tasks when the test advances its clock, rather than on a thread.
+	 */
+	private static class FakeScheduler extends ScheduledThreadPoolExecutor {
+
+		private final List<FakeFuture> tasks = new ArrayList<>();
+		private long now = 0;
+
+		FakeScheduler() {
+			super(0);
+		}
+
+		@Override
+		public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+			FakeFuture future = new FakeFuture(command, now + unit.toNanos(delay));
+			tasks.add(future);
+			return future;
+		}
+
+		void advanceTo(long time) {
+			while (true) {
+				FakeFuture next = null;
+				for (FakeFuture task : tasks) {
+					if (!task.cancelled && task.due <= time && (next == null || task.due < next.due)) next = task;
+				}
+				if (next == null) break;
+				tasks.remove(next);
+				now = next.due;
+				next.command.run();
+			}
+			tasks.removeIf(task -> task.cancelled);
+			now = time;
+		}
+
+		private class FakeFuture implements ScheduledFuture<Object> {
+
+			private final Runnable command;
+			private final long due;
+			private boolean cancelled;
+
+			FakeFuture(Runnable command, long due) {
+				this.command = command;
+				this.due = due;
+			}
+
+			@Override
+			public long getDelay(TimeUnit unit) {
+				return unit.convert(due - now, TimeUnit.NANOSECONDS);
+			}
+
+			@Override
+			public int compareTo(Delayed other) {
+				return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				cancelled = true;
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return cancelled;
+			}
+
+			@Override
+			public boolean isDone() {
+				return cancelled || !tasks.contains(this);
+			}
+
+			@Override
+			public Object get() {
+				return null;
+			}
+
+			@Override
+			public Object get(long timeout, TimeUnit unit) {
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+import sx.blah.discord.api.IShard;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class GuildEntityIndexTest {
+
+	private static final long GUILD_ID = 4194304L;
+	private static final long CHANNEL_ID = 4194305L;
+	private static final long VOICE_CHANNEL_ID = 4194306L;
+	private static final long CATEGORY_ID = 4194307L;
+	private static final long ROLE_ID = 4194308L;
+	private static final long EMOJI_ID = 4194309L;
+	private static final long[] ENTITY_IDS = {CHANNEL_ID, VOICE_CHANNEL_ID, CATEGORY_ID, ROLE_ID, EMOJI_ID};
+
+	private final GuildEntityIndex index = new GuildEntityIndex();
+	/**
+	 * The guilds cached by the {@link #shard}, by ID.
+	 */
+	private final Map<Long, IGuild> cachedGuilds = new HashMap<>();
+	private IShard shard;
+	private IGuild guild;
+
+	@Before
+	public void createGuild() {
+		shard = stub(IShard.class, (name, args) -> name.equals("getGuildByID") ? cachedGuilds.get((Long) args[0]) : null);
+		guild = guild(GUILD_ID, CHANNEL_ID, VOICE_CHANNEL_ID, CATEGORY_ID, ROLE_ID, EMOJI_ID);
+		cachedGuilds.put(GUILD_ID, guild);
+	}
+
+	@Test
+	public void testAddGuild() {
+		index.add(guild);
+		for (long id : ENTITY_IDS) {
+			assertSame(guild, index.find(id, Function.identity()));
+		}
+		assertNull(index.find(GUILD_ID + 100, Function.identity()));
+	}
+
+	@Test
+	public void testRemoveGuild() {
+		IGuild other = guild(GUILD_ID + 100, GUILD_ID + 101);
+		cachedGuilds.put(other.getLongID(), other);
+		index.add(guild);
+		index.add(other);
+
+		index.remove(guild);
+		for (long id : ENTITY_IDS) {
+			assertNull(index.find(id, Function.identity()));
+		}
+		assertSame(other, index.find(GUILD_ID + 101, Function.identity()));
+	}
+
+	@Test
+	public void testAddAndRemoveEntity() {
+		long id = GUILD_ID + 100;
+		index.add(id, guild);
+		assertSame(guild, index.find(id, Function.identity()));
+
+		index.remove(id);
+		assertNull(index.find(id, Function.identity()));
+	}
+
+	@Test
+	public void testAddAndRemoveEntities() {
+		List<IIDLinkedObject> entities = Arrays.asList(entity(GUILD_ID + 100), entity(GUILD_ID + 101));
+		index.addAll(entities, guild);
+		assertSame(guild, index.find(GUILD_ID + 100, Function.identity()));
+		assertSame(guild, index.find(GUILD_ID + 101, Function.identity()));
+
+		index.removeAll(entities);
+		assertNull(index.find(GUILD_ID + 100, Function.identity()));
+		assertNull(index.find(GUILD_ID + 101, Function.identity()));
+	}
+
+	@Test
+	public void testFindUsesCachedGuild() {
+		index.add(guild);
+
+		// A GUILD_CREATE for a guild which was already cached replaces the guild object
+		IGuild replaced = guild(GUILD_ID);
+		cachedGuilds.put(GUILD_ID, replaced);
+		assertSame(replaced, index.find(CHANNEL_ID, Function.identity()));
+
+		cachedGuilds.remove(GUILD_ID);
+		assertNull(index.find(CHANNEL_ID, Function.identity()));
+	}
+
+	@Test
+	public void testFindAppliesLookup() {
+		index.add(guild);
+		assertEquals(Long.valueOf(GUILD_ID), index.find(ROLE_ID, IGuild::getLongID));
+		assertNull(index.find(ROLE_ID, g -> null));
+	}
+
+	/**
+	 * Creates a guild of the {@link #shard} with a channel, voice channel, category, role and emoji of the given IDs,
+	 * in that order. Missing IDs leave the remaining entity types empty.
+	 */
+	private IGuild guild(long id, long... entityIDs) {
+		String[] getters = {"getChannels", "getVoiceChannels", "getCategories", "getRoles", "getEmojis"};
+		Map<String, List<IIDLinkedObject>> entities = new HashMap<>();
+		for (int i = 0; i < getters.length; i++) {
+			entities.put(getters[i], i < entityIDs.length ? Collections.singletonList(entity(entityIDs[i])) : Collections.emptyList());
+		}
+
+		return stub(IGuild.class, (name, args) -> {
+			if (name.equals("getLongID")) return id;
+			if (name.equals("getShard")) return shard;
+			return entities.get(name);
+		});
+	}
+
+	private static IIDLinkedObject entity(long id) {
+		return () -> id;
+	}
+
+	/**
+	 * Creates an implementation of an interface which answers the methods the index calls. Other methods return null.
+	 */
+	private static <T> T stub(Class<T> type, StubMethod methods) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return type.getSimpleName() + " stub";
+				default:
+					return methods.invoke(method.getName(), args);
+			}
+		}));
+	}
+
+	private interface StubMethod {
+		Object invoke(String name, Object[] args);
+	}
+}
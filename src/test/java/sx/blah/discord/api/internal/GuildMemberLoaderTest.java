@@ -0,0 +1,94 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.Test;
+import sx.blah.discord.api.ClientBuilder;
+import sx.blah.discord.api.MemberLoadingStrategy;
+import sx.blah.discord.api.internal.json.objects.GuildObject;
+import sx.blah.discord.api.internal.json.objects.MessageObject;
+import sx.blah.discord.api.internal.json.objects.UserObject;
+import sx.blah.discord.handle.impl.obj.Guild;
+import sx.blah.discord.handle.obj.IChannel;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class GuildMemberLoaderTest {
+
+	private static final long GUILD_ID = 4194304L;
+	private static final long CHANNEL_ID = 4194305L;
+	private static final long USER_ID = 4194306L;
+	private static final long AUTHOR_ID = 4194307L;
+	private static final long MESSAGE_ID = 4194308L;
+
+	@Test
+	public void testLazyGuildNotLoadedByMessages() throws Exception {
+		DiscordClientImpl client = (DiscordClientImpl) new ClientBuilder().withToken("token")
+				.withMemberLoadingStrategy(MemberLoadingStrategy.LAZY).build();
+		ShardImpl shard = new ShardImpl(client, "wss://gateway.discord.gg", new int[]{0, 1}, null);
+		shard.ws = new DiscordWS(shard, "wss://gateway.discord.gg", client.maxMissedPings, null);
+		client.ourUser = DiscordUtils.getUserFromJSON(shard, DiscordUtils.MAPPER.readValue(user(USER_ID, "Bot"), UserObject.class));
+		DispatchHandler handler = new DispatchHandler(shard.ws, shard);
+
+		handler.handle("GUILD_CREATE", DiscordUtils.MAPPER.readValue("{\"id\":\"" + GUILD_ID + "\",\"name\":\"Guild\","
+				+ "\"owner_id\":\"" + USER_ID + "\",\"region\":\"us-east\",\"afk_timeout\":300,\"large\":true,\"member_count\":5000,"
+				+ "\"roles\":[{\"id\":\"" + GUILD_ID + "\",\"name\":\"@everyone\",\"permissions\":0}],\"emojis\":[],\"features\":[],"
+				+ "\"voice_states\":[],\"members\":[],\"presences\":[],\"channels\":[{\"id\":\"" + CHANNEL_ID + "\",\"type\":0,"
+				+ "\"guild_id\":\"" + GUILD_ID + "\",\"name\":\"general\",\"position\":0,\"permission_overwrites\":[]}]}", GuildObject.class));
+		assertTrue(client.dispatchLanes.awaitIdle(1, TimeUnit.MINUTES));
+		Guild guild = (Guild) shard.getGuildByID(GUILD_ID);
+		assertNotNull(guild);
+
+		// A message from a member who isn't cached, which mentions everyone
+		handler.handle("MESSAGE_CREATE", DiscordUtils.MAPPER.readValue("{\"id\":\"" + MESSAGE_ID + "\",\"type\":0,"
+				+ "\"channel_id\":\"" + CHANNEL_ID + "\",\"author\":" + user(AUTHOR_ID, "Author") + ",\"content\":\"@everyone hi\","
+				+ "\"timestamp\":\"2018-01-01T00:00:00+00:00\",\"mention_everyone\":true,\"mentions\":[],\"mention_roles\":[],"
+				+ "\"attachments\":[],\"embeds\":[]}", MessageObject.class));
+		assertTrue(client.dispatchLanes.awaitIdle(1, TimeUnit.MINUTES));
+		IChannel channel = shard.getChannelByID(CHANNEL_ID);
+		assertEquals("@everyone hi", channel.getMessageByID(MESSAGE_ID).getFormattedContent());
+		channel.getUsersHere();
+		assertNotNull("The members were requested", getMemberLoader(guild).get());
+		assertTrue(getPendingRequests(shard).isEmpty());
+
+		// Asking the guild for its members is what loads them
+		guild.getUsers();
+		assertNull(getMemberLoader(guild).get());
+		assertEquals(1, getPendingRequests(shard).size());
+	}
+
+	private static AtomicReference<Runnable> getMemberLoader(Guild guild) throws Exception {
+		Field field = Guild.class.getDeclaredField("memberLoader");
+		field.setAccessible(true);
+		return (AtomicReference<Runnable>) field.get(guild);
+	}
+
+	private static List<String> getPendingRequests(ShardImpl shard) throws Exception {
+		Field field = GuildMemberLoader.class.getDeclaredField("pendingRequests");
+		field.setAccessible(true);
+		return (List<String>) field.get(shard.memberLoader);
+	}
+
+	private static String user(long id, String name) {
+		return "{\"id\":\"" + id + "\",\"username\":\"" + name + "\",\"discriminator\":\"0001\"}";
+	}
+}
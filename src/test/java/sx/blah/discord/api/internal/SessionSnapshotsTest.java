@@ -0,0 +1,163 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sx.blah.discord.api.ClientBuilder;
+import sx.blah.discord.api.internal.json.objects.*;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IUser;
+import sx.blah.discord.handle.obj.StatusType;
+import sx.blah.discord.util.session.FileSessionStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class SessionSnapshotsTest {
+
+	private static final long GUILD_ID = 81384788765712384L;
+	private static final long CHANNEL_ID = 81384788765712385L;
+	private static final long ROLE_ID = 81384788765712386L;
+	private static final long USER_ID = 81384788765712387L;
+
+	private Path directory;
+	private FileSessionStore store;
+
+	@Before
+	public void createStore() throws IOException {
+		directory = Files.createTempDirectory("sessions");
+		store = new FileSessionStore(directory.toFile());
+	}
+
+	@After
+	public void deleteStore() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testSaveAndRestore() throws Exception {
+		ShardImpl shard = createShard(new int[]{0, 1});
+		((DiscordClientImpl) shard.getClient()).ourUser = DiscordUtils.getUserFromJSON(shard, user(USER_ID, "Bot"));
+		shard.guildCache.put(DiscordUtils.getGuildFromJSON(shard, guild()));
+		shard.ws.sessionId = "7b13d8a1e4c2f1a0";
+		shard.ws.seq = 42;
+
+		SessionSnapshots.save(shard, shard.ws);
+		assertNotNull(store.load(0));
+
+		// A new client, like one started by a new process
+		ShardImpl restored = createShard(new int[]{0, 1});
+		assertTrue(SessionSnapshots.restore(restored, restored.ws));
+		assertNull("A session must only be resumed once", store.load(0));
+		assertFalse(SessionSnapshots.restore(restored, restored.ws));
+
+		assertEquals("7b13d8a1e4c2f1a0", restored.ws.sessionId);
+		assertEquals(42, restored.ws.seq);
+		assertEquals(DiscordWS.State.RESUMING, restored.ws.state);
+		assertEquals(USER_ID, restored.getClient().getOurUser().getLongID());
+
+		IGuild guild = restored.getGuildByID(GUILD_ID);
+		assertEquals("Guild", guild.getName());
+		assertEquals("general", guild.getChannelByID(CHANNEL_ID).getName());
+		assertEquals("Moderator", guild.getRoleByID(ROLE_ID).getName());
+		IUser user = guild.getUserByID(USER_ID);
+		assertEquals("Bot", user.getName());
+		assertEquals("Bot Nick", user.getNicknameForGuild(guild));
+		assertTrue(user.getRolesForGuild(guild).contains(guild.getRoleByID(ROLE_ID)));
+		assertEquals(StatusType.IDLE, user.getPresence().getStatus());
+	}
+
+	@Test
+	public void testDiscardIncompatibleSession() throws Exception {
+		ShardImpl shard = createShard(new int[]{0, 1});
+		((DiscordClientImpl) shard.getClient()).ourUser = DiscordUtils.getUserFromJSON(shard, user(USER_ID, "Bot"));
+		shard.ws.sessionId = "7b13d8a1e4c2f1a0";
+		SessionSnapshots.save(shard, shard.ws);
+
+		// The shard count changed, so the session belongs to a different shard
+		ShardImpl resharded = createShard(new int[]{0, 2});
+		assertFalse(SessionSnapshots.restore(resharded, resharded.ws));
+		assertNull(store.load(0));
+		assertNull(resharded.ws.sessionId);
+	}
+
+	private ShardImpl createShard(int[] info) {
+		DiscordClientImpl client = (DiscordClientImpl) new ClientBuilder().withToken("token").withSessionStore(store).build();
+		ShardImpl shard = new ShardImpl(client, "wss://gateway.discord.gg", info, null);
+		shard.ws = new DiscordWS(shard, "wss://gateway.discord.gg", client.maxMissedPings, null);
+		return shard;
+	}
+
+	private static UserObject user(long id, String name) {
+		UserObject user = new UserObject();
+		user.id = Long.toUnsignedString(id);
+		user.username = name;
+		user.discriminator = "0001";
+		user.bot = true;
+		return user;
+	}
+
+	private static GuildObject guild() {
+		GuildObject guild = new GuildObject();
+		guild.id = Long.toUnsignedString(GUILD_ID);
+		guild.name = "Guild";
+		guild.owner_id = Long.toUnsignedString(USER_ID);
+		guild.region = "us-east";
+		guild.afk_timeout = 300;
+		guild.features = new String[0];
+		guild.emojis = new EmojiObject[0];
+		guild.voice_states = new VoiceStateObject[0];
+
+		RoleObject everyone = new RoleObject();
+		everyone.id = guild.id;
+		everyone.name = "@everyone";
+		RoleObject moderator = new RoleObject();
+		moderator.id = Long.toUnsignedString(ROLE_ID);
+		moderator.name = "Moderator";
+		moderator.position = 1;
+		guild.roles = new RoleObject[]{everyone, moderator};
+
+		ChannelObject channel = new ChannelObject();
+		channel.id = Long.toUnsignedString(CHANNEL_ID);
+		channel.type = ChannelObject.Type.GUILD_TEXT;
+		channel.guild_id = guild.id;
+		channel.name = "general";
+		channel.permission_overwrites = new OverwriteObject[0];
+		guild.channels = new ChannelObject[]{channel};
+
+		MemberObject member = new MemberObject(user(USER_ID, "Bot"), new String[]{moderator.id});
+		member.nick = "Bot Nick";
+		member.joined_at = "2018-01-01T00:00:00+00:00";
+		guild.members = new MemberObject[]{member};
+		guild.member_count = 1;
+
+		PresenceObject presence = new PresenceObject();
+		presence.user = user(USER_ID, "Bot");
+		presence.status = "idle";
+		guild.presences = new PresenceObject[]{presence};
+		return guild;
+	}
+}
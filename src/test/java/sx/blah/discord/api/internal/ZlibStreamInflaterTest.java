@@ -0,0 +1,155 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+public class ZlibStreamInflaterTest {
+
+	private static final String HELLO = "{\"op\":10,\"d\":{\"heartbeat_interval\":41250,\"_trace\":[\"gateway-prd-main-1\"]}}";
+	private static final String HEARTBEAT_ACK = "{\"op\":11}";
+
+	@Test
+	public void testMessagesShareContext() throws Exception {
+		Deflater deflater = new Deflater();
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+
+		byte[] first = compress(deflater, HELLO);
+		assertTrue(inflater.inflate(first, 0, first.length));
+		assertEquals(HELLO, read(inflater));
+
+		// The same message again is mostly a back-reference to the first, which only the shared context can resolve
+		byte[] second = compress(deflater, HELLO);
+		assertTrue(second.length < first.length);
+		assertTrue(inflater.inflate(second, 0, second.length));
+		assertEquals(HELLO, read(inflater));
+
+		byte[] third = compress(deflater, HEARTBEAT_ACK);
+		assertTrue(inflater.inflate(third, 0, third.length));
+		assertEquals(HEARTBEAT_ACK, read(inflater));
+	}
+
+	@Test
+	public void testMessageSplitAcrossFrames() throws Exception {
+		Deflater deflater = new Deflater();
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+		byte[] message = compress(deflater, HELLO);
+
+		int[] splits = {0, 5, message.length - 2, message.length}; // The last split cuts the flush suffix in two
+		for (int i = 0; i < splits.length - 2; i++) {
+			assertFalse(inflater.inflate(message, splits[i], splits[i + 1] - splits[i]));
+		}
+		assertTrue(inflater.inflate(message, splits[splits.length - 2], 2));
+		assertEquals(HELLO, read(inflater));
+
+		// The next message fits in one frame again
+		byte[] next = compress(deflater, HEARTBEAT_ACK);
+		assertTrue(inflater.inflate(next, 0, next.length));
+		assertEquals(HEARTBEAT_ACK, read(inflater));
+	}
+
+	@Test
+	public void testFrameAtOffset() throws Exception {
+		byte[] message = compress(new Deflater(), HELLO);
+		byte[] padded = new byte[message.length + 6];
+		System.arraycopy(message, 0, padded, 3, message.length);
+
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+		assertTrue(inflater.inflate(padded, 3, message.length));
+		assertEquals(HELLO, read(inflater));
+	}
+
+	@Test
+	public void testLargeMessage() throws Exception {
+		// Random letters compress poorly, so the message needs larger buffers on both sides
+		Random random = new Random(0);
+		char[] letters = new char[3 * 1024 * 1024];
+		for (int i = 0; i < letters.length; i++) letters[i] = (char) ('a' + random.nextInt(26));
+		String large = "{\"op\":0,\"d\":\"" + new String(letters) + "\"}";
+
+		Deflater deflater = new Deflater();
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+		byte[] message = compress(deflater, large);
+		int half = message.length / 2;
+		assertFalse(inflater.inflate(message, 0, half));
+		assertTrue(inflater.inflate(message, half, message.length - half));
+		assertEquals(large, read(inflater));
+
+		byte[] next = compress(deflater, HEARTBEAT_ACK);
+		assertTrue(inflater.inflate(next, 0, next.length));
+		assertEquals(HEARTBEAT_ACK, read(inflater));
+	}
+
+	@Test
+	public void testResetOnReconnect() throws Exception {
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+		Deflater firstConnection = new Deflater();
+		byte[] first = compress(firstConnection, HELLO);
+		assertTrue(inflater.inflate(first, 0, first.length));
+		byte[] partial = compress(firstConnection, HEARTBEAT_ACK);
+		assertFalse(inflater.inflate(partial, 0, partial.length - 4)); // The connection closes before the message ends
+
+		// A new connection starts a new zlib stream, with its own header
+		inflater.reset();
+		Deflater secondConnection = new Deflater();
+		byte[] second = compress(secondConnection, HELLO);
+		assertTrue(inflater.inflate(second, 0, second.length));
+		assertEquals(HELLO, read(inflater));
+
+		byte[] third = compress(secondConnection, HEARTBEAT_ACK);
+		assertTrue(inflater.inflate(third, 0, third.length));
+		assertEquals(HEARTBEAT_ACK, read(inflater));
+	}
+
+	@Test(expected = DataFormatException.class)
+	public void testNewStreamWithoutReset() throws Exception {
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+		byte[] first = compress(new Deflater(), HELLO);
+		assertTrue(inflater.inflate(first, 0, first.length));
+
+		// A second zlib header in the middle of the stream is invalid data
+		byte[] second = compress(new Deflater(), HELLO);
+		inflater.inflate(second, 0, second.length);
+	}
+
+	/**
+	 * Compresses a message the way the gateway does, ending it with a sync flush.
+	 */
+	private static byte[] compress(Deflater deflater, String message) {
+		deflater.setInput(message.getBytes(StandardCharsets.UTF_8));
+		byte[] buffer = new byte[1024];
+		int length = 0;
+		while (true) {
+			length += deflater.deflate(buffer, length, buffer.length - length, Deflater.SYNC_FLUSH);
+			if (length < buffer.length) break;
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		return Arrays.copyOf(buffer, length);
+	}
+
+	private static String read(ZlibStreamInflater inflater) {
+		return new String(inflater.getBuffer(), 0, inflater.getLength(), StandardCharsets.UTF_8);
+	}
+}
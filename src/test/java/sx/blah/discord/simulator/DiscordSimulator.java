@@ -0,0 +1,234 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.simulator;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.ClientBuilder;
+import sx.blah.discord.api.internal.DiscordUtils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A local server which stands in for Discord's gateway and REST API, so clients can be tested and load tested without
+ * a token or a connection to Discord.
+ *
+ * <p>The gateway identifies and resumes sessions, acknowledges heartbeats, sends the guilds of each shard and answers
+ * member requests. Once a shard is ready, synthetic MESSAGE_CREATE and PRESENCE_UPDATE events are sent at the
+ * configured rates. The REST API answers the requests a client makes while logging in, echoes created messages and
+ * answers any other request with an empty result, after the configured latency. A share of the REST requests can be
+ * answered with 429 to exercise rate limit handling.
+ *
+ * <p>To connect a client, the base URL must be set with {@link Discord4J#setBaseDiscordUrl(String)} before any
+ * request is made, and the gateway URL with {@link ClientBuilder#withGatewayUrl(String)}.
+ */
+public class DiscordSimulator {
+
+	private int guildCount = 10;
+	private int membersPerGuild = 50;
+	private int channelsPerGuild = 5;
+	private double messagesPerSecond = 0;
+	private double presencesPerSecond = 0;
+	private long restLatency = 0;
+	private double rateLimitChance = 0;
+	private int heartbeatInterval = 41250;
+
+	private Server server;
+	private int port;
+	SyntheticData data;
+	/**
+	 * Sends the synthetic events of every session.
+	 */
+	final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, DiscordUtils.createDaemonThreadFactory("Discord Simulator"));
+
+	/**
+	 * Sets the number of guilds the bot is in. (10 by default).
+	 *
+	 * @param guildCount The number of guilds.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withGuilds(int guildCount) {
+		this.guildCount = guildCount;
+		return this;
+	}
+
+	/**
+	 * Sets the number of members of each guild, including the bot. Guilds with more than 250 members are large, so
+	 * their remaining members must be requested. (50 by default).
+	 *
+	 * @param membersPerGuild The number of members of each guild.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withMembersPerGuild(int membersPerGuild) {
+		this.membersPerGuild = membersPerGuild;
+		return this;
+	}
+
+	/**
+	 * Sets the number of text channels of each guild. (5 by default).
+	 *
+	 * @param channelsPerGuild The number of channels of each guild.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withChannelsPerGuild(int channelsPerGuild) {
+		this.channelsPerGuild = channelsPerGuild;
+		return this;
+	}
+
+	/**
+	 * Sets the number of MESSAGE_CREATE events sent to each ready shard per second. (0 by default).
+	 *
+	 * @param messagesPerSecond The number of messages per second.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withMessageRate(double messagesPerSecond) {
+		this.messagesPerSecond = messagesPerSecond;
+		return this;
+	}
+
+	/**
+	 * Sets the number of PRESENCE_UPDATE events sent to each ready shard per second. (0 by default).
+	 *
+	 * @param presencesPerSecond The number of presence updates per second.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withPresenceRate(double presencesPerSecond) {
+		this.presencesPerSecond = presencesPerSecond;
+		return this;
+	}
+
+	/**
+	 * Sets how long the REST API waits before answering each request. (0 by default).
+	 *
+	 * @param millis The latency in milliseconds.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withRestLatency(long millis) {
+		this.restLatency = millis;
+		return this;
+	}
+
+	/**
+	 * Sets the share of REST requests which are answered with 429. Requests made while logging in are never rate
+	 * limited. (0 by default).
+	 *
+	 * @param chance The share of requests to rate limit, between 0 and 1.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withRateLimitChance(double chance) {
+		this.rateLimitChance = chance;
+		return this;
+	}
+
+	/**
+	 * Sets the heartbeat interval sent in HELLO. (41250 ms by default, like Discord).
+	 *
+	 * @param millis The heartbeat interval in milliseconds.
+	 * @return The simulator instance.
+	 */
+	public DiscordSimulator withHeartbeatInterval(int millis) {
+		this.heartbeatInterval = millis;
+		return this;
+	}
+
+	/**
+	 * Generates the guilds and starts the server on a free local port.
+	 *
+	 * @return The simulator instance.
+	 * @throws Exception If the server could not be started.
+	 */
+	public DiscordSimulator start() throws Exception {
+		data = new SyntheticData(guildCount, membersPerGuild, channelsPerGuild);
+
+		server = new Server();
+		ServerConnector connector = new ServerConnector(server);
+		connector.setHost("localhost");
+		server.addConnector(connector);
+
+		ServletContextHandler context = new ServletContextHandler();
+		context.setContextPath("/");
+		context.addServlet(new ServletHolder(new WebSocketServlet() {
+			@Override
+			public void configure(WebSocketServletFactory factory) {
+				factory.getPolicy().setMaxTextMessageSize(Integer.MAX_VALUE);
+				factory.setCreator((request, response) -> new SimulatedGateway(DiscordSimulator.this));
+			}
+		}), "/gateway");
+		context.addServlet(new ServletHolder(new SimulatedRest(this)), "/api/v" + DiscordUtils.API_VERSION + "/*");
+		server.setHandler(context);
+
+		server.start();
+		port = connector.getLocalPort();
+		Discord4J.LOGGER.info("Discord simulator started on port {} with {} guilds.", port, guildCount);
+		return this;
+	}
+
+	/**
+	 * Stops the server, closing every gateway session.
+	 *
+	 * @throws Exception If the server could not be stopped.
+	 */
+	public void stop() throws Exception {
+		scheduler.shutdownNow();
+		server.stop();
+	}
+
+	/**
+	 * Gets the URL to pass to {@link Discord4J#setBaseDiscordUrl(String)}.
+	 *
+	 * @return The base URL of the simulated API.
+	 */
+	public String getBaseUrl() {
+		return "http://localhost:" + port + "/";
+	}
+
+	/**
+	 * Gets the URL to pass to {@link ClientBuilder#withGatewayUrl(String)}.
+	 *
+	 * @return The URL of the simulated gateway.
+	 */
+	public String getGatewayUrl() {
+		return "ws://localhost:" + port + "/gateway";
+	}
+
+	double getMessagesPerSecond() {
+		return messagesPerSecond;
+	}
+
+	double getPresencesPerSecond() {
+		return presencesPerSecond;
+	}
+
+	long getRestLatency() {
+		return restLatency;
+	}
+
+	double getRateLimitChance() {
+		return rateLimitChance;
+	}
+
+	int getHeartbeatInterval() {
+		return heartbeatInterval;
+	}
+}
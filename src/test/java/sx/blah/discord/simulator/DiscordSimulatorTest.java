@@ -0,0 +1,71 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.simulator;
+
+import org.junit.Test;
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.ClientBuilder;
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.events.IListener;
+import sx.blah.discord.api.internal.DiscordEndpoints;
+import sx.blah.discord.handle.impl.events.ReadyEvent;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class DiscordSimulatorTest {
+
+	@Test
+	public void testLoginAndReceiveMessages() throws Exception {
+		DiscordSimulator simulator = new DiscordSimulator()
+				.withGuilds(20)
+				.withMembersPerGuild(300)
+				.withMessageRate(50)
+				.start();
+		try {
+			// The base url is read once, so this can only run if no other test has already used the API
+			Discord4J.setBaseDiscordUrl(simulator.getBaseUrl());
+			assumeTrue(DiscordEndpoints.BASE.equals(simulator.getBaseUrl()));
+
+			CountDownLatch ready = new CountDownLatch(1);
+			CountDownLatch messages = new CountDownLatch(100);
+			IDiscordClient client = new ClientBuilder()
+					.withToken("simulated.token")
+					.withGatewayUrl(simulator.getGatewayUrl())
+					.withShards(2)
+					.setDaemon(true)
+					.build();
+			client.getDispatcher().registerListener((IListener<ReadyEvent>) event -> ready.countDown());
+			client.getDispatcher().registerListener((IListener<MessageReceivedEvent>) event -> messages.countDown());
+			client.login();
+
+			assertTrue("Timed out waiting for the shards to be ready", ready.await(1, TimeUnit.MINUTES));
+			assertEquals(20, client.getGuilds().size());
+			assertEquals(300, client.getGuilds().get(0).getTotalMemberCount());
+			assertTrue("Timed out waiting for messages", messages.await(30, TimeUnit.SECONDS));
+
+			client.logout();
+		} finally {
+			simulator.stop();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.internal.DiscordUtils;
+import sx.blah.discord.api.internal.GatewayOps;
+import sx.blah.discord.api.internal.json.event.GuildMemberChunkEventResponse;
+import sx.blah.discord.api.internal.json.objects.ChannelObject;
+import sx.blah.discord.api.internal.json.objects.GuildObject;
+import sx.blah.discord.api.internal.json.objects.UnavailableGuildObject;
+import sx.blah.discord.api.internal.json.responses.ReadyResponse;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single gateway session of a {@link DiscordSimulator}.
+ */
+class SimulatedGateway extends WebSocketAdapter {
+
+	/**
+	 * The sessions which can be resumed, by session ID. Shared by every connection like Discord's sessions.
+	 */
+	private static final Map<String, SimulatedGateway> SESSIONS = Collections.synchronizedMap(new HashMap<>());
+
+	private final DiscordSimulator simulator;
+	private final List<ScheduledFuture<?>> streams = new ArrayList<>();
+	private String sessionID;
+	private long seq;
+	private GuildObject[] guilds = new GuildObject[0];
+
+	SimulatedGateway(DiscordSimulator simulator) {
+		this.simulator = simulator;
+	}
+
+	@Override
+	public void onWebSocketConnect(Session session) {
+		super.onWebSocketConnect(session);
+		Map<String, Object> hello = new HashMap<>();
+		hello.put("heartbeat_interval", simulator.getHeartbeatInterval());
+		hello.put("_trace", new String[]{"discord-simulator"});
+		send(GatewayOps.HELLO, null, hello);
+	}
+
+	@Override
+	public void onWebSocketText(String message) {
+		try {
+			JsonNode payload = DiscordUtils.MAPPER.readTree(message);
+			JsonNode d = payload.get("d");
+			switch (GatewayOps.get(payload.get("op").asInt())) {
+				case HEARTBEAT:
+					send(GatewayOps.HEARTBEAT_ACK, null, null);
+					break;
+				case IDENTIFY:
+					identify(d.get("shard") == null ? new int[]{0, 1} : new int[]{d.get("shard").get(0).asInt(), d.get("shard").get(1).asInt()});
+					break;
+				case RESUME:
+					resume(d.get("session_id").asText(), d.get("seq").asLong());
+					break;
+				case REQUEST_GUILD_MEMBERS:
+					JsonNode ids = d.get("guild_id");
+					if (ids.isArray()) {
+						ids.forEach(id -> sendMembers(id.asText()));
+					} else {
+						sendMembers(ids.asText());
+					}
+					break;
+				default: // Presence and voice state updates have no response
+					break;
+			}
+		} catch (Exception e) {
+			Discord4J.LOGGER.error("Discord simulator received an invalid payload: {}", message, e);
+		}
+	}
+
+	@Override
+	public void onWebSocketClose(int statusCode, String reason) {
+		super.onWebSocketClose(statusCode, reason);
+		stopStreams();
+		if (statusCode == 1000) SESSIONS.remove(sessionID); // Like Discord, a normal close ends the session
+	}
+
+	private void identify(int[] shard) {
+		sessionID = UUID.randomUUID().toString();
+		guilds = simulator.data.getGuilds(shard[0], shard[1]);
+		SESSIONS.put(sessionID, this);
+
+		ReadyResponse ready = new ReadyResponse();
+		ready.v = DiscordUtils.API_VERSION;
+		ready.user = simulator.data.botUser;
+		ready.shard = shard;
+		ready.session_id = sessionID;
+		ready.private_channels = new ChannelObject[0];
+		ready.guilds = Arrays.stream(guilds).map(guild -> {
+			UnavailableGuildObject unavailable = new UnavailableGuildObject();
+			unavailable.id = guild.id;
+			unavailable.unavailable = true;
+			return unavailable;
+		}).toArray(UnavailableGuildObject[]::new);
+		ready._trace = new String[]{"discord-simulator"};
+		dispatch("READY", ready);
+
+		for (GuildObject guild : guilds) {
+			dispatch("GUILD_CREATE", simulator.data.getGuildCreate(guild));
+		}
+		startStreams();
+	}
+
+	private void resume(String sessionID, long seq) {
+		SimulatedGateway previous = SESSIONS.get(sessionID);
+		if (previous == null) {
+			send(GatewayOps.INVALID_SESSION, null, false);
+			return;
+		}
+
+		previous.stopStreams();
+		this.sessionID = sessionID;
+		this.seq = Math.max(seq, previous.seq);
+		this.guilds = previous.guilds;
+		SESSIONS.put(sessionID, this);
+
+		dispatch("RESUMED", Collections.singletonMap("_trace", new String[]{"discord-simulator"}));
+		startStreams();
+	}
+
+	private void sendMembers(String guildID) {
+		GuildObject guild = simulator.data.getGuild(guildID);
+		if (guild == null) return;
+
+		for (GuildMemberChunkEventResponse chunk : simulator.data.getMemberChunks(guild)) {
+			dispatch("GUILD_MEMBERS_CHUNK", chunk);
+		}
+	}
+
+	private synchronized void startStreams() {
+		if (guilds.length == 0) return;
+
+		if (simulator.getMessagesPerSecond() > 0) {
+			long period = (long) (TimeUnit.SECONDS.toNanos(1) / simulator.getMessagesPerSecond());
+			streams.add(simulator.scheduler.scheduleAtFixedRate(() ->
+					dispatch("MESSAGE_CREATE", simulator.data.createMessage(guilds)), period, period, TimeUnit.NANOSECONDS));
+		}
+		if (simulator.getPresencesPerSecond() > 0) {
+			long period = (long) (TimeUnit.SECONDS.toNanos(1) / simulator.getPresencesPerSecond());
+			streams.add(simulator.scheduler.scheduleAtFixedRate(() ->
+					dispatch("PRESENCE_UPDATE", simulator.data.createPresenceUpdate(guilds)), period, period, TimeUnit.NANOSECONDS));
+		}
+	}
+
+	private synchronized void stopStreams() {
+		streams.forEach(stream -> stream.cancel(false));
+		streams.clear();
+	}
+
+	private void dispatch(String type, Object data) {
+		send(GatewayOps.DISPATCH, type, data);
+	}
+
+	/**
+	 * Sends a payload. Synchronized so the events of different streams are never interleaved.
+	 */
+	private synchronized void send(GatewayOps op, String type, Object data) {
+		if (!isConnected()) return;
+
+		Map<String, Object> payload = new HashMap<>();
+		payload.put("op", op.ordinal());
+		payload.put("d", data);
+		if (op == GatewayOps.DISPATCH) {
+			payload.put("t", type);
+			payload.put("s", ++seq);
+		}
+
+		try {
+			getRemote().sendString(DiscordUtils.MAPPER_NO_NULLS.writeValueAsString(payload));
+		} catch (IOException e) {
+			Discord4J.LOGGER.debug("Discord simulator was unable to send a payload.", e);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import sx.blah.discord.api.internal.DiscordUtils;
+import sx.blah.discord.api.internal.json.responses.GatewayBotResponse;
+import sx.blah.discord.api.internal.json.responses.RateLimitResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The REST API of a {@link DiscordSimulator}.
+ *
+ * <p>Only the endpoints the client needs to log in and send messages return meaningful data. Every other request is
+ * answered with an empty (but valid) response, so the client's request pipeline can be measured without the simulator
+ * having to model the whole API.
+ */
+class SimulatedRest extends HttpServlet {
+
+	private static final Pattern CREATE_MESSAGE = Pattern.compile("/channels/(\\d+)/messages");
+
+	private final DiscordSimulator simulator;
+
+	SimulatedRest(DiscordSimulator simulator) {
+		this.simulator = simulator;
+	}
+
+	@Override
+	protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (simulator.getRestLatency() > 0) {
+			try {
+				Thread.sleep(simulator.getRestLatency());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		String method = request.getMethod();
+		String path = request.getPathInfo() == null ? "/" : request.getPathInfo();
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+
+		// Logging in is never rate limited, otherwise a high rate limit chance would keep the client from connecting
+		switch (path) {
+			case "/gateway":
+			case "/gateway/bot":
+				GatewayBotResponse gateway = new GatewayBotResponse();
+				gateway.url = simulator.getGatewayUrl();
+				gateway.shards = 1;
+				write(response, 200, gateway);
+				return;
+			case "/users/@me":
+				if (method.equals("GET")) {
+					write(response, 200, simulator.data.botUser);
+					return;
+				}
+				break;
+		}
+
+		if (ThreadLocalRandom.current().nextDouble() < simulator.getRateLimitChance()) {
+			RateLimitResponse rateLimit = new RateLimitResponse();
+			rateLimit.message = "You are being rate limited.";
+			rateLimit.retry_after = ThreadLocalRandom.current().nextLong(50, 500);
+			rateLimit.global = false;
+			response.setHeader("Retry-After", String.valueOf(rateLimit.retry_after));
+			write(response, 429, rateLimit);
+			return;
+		}
+
+		Matcher createMessage = CREATE_MESSAGE.matcher(path);
+		if (method.equals("POST") && createMessage.matches()) {
+			JsonNode body = DiscordUtils.MAPPER.readTree(request.getInputStream());
+			String content = body == null || !body.has("content") ? "" : body.get("content").asText();
+			write(response, 200, simulator.data.createMessage(null, createMessage.group(1), simulator.data.botUser, content));
+			return;
+		}
+
+		switch (method) {
+			case "GET":
+				String last = path.substring(path.lastIndexOf('/') + 1);
+				if (last.equals("@me") || last.matches("\\d+")) { // A single object which isn't simulated
+					response.setStatus(404);
+					response.getWriter().write("{\"code\":0,\"message\":\"404: Not Found\"}");
+				} else { // A list
+					response.setStatus(200);
+					response.getWriter().write("[]");
+				}
+				break;
+			case "PUT":
+			case "DELETE":
+				response.setStatus(204);
+				break;
+			default: // Objects which are created or modified are echoed back
+				byte[] body = readBody(request);
+				response.setStatus(200);
+				response.getOutputStream().write(body.length == 0 ? "{}".getBytes() : body);
+				break;
+		}
+	}
+
+	private static byte[] readBody(HttpServletRequest request) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = request.getInputStream().read(buffer)) != -1) body.write(buffer, 0, read);
+		return body.toByteArray();
+	}
+
+	private static void write(HttpServletResponse response, int status, Object body) throws IOException {
+		response.setStatus(status);
+		response.getWriter().write(DiscordUtils.MAPPER_NO_NULLS.writeValueAsString(body));
+	}
+}
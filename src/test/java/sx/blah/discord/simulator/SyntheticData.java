@@ -0,0 +1,259 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.simulator;
+
+import sx.blah.discord.api.internal.json.event.GuildMemberChunkEventResponse;
+import sx.blah.discord.api.internal.json.event.PresenceUpdateEventResponse;
+import sx.blah.discord.api.internal.json.objects.*;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the guilds, members and events served by a {@link DiscordSimulator}.
+ */
+class SyntheticData {
+
+	/**
+	 * The number of members Discord sends in a large guild's GUILD_CREATE.
+	 */
+	static final int LARGE_THRESHOLD = 250;
+	/**
+	 * The maximum number of members Discord sends in a single GUILD_MEMBERS_CHUNK.
+	 */
+	static final int CHUNK_SIZE = 1000;
+	/**
+	 * The permissions of every guild's @everyone role. Everything is allowed so the bot can use every endpoint.
+	 */
+	private static final int ALL_PERMISSIONS = 0x7FFFFFFF;
+	private static final String[] STATUSES = {"online", "idle", "dnd", "offline"};
+
+	/**
+	 * Generates the IDs of every object. The timestamp part of each ID increases, like real snowflakes.
+	 */
+	private final AtomicLong nextID = new AtomicLong(1L << 22);
+
+	final UserObject botUser;
+	final GuildObject[] guilds;
+
+	SyntheticData(int guildCount, int membersPerGuild, int channelsPerGuild) {
+		this.botUser = createUser("Simulated Bot");
+		this.botUser.bot = true;
+		this.guilds = new GuildObject[guildCount];
+		for (int i = 0; i < guildCount; i++) {
+			guilds[i] = createGuild(i, membersPerGuild, channelsPerGuild);
+		}
+	}
+
+	/**
+	 * Gets the guilds which belong to a shard.
+	 *
+	 * @param shard The index of the shard.
+	 * @param shardCount The number of shards.
+	 * @return The shard's guilds.
+	 */
+	GuildObject[] getGuilds(int shard, int shardCount) {
+		return Arrays.stream(guilds)
+				.filter(guild -> (Long.parseLong(guild.id) >> 22) % shardCount == shard)
+				.toArray(GuildObject[]::new);
+	}
+
+	/**
+	 * Gets a guild by its ID.
+	 *
+	 * @param id The ID of the guild.
+	 * @return The guild, or null if it doesn't exist.
+	 */
+	GuildObject getGuild(String id) {
+		return Arrays.stream(guilds).filter(guild -> guild.id.equals(id)).findFirst().orElse(null);
+	}
+
+	/**
+	 * Gets the guild as it is sent in a GUILD_CREATE. Large guilds only include their first
+	 * {@link #LARGE_THRESHOLD} members, like Discord only includes the online ones.
+	 *
+	 * @param guild The guild.
+	 * @return The guild as it is sent in a GUILD_CREATE.
+	 */
+	GuildObject getGuildCreate(GuildObject guild) {
+		if (guild.members.length <= LARGE_THRESHOLD) return guild;
+
+		GuildObject partial = copy(guild);
+		partial.large = true;
+		partial.members = Arrays.copyOf(guild.members, LARGE_THRESHOLD);
+		partial.presences = Arrays.copyOf(guild.presences, LARGE_THRESHOLD);
+		return partial;
+	}
+
+	/**
+	 * Splits the members of a guild into GUILD_MEMBERS_CHUNKs.
+	 *
+	 * @param guild The guild.
+	 * @return The chunks.
+	 */
+	GuildMemberChunkEventResponse[] getMemberChunks(GuildObject guild) {
+		int count = (guild.members.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		GuildMemberChunkEventResponse[] chunks = new GuildMemberChunkEventResponse[count];
+		for (int i = 0; i < count; i++) {
+			chunks[i] = new GuildMemberChunkEventResponse();
+			chunks[i].guild_id = guild.id;
+			chunks[i].members = Arrays.copyOfRange(guild.members, i * CHUNK_SIZE, Math.min(guild.members.length, (i + 1) * CHUNK_SIZE));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Creates a message from a random member in a random text channel of one of the given guilds.
+	 *
+	 * @param guilds The guilds the message may be sent in.
+	 * @return The message.
+	 */
+	MessageObject createMessage(GuildObject[] guilds) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		GuildObject guild = guilds[random.nextInt(guilds.length)];
+		ChannelObject channel = guild.channels[random.nextInt(guild.channels.length)];
+		MemberObject author = guild.members[random.nextInt(guild.members.length)];
+		return createMessage(guild.id, channel.id, author.user, "Simulated message " + random.nextInt());
+	}
+
+	/**
+	 * Creates a message.
+	 *
+	 * @param guildID The ID of the guild the message is sent in. May be null.
+	 * @param channelID The ID of the channel the message is sent in.
+	 * @param author The author of the message.
+	 * @param content The content of the message.
+	 * @return The message.
+	 */
+	MessageObject createMessage(String guildID, String channelID, UserObject author, String content) {
+		MessageObject message = new MessageObject();
+		message.id = nextID();
+		message.guild_id = guildID;
+		message.channel_id = channelID;
+		message.author = author;
+		message.content = content;
+		message.timestamp = now();
+		message.mentions = new UserObject[0];
+		message.mention_roles = new String[0];
+		message.attachments = new MessageObject.AttachmentObject[0];
+		message.embeds = new EmbedObject[0];
+		message.pinned = false;
+		return message;
+	}
+
+	/**
+	 * Creates a presence update for a random member of one of the given guilds.
+	 *
+	 * @param guilds The guilds the member may be in.
+	 * @return The presence update.
+	 */
+	PresenceUpdateEventResponse createPresenceUpdate(GuildObject[] guilds) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		GuildObject guild = guilds[random.nextInt(guilds.length)];
+		MemberObject member = guild.members[random.nextInt(guild.members.length)];
+
+		PresenceUpdateEventResponse presence = new PresenceUpdateEventResponse();
+		presence.guild_id = guild.id;
+		presence.user = new UserObject();
+		presence.user.id = member.user.id;
+		presence.status = STATUSES[random.nextInt(STATUSES.length)];
+		presence.roles = member.roles;
+		if (random.nextBoolean()) presence.game = new GameObject("Simulated game " + random.nextInt(100), 0);
+		return presence;
+	}
+
+	private GuildObject createGuild(int index, int memberCount, int channelCount) {
+		GuildObject guild = new GuildObject();
+		guild.id = nextID();
+		guild.name = "Simulated Guild " + index;
+		guild.owner_id = botUser.id;
+		guild.region = "us-east";
+		guild.afk_timeout = 300;
+		guild.features = new String[0];
+		guild.joined_at = now();
+
+		RoleObject everyone = new RoleObject();
+		everyone.id = guild.id; // The @everyone role has the ID of its guild
+		everyone.name = "@everyone";
+		everyone.permissions = ALL_PERMISSIONS;
+		guild.roles = new RoleObject[]{everyone};
+		guild.emojis = new EmojiObject[0];
+		guild.voice_states = new VoiceStateObject[0];
+
+		guild.channels = new ChannelObject[channelCount];
+		for (int i = 0; i < channelCount; i++) {
+			ChannelObject channel = new ChannelObject();
+			channel.id = nextID();
+			channel.type = ChannelObject.Type.GUILD_TEXT;
+			channel.guild_id = guild.id;
+			channel.name = "channel-" + i;
+			channel.position = i;
+			channel.permission_overwrites = new OverwriteObject[0];
+			guild.channels[i] = channel;
+		}
+
+		guild.member_count = Math.max(1, memberCount);
+		guild.members = new MemberObject[guild.member_count];
+		guild.presences = new PresenceObject[guild.member_count];
+		for (int i = 0; i < guild.member_count; i++) {
+			UserObject user = i == 0 ? botUser : createUser("User " + i);
+			guild.members[i] = new MemberObject(user, new String[0]);
+			guild.members[i].joined_at = now();
+			guild.presences[i] = new PresenceObject();
+			guild.presences[i].user = user;
+			guild.presences[i].status = "online";
+		}
+		return guild;
+	}
+
+	private UserObject createUser(String name) {
+		UserObject user = new UserObject();
+		user.id = nextID();
+		user.username = name;
+		user.discriminator = String.format("%04d", Math.floorMod(user.id.hashCode(), 10000));
+		return user;
+	}
+
+	private static GuildObject copy(GuildObject guild) {
+		GuildObject copy = new GuildObject();
+		copy.id = guild.id;
+		copy.name = guild.name;
+		copy.owner_id = guild.owner_id;
+		copy.region = guild.region;
+		copy.afk_timeout = guild.afk_timeout;
+		copy.features = guild.features;
+		copy.joined_at = guild.joined_at;
+		copy.roles = guild.roles;
+		copy.emojis = guild.emojis;
+		copy.voice_states = guild.voice_states;
+		copy.channels = guild.channels;
+		copy.member_count = guild.member_count;
+		return copy;
+	}
+
+	private String nextID() {
+		return Long.toString(nextID.getAndAdd(1L << 22));
+	}
+
+	private static String now() {
+		return OffsetDateTime.now(ZoneOffset.UTC).toString();
+	}
+}